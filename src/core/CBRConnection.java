@@ -48,14 +48,12 @@ public class CBRConnection extends Connection {
 		this.getOtherNode(this.msgFromNode) + ". Can't "+ 
 		"start transfer of " + m + " from " + from;
 
-		this.msgFromNode = from;
-		Message newMessage = m.replicate();
-		int retVal = getOtherNode(from).receiveMessage(newMessage, from);
+		int retVal = offerMessage(from, m);
 
 		if (retVal == MessageRouter.RCV_OK) {
-			this.msgOnFly = newMessage;
 			this.transferDoneTime = SimClock.getTime() + 
 			(1.0*m.getSize()) / this.speed;
+			from.transferStarted(this.transferDoneTime);
 		}
 
 		return retVal;
@@ -106,6 +106,29 @@ public abstract class Connection {
 	 */
 	public abstract int getRemainingByteCount();
 
+	/**
+	 * Offers a message to the host in the other end of the connection.
+	 * The message is replicated only if the receiving host accepts it: the
+	 * replica, with the receiving host added on its path, becomes the
+	 * message on fly. Rejected offers don't copy the message at all.
+	 * @param from The host sending the message
+	 * @param m The message (not modified)
+	 * @return The value returned by 
+	 * {@link MessageRouter#receiveMessage(Message, DTNHost)}
+	 */
+	protected int offerMessage(DTNHost from, Message m) {
+		DTNHost to = getOtherNode(from);
+		this.msgFromNode = from;
+		int retVal = to.receiveMessage(m, from);
+
+		if (retVal == MessageRouter.RCV_OK) {
+			this.msgOnFly = m.replicate();
+			this.msgOnFly.addNodeOnPath(to);
+		}
+
+		return retVal;
+	}
+
 	/**
 	 * Clears the message that is currently being transferred.
 	 * Calls to {@link #getMessage()} will return null after this.
@@ -5,6 +5,7 @@
 
 package core;
 
+import input.DTN2BundleStore;
 import input.DTN2Events;
 
 import java.io.BufferedReader;
@@ -13,8 +14,8 @@ import java.io.FileInputStream;
 import java.io.InputStreamReader;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import report.DTN2Reporter;
 import fi.tkk.netlab.dtn.ecla.Bundle;
@@ -29,9 +30,11 @@ import fi.tkk.netlab.dtn.ecla.CLAParser;
 public class DTN2Manager {
 	private static Map<DTNHost, CLAParser>	CLAs = null;
 	/** Mapping from EID to DTNHost */
-	private static Collection<EIDHost>		EID_to_host = null;	
-	/** Set of all bundles in the simulator */
+	private static EIDIndex					EID_to_host = null;
+	/** Set of all bundles in the simulator (accessed by the CLA threads) */
 	private static Map<String, Bundle>		bundles = null;
+	/** Store for the copies of the bundles */
+	private static DTN2BundleStore			bundleStore = null;
 	/** Reporter object that passes messages from ONE to dtnd */
 	private static DTN2Reporter				reporter = null;
 	/** Events object that passes messages from dtnd to ONE */
@@ -67,8 +70,8 @@ public class DTN2Manager {
 		String				nodeEID, dtnd_host;
 			
 		DTN2Manager.CLAs = new HashMap<DTNHost, CLAParser>();
-		DTN2Manager.EID_to_host = new LinkedList<EIDHost>();
-		DTN2Manager.bundles = new HashMap<String, Bundle>();
+		DTN2Manager.EID_to_host = new EIDIndex();
+		DTN2Manager.bundles = new ConcurrentHashMap<String, Bundle>();
 		
 		// Check if DTN2Reporter and DTN2Events have been loaded.
 		// If not, we do nothing here.
@@ -96,9 +99,7 @@ public class DTN2Manager {
 		}
 		
 		// Create a directory to hold copies of the bundles
-		f = new File("bundles");
-		if (!f.exists())
-			f.mkdir();
+		DTN2Manager.bundleStore = new DTN2BundleStore(new File("bundles"));
 		
 		// Parse config file
 		try {
@@ -130,7 +131,7 @@ public class DTN2Manager {
 					DTN2Manager.events.getParserHandler(nodeID, dtnd_host,
 							console_port); 
 				p.setListener(ph);
-				Thread t = new Thread(p);
+				Thread t = new Thread(p, "CLAParser-" + nodeID);
 				t.start();
 				// Save reference to the CLA
 				DTN2Manager.CLAs.put(h,p);
@@ -195,11 +196,15 @@ public class DTN2Manager {
 	 * @return		the host corresponding to the EID
 	 */
 	public static Collection<EIDHost> getHosts(String EID) {
-		Collection<EIDHost> c = new LinkedList<EIDHost>();
-		for (EIDHost e : DTN2Manager.EID_to_host) {
-			if (EID.matches(e.EID)) c.add(e);
-		}
-		return c;
+		return DTN2Manager.EID_to_host.getHosts(EID);
+	}
+	
+	/**
+	 * Returns the store for the copies of the bundles received from dtnd.
+	 * @return the bundle store
+	 */
+	public static DTN2BundleStore getBundleStore() {
+		return DTN2Manager.bundleStore;
 	}
 	
 	/**
@@ -26,6 +26,13 @@ public class DTNHost implements Comparable<DTNHost> {
     private Coord destination;	// where is it going
 
     private MessageRouter router;
+    /** prototype of the router, if the router is not created yet */
+    private MessageRouter routerProto;
+    /** world that skips the updates of this host's router while it is idle
+     * (and must be told when the router wakes up) or null */
+    private World activityTracker;
+    /** world where the transfer done times are scheduled (or null) */
+    private World transferScheduler;
     private MovementModel movement;
     private Path path;
     private double speed;
@@ -73,6 +80,29 @@ public class DTNHost implements Comparable<DTNHost> {
             String groupId, List<NetworkInterface> interf,
             ModuleCommunicationBus comBus,
             MovementModel mmProto, MessageRouter mRouterProto) {
+        this(msgLs, movLs, groupId, interf, comBus, mmProto, mRouterProto,
+                false);
+    }
+
+    /**
+     * Creates a new DTNHost whose router can be created lazily.
+     *
+     * @param msgLs Message listeners
+     * @param movLs Movement listeners
+     * @param groupId GroupID of this host
+     * @param interf List of NetworkInterfaces for the class
+     * @param comBus Module communication bus object
+     * @param mmProto Prototype of the movement model of this host
+     * @param mRouterProto Prototype of the message router of this host
+     * @param lazyRouter If true, the router is replicated from the prototype
+     * only when it is needed for the first time (see {@link #getRouter()})
+     */
+    DTNHost(List<MessageListener> msgLs,
+            List<MovementListener> movLs,
+            String groupId, List<NetworkInterface> interf,
+            ModuleCommunicationBus comBus,
+            MovementModel mmProto, MessageRouter mRouterProto,
+            boolean lazyRouter) {
         this.comBus = comBus;
         this.location = new Coord(0, 0);
         this.address = getNextAddress();
@@ -93,7 +123,7 @@ public class DTNHost implements Comparable<DTNHost> {
         // create instances by replicating the prototypes
         this.movement = mmProto.replicate();
         this.movement.setComBus(comBus);
-        setRouter(mRouterProto.replicate());
+        initRouter(mRouterProto, lazyRouter);
 
         this.location = movement.getInitialLocation();
 
@@ -106,6 +136,13 @@ public class DTNHost implements Comparable<DTNHost> {
             }
         }
 
+        initContactData();
+    }
+
+    /**
+     * Initializes the contact bookkeeping fields of this host.
+     */
+    private void initContactData() {
         // tambahan
         // this.setNode = new HashSet<DTNHost>();
         this.intervals = new LinkedList<Duration>();
@@ -119,6 +156,21 @@ public class DTNHost implements Comparable<DTNHost> {
         // this.ema.add(0.0);
     }
 
+    /**
+     * Sets up the router of this host from a prototype.
+     *
+     * @param mRouterProto Prototype of the message router of this host
+     * @param lazy If true, only the prototype is stored and the router is
+     * replicated when it is first needed
+     */
+    private void initRouter(MessageRouter mRouterProto, boolean lazy) {
+        if (lazy) {
+            this.routerProto = mRouterProto;
+        } else {
+            setRouter(mRouterProto.replicate());
+        }
+    }
+
     /**
      * Returns a new network interface address and increments the address for
      * subsequent calls.
@@ -156,14 +208,29 @@ public class DTNHost implements Comparable<DTNHost> {
     }
 
     /**
-     * Returns the router of this host
+     * Returns the router of this host. If the router is created lazily,
+     * the router is replicated from its prototype on the first call.
      *
      * @return the router of this host
      */
     public MessageRouter getRouter() {
+        if (this.router == null) {
+            setRouter(this.routerProto.replicate());
+            this.routerProto = null;
+        }
         return this.router;
     }
 
+    /**
+     * Returns true if the router of this host has been created (i.e., it is
+     * not a lazy router that has not been needed yet).
+     *
+     * @return True if the router exists
+     */
+    public boolean hasRouter() {
+        return this.router != null;
+    }
+
     /**
      * Returns the network-layer address of this host.
      */
@@ -191,11 +258,74 @@ public class DTNHost implements Comparable<DTNHost> {
      * @param con The connection object whose state changed
      */
     public void connectionUp(Connection con) {
-        this.router.changedConnection(con);
+        wakeUp();
+        getRouter().changedConnection(con);
     }
 
     public void connectionDown(Connection con) {
-        this.router.changedConnection(con);
+        wakeUp();
+        getRouter().changedConnection(con);
+    }
+
+    /**
+     * Sets the world that tracks whether this host's router is idle
+     *
+     * @param world The world or null to stop tracking
+     */
+    void setActivityTracker(World world) {
+        this.activityTracker = world;
+    }
+
+    /**
+     * Sets the world where the times when the transfers that this host
+     * starts are done are scheduled
+     *
+     * @param world The world or null to stop scheduling
+     */
+    void setTransferScheduler(World world) {
+        this.transferScheduler = world;
+    }
+
+    /**
+     * Tells the transfer scheduler (if any) that this host started a
+     * message transfer that is done at the given time
+     *
+     * @param doneTime Time when the transfer is done
+     */
+    void transferStarted(double doneTime) {
+        if (this.transferScheduler != null) {
+            this.transferScheduler.transferStarted(this, doneTime);
+        }
+    }
+
+    /**
+     * Returns true if the router of this host should be updated, i.e., no
+     * activity tracker is set or the tracker considers the router awake
+     *
+     * @return true if the router should be updated
+     */
+    private boolean isRouterAwake() {
+        return this.activityTracker == null ||
+                this.activityTracker.isAwake(this);
+    }
+
+    /**
+     * Tells the activity tracker (if any) that the router was just updated
+     */
+    private void routerUpdated() {
+        if (this.activityTracker != null) {
+            this.activityTracker.routerUpdated(this, this.router);
+        }
+    }
+
+    /**
+     * Tells the activity tracker (if any) that the router of this host has
+     * something new to do
+     */
+    private void wakeUp() {
+        if (this.activityTracker != null) {
+            this.activityTracker.wakeUp(this);
+        }
     }
 
     /**
@@ -256,7 +386,7 @@ public class DTNHost implements Comparable<DTNHost> {
      * @return Messages in a collection
      */
     public Collection<Message> getMessageCollection() {
-        return this.router.getMessageCollection();
+        return getRouter().getMessageCollection();
     }
 
     /**
@@ -265,7 +395,7 @@ public class DTNHost implements Comparable<DTNHost> {
      * @return How many messages the node is carrying currently.
      */
     public int getNrofMessages() {
-        return this.router.getNrofMessages();
+        return getRouter().getNrofMessages();
     }
 
     /**
@@ -276,8 +406,8 @@ public class DTNHost implements Comparable<DTNHost> {
      * @return Buffer occupancy percentage
      */
     public double getBufferOccupancy() {
-        double bSize = router.getBufferSize();
-        double freeBuffer = router.getFreeBufferSize();
+        double bSize = getRouter().getBufferSize();
+        double freeBuffer = getRouter().getFreeBufferSize();
         return 100 * ((bSize - freeBuffer) / bSize);
     }
 
@@ -287,7 +417,7 @@ public class DTNHost implements Comparable<DTNHost> {
      * @return The routing info.
      */
     public RoutingInfo getRoutingInfo() {
-        return this.router.getRoutingInfo();
+        return getRouter().getRoutingInfo();
     }
 
     /**
@@ -368,16 +498,38 @@ public class DTNHost implements Comparable<DTNHost> {
      * @param simulateConnections Should network layer be updated too
      */
     public void update(boolean simulateConnections) {
+        update(simulateConnections, null);
+    }
+
+    /**
+     * Updates node's network layer and router and reports the time spent in
+     * both to an update timer.
+     *
+     * @param simulateConnections Should network layer be updated too
+     * @param timer The timer where the update times are added or null if
+     * the update should not be timed
+     */
+    public void update(boolean simulateConnections, UpdateTimer timer) {
         if (!isActive()) {
             return;
         }
 
+        long start = (timer != null ? System.nanoTime() : 0);
         if (simulateConnections) {
             for (NetworkInterface i : net) {
                 i.update();
             }
         }
-        this.router.update();
+        long interfacesDone = (timer != null ? System.nanoTime() : 0);
+        if (this.router != null && isRouterAwake()) {
+            // (lazily created routers have no state yet)
+            this.router.update();
+            routerUpdated();
+        }
+        if (timer != null) {
+            timer.addHostTimes(this, this.router, interfacesDone - start,
+                    System.nanoTime() - interfacesDone);
+        }
     }
 
     /**
@@ -458,11 +610,13 @@ public class DTNHost implements Comparable<DTNHost> {
      * @param to Host the message should be sent to
      */
     public void sendMessage(String id, DTNHost to) {
-        this.router.sendMessage(id, to);
+        wakeUp();
+        getRouter().sendMessage(id, to);
     }
 
     /**
-     * Start receiving a message from another host
+     * Start receiving a message from another host. The message is not
+     * modified; if the router accepts it, the router stores its own copy.
      *
      * @param m The message
      * @param from Who the message is from
@@ -470,13 +624,8 @@ public class DTNHost implements Comparable<DTNHost> {
      * {@link MessageRouter#receiveMessage(Message, DTNHost)}
      */
     public int receiveMessage(Message m, DTNHost from) {
-        int retVal = this.router.receiveMessage(m, from);
-
-        if (retVal == MessageRouter.RCV_OK) {
-            m.addNodeOnPath(this);	// add this node on the messages path
-        }
-
-        return retVal;
+        wakeUp();
+        return getRouter().receiveMessage(m, from);
     }
 
     /**
@@ -487,7 +636,7 @@ public class DTNHost implements Comparable<DTNHost> {
      * @return True if this host started a transfer, false if not
      */
     public boolean requestDeliverableMessages(Connection con) {
-        return this.router.requestDeliverableMessages(con);
+        return getRouter().requestDeliverableMessages(con);
     }
 
     /**
@@ -497,7 +646,8 @@ public class DTNHost implements Comparable<DTNHost> {
      * @param from From who the message was from
      */
     public void messageTransferred(String id, DTNHost from) {
-        this.router.messageTransferred(id, from);
+        wakeUp();
+        getRouter().messageTransferred(id, from);
     }
 
     /**
@@ -509,7 +659,8 @@ public class DTNHost implements Comparable<DTNHost> {
      * have been ready; or -1 if the number of bytes is not known
      */
     public void messageAborted(String id, DTNHost from, int bytesRemaining) {
-        this.router.messageAborted(id, from, bytesRemaining);
+        wakeUp();
+        getRouter().messageAborted(id, from, bytesRemaining);
     }
 
     /**
@@ -518,7 +669,8 @@ public class DTNHost implements Comparable<DTNHost> {
      * @param m The message to create
      */
     public void createNewMessage(Message m) {
-        this.router.createNewMessage(m);
+        wakeUp();
+        getRouter().createNewMessage(m);
     }
 
     /**
@@ -531,7 +683,7 @@ public class DTNHost implements Comparable<DTNHost> {
      * removing is reported to the message listeners.
      */
     public void deleteMessage(String id, boolean drop) {
-        this.router.deleteMessage(id, drop);
+        getRouter().deleteMessage(id, drop);
     }
 
     /**
@@ -98,7 +98,7 @@ public class DTNSim {
 	 * @param confFiles File name paths where to read additional settings 
 	 * @param firstIndex Index of the first config file name
 	 */
-	private static void initSettings(String[] confFiles, int firstIndex) {
+	static void initSettings(String[] confFiles, int firstIndex) {
 		int i = firstIndex;
 
         if (i >= confFiles.length) {
@@ -162,7 +162,7 @@ public class DTNSim {
 	/**
 	 * Resets all registered classes.
 	 */
-	private static void resetForNextRun() {
+	static void resetForNextRun() {
 		for (Class<?> c : resetList) {
 			try {
 				Method m = c.getMethod(RESET_METHOD_NAME);
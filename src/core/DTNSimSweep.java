@@ -0,0 +1,581 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import report.Report;
+import ui.DTNSimTextUI;
+import ui.DTNSimUI;
+
+/**
+ * Parameter sweep driver. Expands the run arrays of the settings (see
+ * {@link Settings#setRunIndex(int)}) to a list of runs, runs them with a
+ * pool of forked simulator JVMs (or one at a time in this JVM) and merges
+ * the results of the runs' MessageStatsReports to one summary table as soon
+ * as each run finishes.
+ * <P>
+ * Usage:<BR>
+ * <CODE>DTNSimSweep [-workers n] [-runs n|first:last] [-summary file]
+ * [-force] settingsFiles...</CODE><BR>
+ * By default, all combinations of the run array values are run (see
+ * {@link Settings#getRunCycleLength()}) with as many workers as there are
+ * processors. With zero workers the runs are run in this JVM.
+ * </P>
+ * <P>
+ * Every row of the summary table contains the run's number, scenario name
+ * and a hash of the run's settings. A run is skipped if the summary already
+ * has a row for the run's scenario with a matching settings hash and all
+ * the run's report files exist, so an interrupted sweep can be continued by
+ * running the same command again. Runs must write their reports to
+ * different files, i.e. the scenario name (or the report output settings)
+ * must contain the swept values.
+ * </P>
+ */
+public class DTNSimSweep {
+	/** Number of worker JVMs -option ({@value}) */
+	public static final String WORKERS_FLAG = "-workers";
+	/** Runs to run -option ({@value}). Same syntax as in batch mode. */
+	public static final String RUNS_FLAG = "-runs";
+	/** Summary table file -option ({@value}) */
+	public static final String SUMMARY_FLAG = "-summary";
+	/** Re-run also finished runs -option ({@value}) */
+	public static final String FORCE_FLAG = "-force";
+	/** Default summary table file ({@value}) */
+	public static final String DEF_SUMMARY_FILE = "sweep_summary.txt";
+	/** Suffix of the directory where the workers' output is written */
+	public static final String LOG_DIR_SUFFIX = "_logs";
+
+	/** Name of the report class whose results are merged ({@value}) */
+	public static final String STATS_REPORT = "MessageStatsReport";
+	/** Columns of the summary table before the statistics' columns */
+	private static final String[] RUN_COLUMNS =
+		{"run", "scenario", "settingsHash"};
+	/** Delimiter of the summary table's columns */
+	private static final String DELIMITER = "\t";
+
+	private String[] confFiles;
+	private File summaryFile;
+	private boolean force;
+	/** columns of the summary table (null if the table isn't created yet) */
+	private List<String> columns;
+	/** scenario name and settings hash keys of the finished runs */
+	private Set<String> finishedRuns;
+	/** names of the scenarios that have a row in the summary table */
+	private Set<String> summaryScenarios;
+	private int nrofFailed;
+
+	/**
+	 * Information of one run of the sweep
+	 */
+	private static class Run {
+		private int index;
+		private String scenario;
+		private String hash;
+		/** the report files the run writes */
+		private List<File> outputs;
+		/** the MessageStatsReport file of the run (or null) */
+		private File statsFile;
+	}
+
+	/**
+	 * Constructor.
+	 * @param confFiles Settings files of the sweep
+	 * @param summaryFile File where the summary table is written to
+	 * @param force If true, also runs that have finished are run again
+	 */
+	public DTNSimSweep(String[] confFiles, File summaryFile, boolean force) {
+		this.confFiles = confFiles;
+		this.summaryFile = summaryFile;
+		this.force = force;
+		this.finishedRuns = new HashSet<String>();
+		this.summaryScenarios = new HashSet<String>();
+		this.nrofFailed = 0;
+		readSummary();
+	}
+
+	/**
+	 * Starts the sweep with the given arguments (see the class description)
+	 * @param args Command line arguments
+	 */
+	public static void main(String[] args) {
+		int workers = Runtime.getRuntime().availableProcessors();
+		int[] runs = null;
+		File summary = new File(DEF_SUMMARY_FILE);
+		boolean force = false;
+		int i = 0;
+
+		java.util.Locale.setDefault(java.util.Locale.US);
+
+		try {
+			for (; i < args.length && args[i].startsWith("-"); i++) {
+				if (args[i].equals(WORKERS_FLAG)) {
+					workers = Integer.parseInt(args[++i]);
+				} else if (args[i].equals(RUNS_FLAG)) {
+					runs = parseRuns(args[++i]);
+				} else if (args[i].equals(SUMMARY_FLAG)) {
+					summary = new File(args[++i]);
+				} else if (args[i].equals(FORCE_FLAG)) {
+					force = true;
+				} else {
+					throw new IllegalArgumentException(args[i]);
+				}
+			}
+		} catch (RuntimeException e) { // invalid or missing values
+			System.err.println("Invalid arguments: " + Arrays.toString(args));
+			System.err.println("Usage: DTNSimSweep [" + WORKERS_FLAG +
+					" n] [" + RUNS_FLAG + " n|first:last] [" + SUMMARY_FLAG +
+					" file] [" + FORCE_FLAG + "] settingsFiles...");
+			System.exit(-1);
+		}
+
+		String[] confFiles = Arrays.copyOfRange(args, i, args.length);
+		DTNSim.initSettings(confFiles, 0);
+		if (runs == null) {
+			runs = new int[] {0, Settings.getRunCycleLength()};
+		}
+
+		DTNSimSweep sweep = new DTNSimSweep(confFiles, summary, force);
+		boolean ok = sweep.run(runs[0], runs[1], workers);
+		System.exit(ok ? 0 : -1);
+	}
+
+	/**
+	 * Parses the runs option
+	 * @param arg The option's value (number of runs or a range of run
+	 * numbers like in the batch mode)
+	 * @return The first run index and (last run index + 1)
+	 */
+	private static int[] parseRuns(String arg) {
+		int[] runs = new int[2];
+		int delim = arg.indexOf(DTNSim.RANGE_DELIMETER);
+		if (delim >= 0) {
+			runs[0] = Integer.parseInt(arg.substring(0, delim)) - 1;
+			runs[1] = Integer.parseInt(arg.substring(delim + 1));
+		} else {
+			runs[0] = 0;
+			runs[1] = Integer.parseInt(arg);
+		}
+		if (runs[0] < 0 || runs[0] >= runs[1]) {
+			throw new IllegalArgumentException("Invalid run range " + arg);
+		}
+		return runs;
+	}
+
+	/**
+	 * Runs the runs of the sweep that haven't finished yet
+	 * @param first Index of the first run
+	 * @param last Index of the last run + 1
+	 * @param workers Number of worker JVMs (0 = runs are run in this JVM)
+	 * @return true if all the runs finished successfully
+	 */
+	public boolean run(int first, int last, int workers) {
+		long startTime = System.currentTimeMillis();
+		List<Run> runs = new ArrayList<Run>();
+		int nrofSkipped = 0;
+
+		for (Run r : createRuns(first, last)) {
+			if (!this.force && isFinished(r)) {
+				nrofSkipped++;
+			} else {
+				runs.add(r);
+			}
+		}
+		print("Sweep of " + (last - first) + " runs: " + nrofSkipped +
+				" finished, " + runs.size() + " to run");
+
+		if (workers <= 0) {
+			for (Run r : runs) {
+				runInThisJVM(r);
+			}
+		} else {
+			runInWorkers(runs, workers);
+		}
+
+		double duration = (System.currentTimeMillis() - startTime)/1000.0;
+		print("---\nSweep done in " + String.format("%.2f", duration) +
+				"s, " + this.nrofFailed + " failed run(s)");
+		return this.nrofFailed == 0;
+	}
+
+	/**
+	 * Creates the run information of the runs. Settings' run index is reset
+	 * to zero afterwards.
+	 * @param first Index of the first run
+	 * @param last Index of the last run + 1
+	 * @return The runs
+	 * @throws SettingsError if two runs would write to the same report file
+	 */
+	private List<Run> createRuns(int first, int last) {
+		List<Run> runs = new ArrayList<Run>();
+		Map<File, Run> writers = new HashMap<File, Run>();
+		Settings s = new Settings();
+
+		for (int i = first; i < last; i++) {
+			Settings.setRunIndex(i);
+			Run r = new Run();
+			r.index = i;
+			r.hash = hash(Settings.getRunSettingsString());
+			r.scenario = s.valueFillString(s.getSetting(
+					SimScenario.SCENARIO_NS + "." + SimScenario.NAME_S));
+			r.outputs = new ArrayList<File>();
+
+			for (int j = 1, n = s.getInt(DTNSimUI.NROF_REPORT_S); j <= n; j++){
+				String reportClass = s.getSetting(DTNSimUI.REPORT_S + j);
+				File output = getReportFile(reportClass, r.scenario);
+				if (output == null) {
+					continue; // intervalled report
+				}
+				Run other = writers.put(output, r);
+				if (other != null) {
+					throw new SettingsError("Runs " + (other.index + 1) +
+							" and " + (i + 1) + " write the same report " +
+							"file " + output + "; use run specific " +
+							"scenario names or report outputs");
+				}
+				r.outputs.add(output);
+				if (reportClass.equals(STATS_REPORT)) {
+					r.statsFile = output;
+				}
+			}
+			runs.add(r);
+		}
+
+		Settings.setRunIndex(0);
+		return runs;
+	}
+
+	/**
+	 * Returns the output file of a report the same way as {@link Report}
+	 * @param reportClass Name of the report class
+	 * @param scenario Name of the scenario
+	 * @return The output file or null if the report writes its output to
+	 * many files (intervalled reports)
+	 */
+	private File getReportFile(String reportClass, String scenario) {
+		Settings s = new Settings(reportClass);
+		s.setSecondaryNamespace(Report.REPORT_NS);
+
+		if (s.contains(Report.OUTPUT_SETTING)) {
+			return new File(s.valueFillString(
+					s.getSetting(Report.OUTPUT_SETTING)));
+		}
+		if (s.contains(Report.INTERVAL_SETTING)) {
+			return null;
+		}
+
+		s.setNameSpace(null);
+		String outDir = s.getSetting(Report.REPORTDIR_SETTING);
+		if (!outDir.endsWith("/")) {
+			outDir += "/";
+		}
+		return new File(outDir + scenario + "_" + reportClass +
+				Report.OUT_SUFFIX);
+	}
+
+	/**
+	 * Returns a hex string of the SHA-1 hash of a string
+	 * @param str The string to hash
+	 * @return The hash
+	 */
+	private static String hash(String str) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			StringBuilder sb = new StringBuilder();
+			for (byte b : md.digest(str.getBytes("UTF-8"))) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new SimError(e);
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+	}
+
+	/**
+	 * Returns true if a run has finished, i.e. the summary has a row for
+	 * the run's scenario with the same settings hash and all the run's
+	 * report files exist
+	 * @param r The run
+	 * @return true if the run has finished
+	 */
+	private boolean isFinished(Run r) {
+		if (!this.finishedRuns.contains(r.scenario + DELIMITER + r.hash)) {
+			return false;
+		}
+		for (File f : r.outputs) {
+			if (!f.exists()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Runs a run in this JVM
+	 * @param r The run
+	 */
+	private void runInThisJVM(Run r) {
+		print("Run " + (r.index + 1) + " (" + r.scenario + ")");
+		Settings.setRunIndex(r.index);
+		DTNSim.resetForNextRun();
+		new DTNSimTextUI().start();
+		runFinished(r);
+	}
+
+	/**
+	 * Runs runs in a pool of forked JVMs. The output of every run is
+	 * written to a log file.
+	 * @param runs The runs
+	 * @param workers Number of JVMs to run at the same time
+	 */
+	private void runInWorkers(List<Run> runs, int workers) {
+		final File logDir = new File(this.summaryFile.getPath() +
+				LOG_DIR_SUFFIX);
+		if (!logDir.exists() && !logDir.mkdirs()) {
+			throw new SimError("Couldn't create log directory " + logDir);
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+
+		for (final Run r : runs) {
+			pool.execute(new Runnable() {
+				public void run() {
+					File log = new File(logDir, "run" + (r.index + 1) +
+							".log");
+					int exitValue = runInWorker(r, log);
+					if (exitValue == 0) {
+						runFinished(r);
+					} else {
+						runFailed(r, "exit value " + exitValue +
+								", see " + log);
+					}
+				}
+			});
+		}
+
+		pool.shutdown();
+		try {
+			while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+				// wait until all runs are done
+			}
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			throw new SimError("Sweep was interrupted", e);
+		}
+	}
+
+	/**
+	 * Runs a run in a new simulator JVM in batch mode
+	 * @param r The run
+	 * @param log File where the output of the JVM is written to
+	 * @return The exit value of the JVM (or -1 if it couldn't be started)
+	 */
+	private int runInWorker(Run r, File log) {
+		List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" +
+				File.separator + "java");
+		cmd.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add(DTNSim.class.getName());
+		cmd.add(DTNSim.BATCH_MODE_FLAG);
+		cmd.add((r.index + 1) + DTNSim.RANGE_DELIMETER + (r.index + 1));
+		cmd.addAll(Arrays.asList(this.confFiles));
+
+		print("Run " + (r.index + 1) + " (" + r.scenario + ") started");
+		ProcessBuilder pb = new ProcessBuilder(cmd);
+		pb.redirectErrorStream(true);
+		pb.redirectOutput(log);
+		try {
+			return pb.start().waitFor();
+		} catch (IOException e) {
+			print("Couldn't start run " + (r.index + 1) + ": " + e);
+			return -1;
+		} catch (InterruptedException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Adds the results of a finished run to the summary
+	 * @param r The run
+	 */
+	private synchronized void runFinished(Run r) {
+		Map<String, String> stats = new LinkedHashMap<String, String>();
+		if (r.statsFile != null && r.statsFile.exists()) {
+			stats = readStats(r.statsFile);
+		}
+
+		try {
+			if (this.summaryScenarios.contains(r.scenario)) {
+				removeSummaryRows(r.scenario); // replaced by the new results
+			}
+			PrintWriter out = new PrintWriter(new FileWriter(
+					this.summaryFile, true));
+			if (this.columns == null) { // first run -> write the header
+				this.columns = new ArrayList<String>(
+						Arrays.asList(RUN_COLUMNS));
+				this.columns.addAll(stats.keySet());
+				out.println(join(this.columns));
+			}
+
+			List<String> row = new ArrayList<String>();
+			row.add(String.valueOf(r.index + 1));
+			row.add(r.scenario);
+			row.add(r.hash);
+			for (String column :
+				this.columns.subList(RUN_COLUMNS.length, this.columns.size())){
+				String value = stats.get(column);
+				row.add(value != null ? value : Report.NAN);
+			}
+			out.println(join(row));
+			out.close();
+		} catch (IOException e) {
+			throw new SimError("Couldn't write summary " + this.summaryFile,
+					e);
+		}
+
+		this.finishedRuns.add(r.scenario + DELIMITER + r.hash);
+		this.summaryScenarios.add(r.scenario);
+		print("Run " + (r.index + 1) + " (" + r.scenario + ") done");
+	}
+
+	/**
+	 * Reports a failed run
+	 * @param r The run
+	 * @param reason Reason of the failure
+	 */
+	private synchronized void runFailed(Run r, String reason) {
+		this.nrofFailed++;
+		print("Run " + (r.index + 1) + " (" + r.scenario + ") failed: " +
+				reason);
+	}
+
+	/**
+	 * Reads the columns and the finished runs from the summary table (if
+	 * it exists)
+	 */
+	private void readSummary() {
+		if (!this.summaryFile.exists()) {
+			return;
+		}
+
+		try {
+			BufferedReader in = new BufferedReader(
+					new FileReader(this.summaryFile));
+			String line = in.readLine();
+			if (line != null) {
+				this.columns = new ArrayList<String>(
+						Arrays.asList(line.split(DELIMITER)));
+			}
+			while ((line = in.readLine()) != null) {
+				String[] values = line.split(DELIMITER);
+				if (values.length >= RUN_COLUMNS.length) {
+					this.finishedRuns.add(values[1] + DELIMITER + values[2]);
+					this.summaryScenarios.add(values[1]);
+				}
+			}
+			in.close();
+		} catch (IOException e) {
+			throw new SimError("Couldn't read summary " + this.summaryFile,
+					e);
+		}
+	}
+
+	/**
+	 * Removes the rows of a scenario from the summary table
+	 * @param scenario Name of the scenario
+	 * @throws IOException if the summary couldn't be read or written
+	 */
+	private void removeSummaryRows(String scenario) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(
+				new FileReader(this.summaryFile));
+		String line;
+		while ((line = in.readLine()) != null) {
+			String[] values = line.split(DELIMITER);
+			if (lines.isEmpty() || values.length < RUN_COLUMNS.length ||
+					!values[1].equals(scenario)) {
+				lines.add(line); // header or a row of some other scenario
+			}
+		}
+		in.close();
+
+		PrintWriter out = new PrintWriter(new FileWriter(this.summaryFile));
+		for (String l : lines) {
+			out.println(l);
+		}
+		out.close();
+	}
+
+	/**
+	 * Reads the statistics (lines of format <CODE>name: value</CODE>) from
+	 * a MessageStatsReport file
+	 * @param statsFile The file
+	 * @return The statistics' values by name in the order they were read
+	 */
+	public static Map<String, String> readStats(File statsFile) {
+		Map<String, String> stats = new LinkedHashMap<String, String>();
+		try {
+			BufferedReader in = new BufferedReader(new FileReader(statsFile));
+			String line;
+			while ((line = in.readLine()) != null) {
+				int delim = line.indexOf(": ");
+				if (delim > 0 && line.lastIndexOf(' ', delim) < 0) {
+					stats.put(line.substring(0, delim),
+							line.substring(delim + 2).trim());
+				}
+			}
+			in.close();
+		} catch (IOException e) {
+			throw new SimError("Couldn't read report " + statsFile, e);
+		}
+		return stats;
+	}
+
+	/**
+	 * Joins values to a row of the summary table
+	 * @param values The values
+	 * @return The row
+	 */
+	private static String join(List<String> values) {
+		StringBuilder sb = new StringBuilder();
+		for (String v : values) {
+			if (sb.length() > 0) {
+				sb.append(DELIMITER);
+			}
+			sb.append(v);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Prints text to stdout
+	 * @param txt Text to print
+	 */
+	private static void print(String txt) {
+		System.out.println(txt);
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import core.DTN2Manager.EIDHost;
+
+/**
+ * Index of EID to host mappings. The EIDs of the mappings are regular
+ * expressions that are compiled once and indexed by their literal prefix
+ * (the part before the first special character), so a lookup only tests
+ * the patterns whose prefix is a prefix of the looked up EID.
+ */
+public class EIDIndex {
+	/** characters that end the literal prefix of a pattern */
+	private static final String SPECIAL_CHARS = "\\[](){}.*+?^$|";
+	/** quantifiers that make the preceding character optional */
+	private static final String OPTIONAL_QUANTIFIERS = "*?{";
+
+	/** the mappings by their literal prefix */
+	private Map<String, List<Entry>> byPrefix;
+	/** the distinct lengths of the prefixes in ascending order */
+	private int[] prefixLengths;
+	private int size;
+
+	/**
+	 * Constructor. Creates an empty index.
+	 */
+	public EIDIndex() {
+		this.byPrefix = new HashMap<String, List<Entry>>();
+		this.prefixLengths = new int[0];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds a mapping to the index
+	 * @param e The mapping; its EID is a regular expression
+	 * @throws SettingsError if the EID is not a valid regular expression
+	 */
+	public void add(EIDHost e) {
+		Pattern pattern;
+		try {
+			pattern = Pattern.compile(e.EID);
+		} catch (PatternSyntaxException ex) {
+			throw new SettingsError("Invalid EID pattern '" + e.EID + "'", ex);
+		}
+
+		String prefix = getLiteralPrefix(e.EID);
+		List<Entry> entries = this.byPrefix.get(prefix);
+		if (entries == null) {
+			entries = new ArrayList<Entry>(1);
+			this.byPrefix.put(prefix, entries);
+
+			TreeSet<Integer> lengths = new TreeSet<Integer>();
+			for (String p : this.byPrefix.keySet()) {
+				lengths.add(p.length());
+			}
+			this.prefixLengths = new int[lengths.size()];
+			int i = 0;
+			for (int len : lengths) {
+				this.prefixLengths[i++] = len;
+			}
+		}
+		entries.add(new Entry(this.size++, pattern, e));
+	}
+
+	/**
+	 * Returns the mappings whose EID pattern matches the given EID
+	 * @param eid The EID to look up
+	 * @return The matching mappings in the order they were added
+	 */
+	public Collection<EIDHost> getHosts(String eid) {
+		List<Entry> matches = new ArrayList<Entry>();
+		for (int len : this.prefixLengths) {
+			if (len > eid.length()) {
+				break;
+			}
+			List<Entry> entries = this.byPrefix.get(eid.substring(0, len));
+			if (entries == null) {
+				continue;
+			}
+			for (Entry e : entries) {
+				if (e.pattern.matcher(eid).matches()) {
+					matches.add(e);
+				}
+			}
+		}
+
+		if (matches.size() > 1) {
+			Collections.sort(matches, new Comparator<Entry>() {
+				public int compare(Entry e1, Entry e2) {
+					return e1.order - e2.order;
+				}
+			});
+		}
+
+		Collection<EIDHost> c = new LinkedList<EIDHost>();
+		for (Entry e : matches) {
+			c.add(e.host);
+		}
+		return c;
+	}
+
+	/**
+	 * Returns the number of mappings in the index
+	 * @return the number of mappings
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the literal prefix of a regular expression, i.e., a prefix
+	 * that all the strings matching the expression start with
+	 * @param regex The regular expression
+	 * @return The literal prefix (possibly empty)
+	 */
+	public static String getLiteralPrefix(String regex) {
+		if (regex.indexOf('|') >= 0) {
+			return ""; // alternatives may start with anything
+		}
+		int end = 0;
+		while (end < regex.length() &&
+				SPECIAL_CHARS.indexOf(regex.charAt(end)) < 0) {
+			end++;
+		}
+		if (end > 0 && end < regex.length() &&
+				OPTIONAL_QUANTIFIERS.indexOf(regex.charAt(end)) >= 0) {
+			end--; // the last character may not be there
+		}
+		return regex.substring(0, end);
+	}
+
+	/**
+	 * A compiled mapping with its insertion order
+	 */
+	private static class Entry {
+		private int order;
+		private Pattern pattern;
+		private EIDHost host;
+
+		private Entry(int order, Pattern pattern, EIDHost host) {
+			this.order = order;
+			this.pattern = pattern;
+			this.host = host;
+		}
+	}
+}
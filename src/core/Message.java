@@ -28,6 +28,10 @@ public class Message implements Comparable<Message> {
 	private static int nextUniqueId;
 	/** Unique ID of this message */
 	private int uniqueId;
+	/** Next message ID number to be given */
+	private static int nextIdNumber;
+	/** number of the message ID (same for the replicates) */
+	private int idNumber;
 	/** The time this message was received */
 	private double timeReceived;
 	/** The time when this message was created */
@@ -63,12 +67,26 @@ public class Message implements Comparable<Message> {
 	 * @param size Size of the message (in bytes)
 	 */
 	public Message(DTNHost from, DTNHost to, String id, int size) {
+		this(from, to, id, size, nextIdNumber++);
+	}
+	
+	/**
+	 * Creates a new Message with the given ID number
+	 * @param from Who the message is (originally) from
+	 * @param to Who the message is (originally) to
+	 * @param id Message identifier
+	 * @param size Size of the message (in bytes)
+	 * @param idNumber Number of the message ID (see {@link #getIdNumber()})
+	 */
+	private Message(DTNHost from, DTNHost to, String id, int size,
+			int idNumber) {
 		this.from = from;
 		this.to = to;
 		this.id = id;
 		this.size = size;
 		this.path = new ArrayList<DTNHost>();
 		this.uniqueId = nextUniqueId;
+		this.idNumber = idNumber;
 		
 		this.timeCreated = SimClock.getTime();
 		this.timeReceived = this.timeCreated;
@@ -115,6 +133,19 @@ public class Message implements Comparable<Message> {
 		return this.uniqueId;
 	}
 	
+	/**
+	 * Returns a number that identifies the message ID, i.e., a number that
+	 * is the same for all messages (and replicates) with the same ID but
+	 * different for other IDs. Numbers are assigned in the order the
+	 * messages are created, starting from zero, and the replicates get the
+	 * number of the original message. Two messages that are created
+	 * separately with the same ID get different numbers.
+	 * @return The number of the message ID
+	 */
+	public int getIdNumber() {
+		return this.idNumber;
+	}
+	
 	/**
 	 * Returns the size of the message (in bytes)
 	 * @return the size of the message
@@ -164,6 +195,21 @@ public class Message implements Comparable<Message> {
 	}
 	
 	
+	/**
+	 * Returns the simulation time after which the TTL of this message
+	 * (see {@link #getTtl()}) is zero or less, i.e., the message has
+	 * expired.
+	 * @return The expiry time or Double.MAX_VALUE if the TTL is infinite
+	 */
+	public double getExpiryTime() {
+		if (this.initTtl == INFINITE_TTL) {
+			return Double.MAX_VALUE;
+		}
+		else { /* TTL is rounded towards zero to full minutes */
+			return this.timeCreated + (this.initTtl - 1) * 60.0;
+		}
+	}
+	
 	/**
 	 * Sets the initial TTL (time-to-live) for this message. The initial
 	 * TTL is the TTL when the original message was created. The current TTL
@@ -258,6 +304,9 @@ public class Message implements Comparable<Message> {
 	protected void copyFrom(Message m) {
 		this.path = new ArrayList<DTNHost>(m.path);
 		this.timeCreated = m.timeCreated;
+		if (this.id.equals(m.id)) {
+			this.idNumber = m.idNumber;
+		}
 		this.responseSize = m.responseSize;
 		this.requestMsg  = m.requestMsg;
 		this.initTtl = m.initTtl;
@@ -326,7 +375,7 @@ public class Message implements Comparable<Message> {
 	 * @return A replicate of the message
 	 */
 	public Message replicate() {
-		Message m = new Message(from, to, id, size);
+		Message m = new Message(from, to, id, size, idNumber);
 		m.copyFrom(this);
 		return m;
 	}
@@ -344,6 +393,7 @@ public class Message implements Comparable<Message> {
 	 */
 	public static void reset() {
 		nextUniqueId = 0;
+		nextIdNumber = 0;
 	}
 
 	/**
@@ -45,6 +45,9 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	protected double transmitRange;
 	protected int transmitSpeed;
 	protected ConnectivityOptimizer optimizer = null;
+	/** is the interface located in the connectivity grid (false with trace
+	 * driven connectivity, see {@link SimScenario#TRACE_CONNECTIVITY_S}) */
+	private boolean hasGeometry = true;
 	/** scanning interval, or 0.0 if n/a */
 	private double scanInterval;
 	private double lastScanTime;
@@ -102,6 +105,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		this.interfacetype = ni.interfacetype;
 		this.transmitRange = ni.transmitRange;
 		this.transmitSpeed = ni.transmitSpeed;
+		this.hasGeometry = ni.hasGeometry;
 		
 		/* draw lastScanTime of [0 -- scanInterval] */
 		this.lastScanTime = rng.nextDouble() * scanInterval;
@@ -124,6 +128,9 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		comBus.subscribe(RANGE_ID, this);
 		comBus.subscribe(SPEED_ID, this);
 		
+		if (!this.hasGeometry) {
+			return; // connections come only from external events
+		}
 		optimizer = ConnectivityGrid.ConnectivityGridFactory(
 				this.interfacetype.hashCode(), transmitRange);
 		optimizer.addInterface(this);		
@@ -136,6 +143,16 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		return interfacetype;
 	}
 	
+	/**
+	 * Takes the interface out of the connectivity grid; used with trace
+	 * driven connectivity where connections come only from external events.
+	 * Must be called before the interface is attached to a host (copies
+	 * of the interface inherit the setting).
+	 */
+	public void disableGeometry() {
+		this.hasGeometry = false;
+	}
+	
 	/**
 	 * For setting the connectionListeners
 	 * @param cListeners List of connection listeners
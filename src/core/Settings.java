@@ -17,6 +17,7 @@ import java.util.Properties;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.Stack;
+import java.util.TreeSet;
 
 /**
  * Interface for simulation settings stored in setting file(s). Settings class
@@ -59,6 +60,13 @@ public class Settings {
      */
     public static final String FILL_DELIMITER = "%%";
 
+    /** start, end and value delimiter of run arrays */
+    private static final String RUN_ARRAY_START = "[";
+    private static final String RUN_ARRAY_END = "]";
+    private static final String RUN_ARRAY_DELIM = ";";
+    /** minimum length of a run array; minimum run is one value. e.g. "[v]" */
+    private static final int RUN_ARRAY_MIN_LENGTH = 3;
+
     /**
      * Stream where all read settings are written to
      */
@@ -373,15 +381,7 @@ public class Settings {
      * @return The runIndex % arrayLength'th value of the run array
      */
     private static String parseRunSetting(String value) {
-        final String RUN_ARRAY_START = "[";
-        final String RUN_ARRAY_END = "]";
-        final String RUN_ARRAY_DELIM = ";";
-        final int MIN_LENGTH = 3; // minimum run is one value. e.g. "[v]"
-
-        if (!value.startsWith(RUN_ARRAY_START)
-                || !value.endsWith(RUN_ARRAY_END)
-                || runIndex < 0
-                || value.length() < MIN_LENGTH) {
+        if (!isRunArray(value) || runIndex < 0) {
             return value; // standard format setting -> return
         }
 
@@ -393,6 +393,77 @@ public class Settings {
         return value;
     }
 
+    /**
+     * Returns true if the (trimmed) value of a setting is a run array
+     *
+     * @param value The value to check
+     * @return true if the value is a run array
+     */
+    private static boolean isRunArray(String value) {
+        return value.startsWith(RUN_ARRAY_START)
+                && value.endsWith(RUN_ARRAY_END)
+                && value.length() >= RUN_ARRAY_MIN_LENGTH;
+    }
+
+    /**
+     * Returns the number of runs after which the values of all run arrays
+     * start to repeat, i.e. the least common multiple of the lengths of all
+     * run arrays in the settings (1 if there are no run arrays).
+     *
+     * @return The number of runs with different combinations of run array
+     * values
+     */
+    public static int getRunCycleLength() {
+        if (props == null) {
+            init(null);
+        }
+
+        long cycle = 1;
+        for (String name : props.stringPropertyNames()) {
+            String value = props.getProperty(name).trim();
+            if (!isRunArray(value)) {
+                continue;
+            }
+            long length = value.substring(1, value.length() - 1).
+                    split(RUN_ARRAY_DELIM).length;
+            long a = cycle;
+            long b = length;
+            while (b != 0) { // greatest common divisor of cycle and length
+                long t = a % b;
+                a = b;
+                b = t;
+            }
+            cycle = cycle / a * length;
+            if (cycle > Integer.MAX_VALUE) {
+                throw new SettingsError("Too many run array combinations");
+            }
+        }
+
+        return (int) cycle;
+    }
+
+    /**
+     * Returns all settings, including the default settings, with the values
+     * for the current run index. The settings are sorted by name and given
+     * one per line in the format <CODE>name = value</CODE>. Two runs use 
+     * equal settings if their run settings strings are equal.
+     *
+     * @return The settings of the current run
+     */
+    public static String getRunSettingsString() {
+        if (props == null) {
+            init(null);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (String name : new TreeSet<String>(props.stringPropertyNames())) {
+            sb.append(name).append(" = ");
+            sb.append(parseRunSetting(props.getProperty(name).trim()));
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
     /**
      * Returns the setting name appended to namespace name(s) on a String (for
      * error messages)
@@ -39,6 +39,19 @@ public class SimScenario implements Serializable {
 	public static final String UP_INT_S = "updateInterval";
 	/** simulate connections -setting id ({@value})*/
 	public static final String SIM_CON_S = "simulateConnections";
+	/** lazy router creation -setting id ({@value}). Boolean. If true, the
+	 * routers of the hosts are created only when they are needed for the
+	 * first time (e.g., on the first contact or message creation). Groups
+	 * that have applications always create their routers right away.
+	 * Default is false. */
+	public static final String LAZY_ROUTERS_S = "lazyRouters";
+	/** trace connectivity -setting id ({@value}). Boolean. If true, the
+	 * connections between hosts come only from external events (e.g., 
+	 * connection traces or contact plans): the hosts are not moved, the 
+	 * network interfaces have no location in the connectivity grid and
+	 * the connections are not simulated (regardless of
+	 * {@link #SIM_CON_S}). Default is false. */
+	public static final String TRACE_CONNECTIVITY_S = "traceConnectivity";
 
 	/** namespace for interface type settings ({@value}) */
 	public static final String INTTYPE_NS = "Interface";
@@ -106,6 +119,10 @@ public class SimScenario implements Serializable {
 	private EventQueueHandler eqHandler;
 	/** Should connections between hosts be simulated */
 	private boolean simulateConnections;
+	/** Should routers be created only when they are first needed */
+	private boolean lazyRouters;
+	/** Do the connections come only from external events */
+	private boolean traceConnectivity;
 	/** Map used for host movement (if any) */
 	private SimMap simMap;
 
@@ -140,6 +157,13 @@ public class SimScenario implements Serializable {
 		this.endTime = s.getDouble(END_TIME_S);
 		this.updateInterval = s.getDouble(UP_INT_S);
 		this.simulateConnections = s.getBoolean(SIM_CON_S);
+		this.lazyRouters = s.contains(LAZY_ROUTERS_S) ?
+				s.getBoolean(LAZY_ROUTERS_S) : false;
+		this.traceConnectivity = s.contains(TRACE_CONNECTIVITY_S) ?
+				s.getBoolean(TRACE_CONNECTIVITY_S) : false;
+		if (this.traceConnectivity) {
+			this.simulateConnections = false;
+		}
 
 		ensurePositiveValue(nrofGroups, NROF_GROUPS_S);
 		ensurePositiveValue(endTime, END_TIME_S);
@@ -166,6 +190,9 @@ public class SimScenario implements Serializable {
 		this.world = new World(hosts, worldSizeX, worldSizeY, updateInterval, 
 				updateListeners, simulateConnections, 
 				eqHandler.getEventQueues());
+		if (this.traceConnectivity) {
+			this.world.disableMovement();
+		}
 	}
 	
 	/**
@@ -207,6 +234,15 @@ public class SimScenario implements Serializable {
 		return this.simulateConnections;
 	}
 
+	/**
+	 * Returns true if the connections come only from external events and
+	 * the hosts are not moved
+	 * @return true if connectivity is trace driven
+	 */
+	public boolean isTraceConnectivity() {
+		return this.traceConnectivity;
+	}
+
 	/**
 	 * Returns the width of the world
 	 * @return the width of the world
@@ -328,83 +364,97 @@ public class SimScenario implements Serializable {
 		this.hosts = new ArrayList<DTNHost>();
 
 		for (int i=1; i<=nrofGroups; i++) {
-			List<NetworkInterface> mmNetInterfaces = 
-				new ArrayList<NetworkInterface>();
-			Settings s = new Settings(GROUP_NS+i);
-			s.setSecondaryNamespace(GROUP_NS);
-			String gid = s.getSetting(GROUP_ID_S);
-			int nrofHosts = s.getInt(NROF_HOSTS_S);
-			int nrofInterfaces = s.getInt(NROF_INTERF_S);
-			int appCount;
-
-			// creates prototypes of MessageRouter and MovementModel
-			MovementModel mmProto = 
-				(MovementModel)s.createIntializedObject(MM_PACKAGE + 
-						s.getSetting(MOVEMENT_MODEL_S));
-			MessageRouter mRouterProto = 
-				(MessageRouter)s.createIntializedObject(ROUTING_PACKAGE + 
-						s.getSetting(ROUTER_S));
-			
-			// checks that these values are positive (throws Error if not)
-			ensurePositiveValue(nrofHosts, NROF_HOSTS_S);
-			ensurePositiveValue(nrofInterfaces, NROF_INTERF_S);
-
-			// setup interfaces
-			for (int j=1;j<=nrofInterfaces;j++) {
-				String Intname = s.getSetting(INTERFACENAME_S+j);
-				Settings t = new Settings(Intname); 
-				NetworkInterface mmInterface = 
-					(NetworkInterface)t.createIntializedObject(INTTYPE_PACKAGE + 
-							t.getSetting(INTTYPE_S));
-				mmInterface.setClisteners(connectionListeners);
-				mmNetInterfaces.add(mmInterface);
-			}
+			createGroupHosts(i);
+		}
+	}
 
-			// setup applications
-			if (s.contains(APPCOUNT_S)) {
-				appCount = s.getInt(APPCOUNT_S);
-			} else {
-				appCount = 0;
-			}
-			for (int j=1; j<=appCount; j++) {
-				String appname = null;
-				Application protoApp = null;
-				try {
-					// Get name of the application for this group
-					appname = s.getSetting(GAPPNAME_S+j);
-					// Get settings for the given application
-					Settings t = new Settings(appname);
-					// Load an instance of the application
-					protoApp = (Application)t.createIntializedObject(
-							APP_PACKAGE + t.getSetting(APPTYPE_S));
-					// Set application listeners
-					protoApp.setAppListeners(this.appListeners);
-					// Set the proto application in proto router
-					//mRouterProto.setApplication(protoApp);
-					mRouterProto.addApplication(protoApp);
-				} catch (SettingsError se) {
-					// Failed to create an application for this group
-					System.err.println("Failed to setup an application: " + se);
-					System.err.println("Caught at " + se.getStackTrace()[0]);
-					System.exit(-1);
-				}
+	/**
+	 * Creates hosts of one host group
+	 * @param i Index of the group
+	 */
+	private void createGroupHosts(int i) {
+		List<NetworkInterface> mmNetInterfaces = 
+			new ArrayList<NetworkInterface>();
+		Settings s = new Settings(GROUP_NS+i);
+		s.setSecondaryNamespace(GROUP_NS);
+		String gid = s.getSetting(GROUP_ID_S);
+		int nrofHosts = s.getInt(NROF_HOSTS_S);
+		int nrofInterfaces = s.getInt(NROF_INTERF_S);
+		int appCount;
+
+		// creates prototypes of MessageRouter and MovementModel
+		MovementModel mmProto = 
+			(MovementModel)s.createIntializedObject(MM_PACKAGE + 
+					s.getSetting(MOVEMENT_MODEL_S));
+		MessageRouter mRouterProto = 
+			(MessageRouter)s.createIntializedObject(ROUTING_PACKAGE + 
+					s.getSetting(ROUTER_S));
+		
+		// checks that these values are positive (throws Error if not)
+		ensurePositiveValue(nrofHosts, NROF_HOSTS_S);
+		ensurePositiveValue(nrofInterfaces, NROF_INTERF_S);
+
+		// setup interfaces
+		for (int j=1;j<=nrofInterfaces;j++) {
+			String Intname = s.getSetting(INTERFACENAME_S+j);
+			Settings t = new Settings(Intname); 
+			NetworkInterface mmInterface = 
+				(NetworkInterface)t.createIntializedObject(INTTYPE_PACKAGE + 
+						t.getSetting(INTTYPE_S));
+			mmInterface.setClisteners(connectionListeners);
+			if (this.traceConnectivity) {
+				mmInterface.disableGeometry();
 			}
+			mmNetInterfaces.add(mmInterface);
+		}
 
-			if (mmProto instanceof MapBasedMovement) {
-				this.simMap = ((MapBasedMovement)mmProto).getMap();
+		// setup applications
+		if (s.contains(APPCOUNT_S)) {
+			appCount = s.getInt(APPCOUNT_S);
+		} else {
+			appCount = 0;
+		}
+		for (int j=1; j<=appCount; j++) {
+			String appname = null;
+			Application protoApp = null;
+			try {
+				// Get name of the application for this group
+				appname = s.getSetting(GAPPNAME_S+j);
+				// Get settings for the given application
+				Settings t = new Settings(appname);
+				// Load an instance of the application
+				protoApp = (Application)t.createIntializedObject(
+						APP_PACKAGE + t.getSetting(APPTYPE_S));
+				// Set application listeners
+				protoApp.setAppListeners(this.appListeners);
+				// Set the proto application in proto router
+				//mRouterProto.setApplication(protoApp);
+				mRouterProto.addApplication(protoApp);
+			} catch (SettingsError se) {
+				// Failed to create an application for this group
+				System.err.println("Failed to setup an application: " + se);
+				System.err.println("Caught at " + se.getStackTrace()[0]);
+				System.exit(-1);
 			}
+		}
 
-			// creates hosts of ith group
-			for (int j=0; j<nrofHosts; j++) {
-				ModuleCommunicationBus comBus = new ModuleCommunicationBus();
+		if (mmProto instanceof MapBasedMovement) {
+			this.simMap = ((MapBasedMovement)mmProto).getMap();
+		}
 
-				// prototypes are given to new DTNHost which replicates
-				// new instances of movement model and message router
-				DTNHost host = new DTNHost(this.messageListeners, 
-						this.movementListeners,	gid, mmNetInterfaces, comBus, 
-						mmProto, mRouterProto);
-				hosts.add(host);
-			}
+		// applications are updated by the router -> can't be lazy
+		boolean lazyRouter = this.lazyRouters && appCount == 0;
+
+		// creates hosts of ith group
+		for (int j=0; j<nrofHosts; j++) {
+			ModuleCommunicationBus comBus = new ModuleCommunicationBus();
+
+			// prototypes are given to new DTNHost which replicates
+			// new instances of movement model and message router
+			DTNHost host = new DTNHost(this.messageListeners, 
+					this.movementListeners,	gid, mmNetInterfaces, comBus, 
+					mmProto, mRouterProto, lazyRouter);
+			hosts.add(host);
 		}
 	}
 
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import input.ExternalEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import routing.MessageRouter;
+
+/**
+ * Accumulates the (wall clock) time the {@link World} spends in the different
+ * phases of its updates. Timing is off by default and is enabled by
+ * requesting the timer from the world (see {@link World#enableUpdateTimer()}).
+ * Besides the phase totals, the timer attributes event processing time to
+ * event classes and the interface and router update times to hosts and
+ * router classes. Host updates that follow external events are kept apart
+ * from the updates done at the end of every update interval.
+ * All times are in nanoseconds.
+ */
+public class UpdateTimer {
+	/** Phase of processing external events */
+	public static final int EVENTS = 0;
+	/** Phase of moving the hosts */
+	public static final int MOVE = 1;
+	/** Phase of updating the network interfaces (connectivity) */
+	public static final int CONNECT = 2;
+	/** Phase of updating the routers */
+	public static final int ROUTE = 3;
+	/** Number of different phases */
+	public static final int NROF_PHASES = 4;
+	/** Names of the phases, indexed by the phase constants */
+	public static final String[] PHASE_NAMES =
+		{"events", "move", "connect", "route"};
+	/** Name used for hosts that don't have a router (yet) */
+	public static final String NO_ROUTER = "none";
+
+	/** Host update type of updates done right after an external event */
+	public static final int AFTER_EVENT = 0;
+	/** Host update type of updates done at the end of an update interval */
+	public static final int INTERVAL = 1;
+	/** Names of the host update types, indexed by the type constants */
+	public static final String[] UPDATE_TYPE_NAMES = {"afterEvent", "interval"};
+
+	private long[] phaseTimes;
+	/** cumulative router update times per router class' name */
+	private Map<String, long[]> routerClassTimes;
+	/** cumulative processing times per external event class' name */
+	private Map<String, long[]> eventClassTimes;
+	/** update times of hosts, indexed by host address */
+	private List<HostTimes> hostTimes;
+	/** type of the host updates that are currently timed */
+	private int updateType;
+
+	/**
+	 * Constructor. Creates a timer with all times set to zero.
+	 */
+	public UpdateTimer() {
+		this.phaseTimes = new long[NROF_PHASES];
+		this.routerClassTimes = new HashMap<String, long[]>();
+		this.eventClassTimes = new HashMap<String, long[]>();
+		this.hostTimes = new ArrayList<HostTimes>();
+		this.updateType = INTERVAL;
+	}
+
+	/**
+	 * Adds time to a phase
+	 * @param phase The phase (e.g. {@link #EVENTS})
+	 * @param nanos The time to add
+	 */
+	public void addPhaseTime(int phase, long nanos) {
+		this.phaseTimes[phase] += nanos;
+	}
+
+	/**
+	 * Adds the time that processing an external event took
+	 * @param ee The event that was processed
+	 * @param nanos The processing time
+	 */
+	public void addEventTime(ExternalEvent ee, long nanos) {
+		this.phaseTimes[EVENTS] += nanos;
+		addTo(this.eventClassTimes, ee.getClass().getSimpleName(), nanos);
+	}
+
+	/**
+	 * Sets the type of the host updates whose times are added next
+	 * @param type The type ({@link #AFTER_EVENT} or {@link #INTERVAL})
+	 */
+	public void setUpdateType(int type) {
+		this.updateType = type;
+	}
+
+	/**
+	 * Adds the time that a host spent in updating its interfaces and router
+	 * @param host The host that was updated
+	 * @param router The router of the host or null if the host has no router
+	 * @param interfaceNanos Time spent in updating the interfaces
+	 * @param routerNanos Time spent in updating the router
+	 */
+	public void addHostTimes(DTNHost host, MessageRouter router,
+			long interfaceNanos, long routerNanos) {
+		this.phaseTimes[CONNECT] += interfaceNanos;
+		this.phaseTimes[ROUTE] += routerNanos;
+
+		String name = (router == null ? NO_ROUTER :
+			router.getClass().getSimpleName());
+		addTo(this.routerClassTimes, name, routerNanos);
+
+		HostTimes ht = getHostTimes(host);
+		ht.routerName = name;
+		ht.connect[updateType] += interfaceNanos;
+		ht.route[updateType] += routerNanos;
+	}
+
+	/**
+	 * Adds time to a named counter of a map
+	 * @param times The map of counters
+	 * @param name Name of the counter
+	 * @param nanos The time to add
+	 */
+	private void addTo(Map<String, long[]> times, String name, long nanos) {
+		long[] time = times.get(name);
+		if (time == null) {
+			time = new long[1];
+			times.put(name, time);
+		}
+		time[0] += nanos;
+	}
+
+	/**
+	 * Returns the time counters of a host (and creates them if needed)
+	 * @param host The host
+	 * @return The time counters of the host
+	 */
+	private HostTimes getHostTimes(DTNHost host) {
+		int address = host.getAddress();
+		while (this.hostTimes.size() <= address) {
+			this.hostTimes.add(null);
+		}
+
+		HostTimes ht = this.hostTimes.get(address);
+		if (ht == null) {
+			ht = new HostTimes(host);
+			this.hostTimes.set(address, ht);
+		}
+		return ht;
+	}
+
+	/**
+	 * Returns the cumulative time spent in a phase
+	 * @param phase The phase (e.g. {@link #EVENTS})
+	 * @return The time spent in the phase
+	 */
+	public long getPhaseTime(int phase) {
+		return this.phaseTimes[phase];
+	}
+
+	/**
+	 * Returns the cumulative router update times per router class
+	 * @return A new map with router class names as keys and times as values
+	 */
+	public Map<String, Long> getRouterClassTimes() {
+		return copyOf(this.routerClassTimes);
+	}
+
+	/**
+	 * Returns the cumulative event processing times per event class
+	 * @return A new map with event class names as keys and times as values
+	 */
+	public Map<String, Long> getEventClassTimes() {
+		return copyOf(this.eventClassTimes);
+	}
+
+	/**
+	 * Returns the update times of all hosts that have been updated
+	 * @return The update times, in the order of host addresses
+	 */
+	public List<HostTimes> getHostTimes() {
+		List<HostTimes> times = new ArrayList<HostTimes>();
+		for (HostTimes ht : this.hostTimes) {
+			if (ht != null) {
+				times.add(ht);
+			}
+		}
+		return times;
+	}
+
+	/**
+	 * Returns a copy of counter map with boxed values
+	 * @param times The map to copy
+	 * @return The copy
+	 */
+	private Map<String, Long> copyOf(Map<String, long[]> times) {
+		Map<String, Long> copy = new HashMap<String, Long>();
+		for (Map.Entry<String, long[]> e : times.entrySet()) {
+			copy.put(e.getKey(), e.getValue()[0]);
+		}
+		return copy;
+	}
+
+	/**
+	 * Cumulative interface and router update times of a single host.
+	 * The times are indexed by the host update type (e.g.
+	 * {@link UpdateTimer#AFTER_EVENT}).
+	 */
+	public static class HostTimes {
+		private DTNHost host;
+		private String routerName;
+		private long[] connect = new long[UPDATE_TYPE_NAMES.length];
+		private long[] route = new long[UPDATE_TYPE_NAMES.length];
+
+		private HostTimes(DTNHost host) {
+			this.host = host;
+		}
+
+		/**
+		 * Returns the host whose times these are
+		 * @return the host
+		 */
+		public DTNHost getHost() {
+			return this.host;
+		}
+
+		/**
+		 * Returns the class name of the host's router at the latest update
+		 * @return the router class name (or {@link UpdateTimer#NO_ROUTER})
+		 */
+		public String getRouterName() {
+			return this.routerName;
+		}
+
+		/**
+		 * Returns the time spent in updating the host's interfaces
+		 * @param type The host update type
+		 * @return the interface update time
+		 */
+		public long getConnectTime(int type) {
+			return this.connect[type];
+		}
+
+		/**
+		 * Returns the time spent in updating the host's router
+		 * @param type The host update type
+		 * @return the router update time
+		 */
+		public long getRouteTime(int type) {
+			return this.route[type];
+		}
+	}
+}
@@ -4,9 +4,12 @@
  */
 package core;
 
+import input.DTN2Events;
 import input.EventQueue;
+import input.EventQueueHeap;
 import input.ExternalEvent;
 import input.ScheduledUpdatesQueue;
+import input.TransferDoneQueue;
 import interfaces.ConnectivityGrid;
 
 import java.util.ArrayList;
@@ -14,6 +17,9 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
+import routing.MessageRouter;
+import routing.util.HostBitSet;
+
 /**
  * World contains all the nodes and is responsible for updating their
  * location and connections.
@@ -37,6 +43,45 @@ public class World {
 	 * Default is @link {@link #DEF_RANDOMIZE_UPDATES}.
 	 */
 	public static final String RANDOMIZE_UPDATES_S = "randomizeUpdateOrder";
+	/**
+	 * Event batching epsilon -setting id ({@value}). Double. If defined
+	 * (and not negative), all external events that are due within this many
+	 * seconds from the first event of a batch are processed before the hosts
+	 * are updated, instead of updating all hosts after every single event.
+	 * Zero batches only the events with exactly the same time stamp.
+	 * By default, batching is disabled.
+	 */
+	public static final String EVENT_BATCH_EPSILON_S = "eventBatchEpsilon";
+	/**
+	 * Update only the hosts touched by an event batch -setting id
+	 * ({@value}). Boolean. If true (and batching is enabled), after a batch
+	 * of events only the hosts that the events accessed and the hosts that
+	 * have a transfer going on are updated, unless the batch contained a
+	 * scheduled update. Other hosts are updated at the end of the update
+	 * interval as usual (so, e.g., removing their expired messages may be
+	 * delayed until then). Default is false.
+	 */
+	public static final String EVENT_BATCH_TOUCHED_ONLY_S =
+		"eventBatchTouchedOnly";
+	/**
+	 * Skip idle routers -setting id ({@value}). Boolean. If true, the
+	 * updates of routers that report being idle (see
+	 * {@link MessageRouter#getIdleUntil()}) are skipped until the router is
+	 * woken up by a connection change, a new, received or aborted message,
+	 * or the time given by the router passes. Network interfaces are
+	 * updated as usual. Default is false.
+	 */
+	public static final String SKIP_IDLE_ROUTERS_S = "skipIdleRouters";
+	/**
+	 * Exact transfer times -setting id ({@value}). Boolean. If true, the
+	 * time when a constant bit-rate transfer is done is scheduled as an
+	 * event and the sending host is updated at exactly that time, so
+	 * transfers are finalized (and new ones started) without waiting for
+	 * the next update interval. Only the senders and the other hosts with
+	 * transfers going on are updated at these events (also when
+	 * {@link #EVENT_BATCH_TOUCHED_ONLY_S} is off). Default is false.
+	 */
+	public static final String EXACT_TRANSFER_TIMES_S = "exactTransferTimes";
 	/** default value for cell size multiplier ({@value}) */
 	public static final int DEF_CON_CELL_SIZE_MULT = 5;
 	/** should the update order of nodes be randomized -setting's default value
@@ -50,6 +95,11 @@ public class World {
 	private SimClock simClock;
 	private double nextQueueEventTime;
 	private EventQueue nextEventQueue;
+	/** the event queues whose event times change only when events are
+	 * taken from them, ordered by their next event's time */
+	private EventQueueHeap queueHeap;
+	/** the event queues that can get new events by themselves */
+	private List<EventQueue> liveQueues;
 	/** list of nodes; nodes are indexed by their network address */
 	private List<DTNHost> hosts;
 	private boolean simulateConnections;
@@ -61,9 +111,29 @@ public class World {
 	private List<UpdateListener> updateListeners;
 	/** Queue of scheduled update requests */
 	private ScheduledUpdatesQueue scheduledUpdates;
+	/** Queue of transfer done times or null if they are not scheduled */
+	private TransferDoneQueue transferDoneQueue;
 
 	/** single ConnectivityCell's size is biggest radio range times this */
 	private int conCellSizeMult;
+	/** are the hosts moved in the updates */
+	private boolean moveHosts = true;
+	/** Timer for the update phases or null if timing is off */
+	private UpdateTimer updateTimer;
+	/** max time span of an event batch; negative value disables batching */
+	private double eventBatchEpsilon;
+	/** should only the touched hosts be updated after an event batch */
+	private boolean batchTouchedOnly;
+	/** is an event batch tracking the hosts it touches in progress */
+	private boolean trackingTouches;
+	/** flags of hosts touched by the current event batch (indexed by
+	 * address) */
+	private boolean[] touched;
+	/** hosts touched by the current event batch */
+	private List<DTNHost> touchedHosts;
+	/** times until which the routers of hosts are idle (indexed by host
+	 * address) or null if router activity is not tracked */
+	private double[] idleUntil;
 
 	/**
 	 * Constructor.
@@ -72,6 +142,7 @@ public class World {
 			double updateInterval, List<UpdateListener> updateListeners,
 			boolean simulateConnections, List<EventQueue> eventQueues) {
 		this.hosts = hosts;
+		HostBitSet.setHosts(hosts);
 		this.sizeX = sizeX;
 		this.sizeY = sizeY;
 		this.updateInterval = updateInterval;
@@ -79,6 +150,17 @@ public class World {
 		this.simulateConnections = simulateConnections;
 		this.eventQueues = eventQueues;
 		
+		List<EventQueue> indexedQueues = new ArrayList<EventQueue>();
+		this.liveQueues = new ArrayList<EventQueue>();
+		for (EventQueue eq : eventQueues) {
+			if (eq instanceof DTN2Events) { // gets events from other threads
+				this.liveQueues.add(eq);
+			} else {
+				indexedQueues.add(eq);
+			}
+		}
+		this.queueHeap = new EventQueueHeap(indexedQueues);
+		
 		this.simClock = SimClock.getInstance();
 		this.scheduledUpdates = new ScheduledUpdatesQueue();
 		this.isCancelled = false;		
@@ -112,6 +194,35 @@ public class World {
 			conCellSizeMult = DEF_CON_CELL_SIZE_MULT;
 		}
 
+		this.eventBatchEpsilon = -1;
+		if (s.contains(EVENT_BATCH_EPSILON_S)) {
+			this.eventBatchEpsilon = s.getDouble(EVENT_BATCH_EPSILON_S);
+		}
+		this.batchTouchedOnly = this.eventBatchEpsilon >= 0 &&
+			s.contains(EVENT_BATCH_TOUCHED_ONLY_S) &&
+			s.getBoolean(EVENT_BATCH_TOUCHED_ONLY_S);
+		boolean exactTransferTimes = s.contains(EXACT_TRANSFER_TIMES_S) &&
+			s.getBoolean(EXACT_TRANSFER_TIMES_S);
+		if (this.batchTouchedOnly || exactTransferTimes) {
+			this.touched = new boolean[this.hosts.size()];
+			this.touchedHosts = new ArrayList<DTNHost>();
+		}
+
+		if (s.contains(SKIP_IDLE_ROUTERS_S) &&
+				s.getBoolean(SKIP_IDLE_ROUTERS_S)) {
+			this.idleUntil = new double[this.hosts.size()];
+			for (DTNHost host : this.hosts) {
+				host.setActivityTracker(this);
+			}
+		}
+
+		if (exactTransferTimes) {
+			this.transferDoneQueue = new TransferDoneQueue();
+			for (DTNHost host : this.hosts) {
+				host.setTransferScheduler(this);
+			}
+		}
+
 		// check that values are within limits
 		if (conCellSizeMult < 2) {
 			throw new SettingsError("Too small value (" + conCellSizeMult +
@@ -129,6 +240,10 @@ public class World {
 		if (time <= 0) {
 			return;
 		}
+		if (!this.moveHosts) {
+			simClock.setTime(0);
+			return;
+		}
 
 		while(SimClock.getTime() < -updateInterval) {
 			moveHosts(updateInterval);
@@ -146,11 +261,46 @@ public class World {
 	 * event queue that has the next event.
 	 */
 	public void setNextEventQueue() {
+		this.queueHeap.rebuild();
+		selectNextEventQueue();
+	}
+
+	/**
+	 * Takes the next event from the event queue that has it. Only the queue
+	 * that the event was taken from is re-keyed in the event queue heap; the
+	 * caller must select the next event queue after processing the event
+	 * (which can change the times of the other queues).
+	 * @return The event
+	 */
+	private ExternalEvent takeNextEvent() {
+		ExternalEvent ee = this.nextEventQueue.nextEvent();
+		if (this.nextEventQueue == this.queueHeap.getFirst()) {
+			this.queueHeap.updateFirst();
+		}
+		return ee;
+	}
+
+	/**
+	 * Sets the event queue that has the next event from the scheduled
+	 * updates, the transfer done times, the first queue of the event queue
+	 * heap and the live queues. On equal times the scheduled updates queue
+	 * is selected first.
+	 */
+	private void selectNextEventQueue() {
 		EventQueue nextQueue = scheduledUpdates;
 		double earliest = nextQueue.nextEventsTime();
 
-		/* find the queue that has the next event */
-		for (EventQueue eq : eventQueues) {
+		if (this.transferDoneQueue != null &&
+				this.transferDoneQueue.nextEventsTime() < earliest) {
+			nextQueue = this.transferDoneQueue;
+			earliest = nextQueue.nextEventsTime();
+		}
+
+		if (this.queueHeap.getFirstTime() < earliest) {
+			nextQueue = this.queueHeap.getFirst();
+			earliest = this.queueHeap.getFirstTime();
+		}
+		for (EventQueue eq : this.liveQueues) {
 			if (eq.nextEventsTime() < earliest){
 				nextQueue = eq;	
 				earliest = eq.nextEventsTime();
@@ -169,20 +319,43 @@ public class World {
 	public void update () {
 		double runUntil = SimClock.getTime() + this.updateInterval;
 
-		setNextEventQueue();
+		selectNextEventQueue();
 
 		/* process all events that are due until next interval update */
 		while (this.nextQueueEventTime <= runUntil) {
+			if (this.eventBatchEpsilon >= 0) {
+				processEventBatch(runUntil);
+				continue;
+			}
+			if (this.nextEventQueue == this.transferDoneQueue) {
+				processTransfersDone();
+				continue;
+			}
 			simClock.setTime(this.nextQueueEventTime);
-			ExternalEvent ee = this.nextEventQueue.nextEvent();
-			ee.processEvent(this);
+			ExternalEvent ee = takeNextEvent();
+			processEvent(ee);
+			if (this.updateTimer != null) {
+				updateTimer.setUpdateType(UpdateTimer.AFTER_EVENT);
+			}
 			updateHosts(); // update all hosts after every event
-			setNextEventQueue();
+			selectNextEventQueue();
 		}
 
-		moveHosts(this.updateInterval);
+		// with trace driven connectivity (!moveHosts) locations never change
+		if (this.moveHosts && this.updateTimer == null) {
+			moveHosts(this.updateInterval);
+		}
+		else if (this.moveHosts) {
+			long start = System.nanoTime();
+			moveHosts(this.updateInterval);
+			updateTimer.addPhaseTime(UpdateTimer.MOVE, 
+					System.nanoTime() - start);
+		}
 		simClock.setTime(runUntil);
 
+		if (this.updateTimer != null) {
+			updateTimer.setUpdateType(UpdateTimer.INTERVAL);
+		}
 		updateHosts();
 
 		/* inform all update listeners */
@@ -191,18 +364,147 @@ public class World {
 		}
 	}
 
+	/**
+	 * Processes all events that are due within the batching epsilon from
+	 * the next event (but not after the given time) and then updates the
+	 * hosts once.
+	 * @param runUntil Time after which no events are processed
+	 */
+	private void processEventBatch(double runUntil) {
+		double batchEnd = Math.min(this.nextQueueEventTime +
+				this.eventBatchEpsilon, runUntil);
+		boolean updateAll = false;
+
+		this.trackingTouches = this.touched != null;
+
+		while (this.nextQueueEventTime <= batchEnd) {
+			if (this.nextEventQueue == this.scheduledUpdates) {
+				updateAll = true; // somebody wants all hosts updated
+			}
+			else if (!this.batchTouchedOnly &&
+					this.nextEventQueue != this.transferDoneQueue) {
+				updateAll = true; // only transfer done events are exempt
+			}
+			simClock.setTime(this.nextQueueEventTime);
+			processEvent(takeNextEvent());
+			selectNextEventQueue();
+		}
+
+		if (this.updateTimer != null) {
+			updateTimer.setUpdateType(UpdateTimer.AFTER_EVENT);
+		}
+		updateHosts(!updateAll);
+		clearTouches();
+	}
+
+	/**
+	 * Processes the transfer done events that are due at the time of the
+	 * next event and then updates only the hosts that are active in them
+	 * (see {@link #isActiveInBatch(DTNHost)})
+	 */
+	private void processTransfersDone() {
+		double time = this.nextQueueEventTime;
+
+		this.trackingTouches = true;
+		simClock.setTime(time);
+		while (this.nextEventQueue == this.transferDoneQueue &&
+				this.nextQueueEventTime == time) {
+			processEvent(takeNextEvent());
+			selectNextEventQueue();
+		}
+
+		if (this.updateTimer != null) {
+			updateTimer.setUpdateType(UpdateTimer.AFTER_EVENT);
+		}
+		updateHosts(true);
+		clearTouches();
+	}
+
+	/**
+	 * Stops tracking the hosts touched by events and clears the touches
+	 */
+	private void clearTouches() {
+		if (this.trackingTouches) {
+			this.trackingTouches = false;
+			for (DTNHost host : this.touchedHosts) {
+				this.touched[host.getAddress()] = false;
+			}
+			this.touchedHosts.clear();
+		}
+	}
+
+	/**
+	 * Returns true if the host was touched by the current event batch or
+	 * if it has a transfer going on
+	 * @param host The host to check
+	 * @return True if the host should be updated after the event batch
+	 */
+	private boolean isActiveInBatch(DTNHost host) {
+		if (this.touched[host.getAddress()]) {
+			return true;
+		}
+		for (Connection con : host.getConnections()) {
+			if (con.getMessage() != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Processes an external event (and times the processing if update
+	 * timing is on)
+	 * @param ee The event to process
+	 */
+	private void processEvent(ExternalEvent ee) {
+		if (this.updateTimer == null) {
+			ee.processEvent(this);
+			return;
+		}
+
+		long start = System.nanoTime();
+		ee.processEvent(this);
+		updateTimer.addEventTime(ee, System.nanoTime() - start);
+	}
+
+	/**
+	 * Updates a single host (and times the update if update timing is on)
+	 * @param host The host to update
+	 */
+	private void updateHost(DTNHost host) {
+		if (this.updateTimer == null) {
+			host.update(simulateConnections);
+		}
+		else {
+			host.update(simulateConnections, this.updateTimer);
+		}
+	}
+
 	/**
 	 * Updates all hosts (calls update for every one of them). If update
 	 * order randomizing is on (updateOrder array is defined), the calls
 	 * are made in random order.
 	 */
 	private void updateHosts() {
+		updateHosts(false);
+	}
+
+	/**
+	 * Updates all hosts or only the hosts that are active in the current
+	 * event batch. If update order randomizing is on, the calls are made in
+	 * random order.
+	 * @param batchOnly If true, only the hosts touched by the current event
+	 * batch and the hosts with transfers going on are updated
+	 */
+	private void updateHosts(boolean batchOnly) {
 		if (this.updateOrder == null) { // randomizing is off
 			for (int i=0, n = hosts.size();i < n; i++) {
 				if (this.isCancelled) {
 					break;
 				}
-				hosts.get(i).update(simulateConnections);
+				if (!batchOnly || isActiveInBatch(hosts.get(i))) {
+					updateHost(hosts.get(i));
+				}
 			}
 		}
 		else { // update order randomizing is on
@@ -214,7 +516,9 @@ public class World {
 				if (this.isCancelled) {
 					break;
 				}
-				this.updateOrder.get(i).update(simulateConnections);
+				if (!batchOnly || isActiveInBatch(this.updateOrder.get(i))) {
+					updateHost(this.updateOrder.get(i));
+				}
 			}			
 		}
 	}
@@ -230,6 +534,73 @@ public class World {
 		}		
 	}
 
+	/**
+	 * Disables the movement of the hosts. The hosts stay at their initial
+	 * locations for the whole simulation (used when the connections come
+	 * only from external events).
+	 */
+	public void disableMovement() {
+		this.moveHosts = false;
+	}
+
+	/**
+	 * Returns true if the host's router is not idle at the current time
+	 * @param host The host whose router to check
+	 * @return true if the router should be updated
+	 */
+	boolean isAwake(DTNHost host) {
+		return SimClock.getTime() >= this.idleUntil[host.getAddress()];
+	}
+
+	/**
+	 * Records how long the router of a host is idle after its update
+	 * @param host The host whose router was updated
+	 * @param router The router of the host
+	 */
+	void routerUpdated(DTNHost host, MessageRouter router) {
+		this.idleUntil[host.getAddress()] = router.getIdleUntil();
+	}
+
+	/**
+	 * Wakes up the router of a host so that it is updated in the next host
+	 * update
+	 * @param host The host whose router to wake up
+	 */
+	void wakeUp(DTNHost host) {
+		this.idleUntil[host.getAddress()] = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Schedules the sending host to be updated when a message transfer
+	 * it started is done
+	 * @param from The host sending the message
+	 * @param doneTime The time when the transfer is done
+	 */
+	void transferStarted(DTNHost from, double doneTime) {
+		this.transferDoneQueue.addTransfer(doneTime, from.getAddress());
+	}
+
+	/**
+	 * Turns on timing of the update phases (if it wasn't on already) and 
+	 * returns the timer. Timing slows down the simulation slightly, so it 
+	 * should be enabled only when the results are needed.
+	 * @return The timer that collects the update phase times
+	 */
+	public UpdateTimer enableUpdateTimer() {
+		if (this.updateTimer == null) {
+			this.updateTimer = new UpdateTimer();
+		}
+		return this.updateTimer;
+	}
+
+	/**
+	 * Returns the update phase timer or null if timing is not enabled
+	 * @return The update phase timer or null
+	 */
+	public UpdateTimer getUpdateTimer() {
+		return this.updateTimer;
+	}
+
 	/**
 	 * Asynchronously cancels the currently running simulation
 	 */
@@ -276,6 +647,11 @@ public class World {
 		assert node.getAddress() == address : "Node indexing failed. " + 
 			"Node " + node + " in index " + address;
 
+		if (this.trackingTouches && !this.touched[address]) {
+			this.touched[address] = true; // event batch touched the node
+			this.touchedHosts.add(node);
+		}
+
 		return node; 
 	}
 
@@ -6,6 +6,8 @@ package gui;
 
 import gui.playfield.PlayField;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelListener;
@@ -16,24 +18,44 @@ import java.lang.reflect.InvocationTargetException;
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import movement.Path;
 import ui.DTNSimUI;
 import core.Coord;
 import core.DTN2Manager;
 import core.DTNHost;
+import core.Settings;
+import core.SettingsError;
 import core.SimClock;
 
 /**
- * Graphical User Interface for simulator
- *
+ * Graphical User Interface for simulator.
+ * <P>The simulation thread never waits for the GUI: it publishes snapshots
+ * of the hosts to the play field and the event dispatch thread draws the
+ * latest one at most {@link #FRAME_RATE_S} times per second.</P>
  */
 public class DTNSimGUI extends DTNSimUI {
+	/** GUI settings namespace ({@value}) */
+	public static final String GUI_NS = "GUI";
+	/** Frame rate -setting id ({@value}). Integer. Max number of frames
+	 * drawn (and snapshots published) per wall clock second. Default is
+	 * {@link #DEF_FRAME_RATE}. */
+	public static final String FRAME_RATE_S = "frameRate";
+	/** Default frame rate ({@value}) */
+	public static final int DEF_FRAME_RATE = 25;
+
 	private MainWindow main;
 	private PlayField field;
 	private GUIControls guiControls;
 	private EventLogPanel eventLogPanel;
 	private InfoPanel infoPanel;
+	/** min wall clock time between published snapshots (milliseconds) */
+	private long frameInterval;
+	/** wall clock time when the latest snapshot was published */
+	private long lastFrameTime;
+	/** draws new frames in the event dispatch thread */
+	private Timer frameTimer;
 	
 	private void startGUI() {
 		try {
@@ -59,6 +81,18 @@ public class DTNSimGUI extends DTNSimUI {
 	 * Initializes the GUI
 	 */
 	private void initGUI() {	
+		Settings s = new Settings(GUI_NS);
+		int frameRate = DEF_FRAME_RATE;
+		if (s.contains(FRAME_RATE_S)) {
+			frameRate = s.getInt(FRAME_RATE_S);
+			if (frameRate <= 0) {
+				throw new SettingsError("Invalid " + GUI_NS + "." +
+						FRAME_RATE_S + " value " + frameRate);
+			}
+		}
+		this.frameInterval = 1000 / frameRate;
+		this.lastFrameTime = 0;
+		
 		this.field = new PlayField(world);
 		
 		this.field.addMouseListener(new PlayfieldMouseHandler());
@@ -93,6 +127,16 @@ public class DTNSimGUI extends DTNSimUI {
 		});
 
 		this.main.setVisible(true);
+		
+		this.frameTimer = new Timer((int)this.frameInterval, 
+				new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				if (field.hasNewSnapshot()) {
+					updateView();
+				}
+			}
+		});
+		this.frameTimer.start();
 	}
 	
 	@Override
@@ -108,7 +152,8 @@ public class DTNSimGUI extends DTNSimUI {
 		
 		while (simTime < endTime && !simCancelled){
 			if (guiControls.isPaused()) {
-				wait(10); // release CPU resources when paused
+				// release CPU resources when paused
+				guiControls.waitForPlay(10);
 			}
 			else {
 				try {
@@ -184,46 +229,54 @@ public class DTNSimGUI extends DTNSimUI {
 	}
 	
     /**
-     * Updates the GUI
+     * Updates the GUI by publishing a new snapshot of the hosts for drawing.
+     * Called by the simulation thread; doesn't wait for the drawing.
+     * @param forcedUpdate If true, the snapshot is published regardless of 
+     * the update interval and frame rate
      */
     public void update(boolean forcedUpdate) {
     	double guiUpdateInterval = guiControls.getUpdateInterval(); 		
+    	double simTime = SimClock.getTime();
+    	long now = System.currentTimeMillis();
     	
-    	// update only if long enough simTime has passed (and not forced)
-		if (!forcedUpdate && guiUpdateInterval > (SimClock.getTime()
-				- this.lastUpdate)) {
-			return;
-		}
+    	if (!forcedUpdate) {
+    		if (guiControls.isPausedNow()) {
+    			if (simTime == this.lastUpdate) {
+    				return; // paused and the latest frame is up to date
+    			}
+    		}
+    		// update only if long enough simTime has passed
+    		else if (guiUpdateInterval > (simTime - this.lastUpdate) ||
+    				(guiUpdateInterval >= 0 && 
+    				now - this.lastFrameTime < this.frameInterval)) {
+    			return;
+    		}
+    	}
     	
-		try {
-			// run update in EDT, TODO: optimize threading
-			SwingUtilities.invokeAndWait(new Runnable() {
-			    public void run() {
-					updateView();
-			    }
-			});
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		} catch (InvocationTargetException e) {
-			e.printStackTrace();
-		}
+    	this.lastUpdate = simTime;
+    	this.lastFrameTime = now;
+    	this.field.takeSnapshot(world.getHosts());
 		
     	// wait a while if we don't want to run simulation at full speed
     	if (guiUpdateInterval < 0) {
     		wait(100*(int)(-guiUpdateInterval));
     	}
-
+    	
+    	if (forcedUpdate) { // draw right away (e.g., the final state)
+    		SwingUtilities.invokeLater(new Runnable() {
+    			public void run() {
+    				updateView();
+    			}
+    		});
+    	}
     }
     
     /**
-     * Updates playfield and sim time field
-     *
+     * Updates playfield and sim time field to show the latest snapshot.
+     * Must be called in the event dispatch thread.
      */
     private void updateView() {
-    	double simTime = SimClock.getTime();
-    	this.lastUpdate = simTime;
-    	guiControls.setSimTime(simTime); //update time to control panel
-
+    	guiControls.setSimTime(field.getSnapshotTime()); 
     	this.field.updateField();
     }
     
@@ -15,6 +15,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
@@ -27,6 +28,7 @@ import javax.swing.JPanel;
 import javax.swing.JSpinner;
 import javax.swing.JTextField;
 import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
 
 import core.Coord;
 import core.SimClock;
@@ -63,9 +65,11 @@ public class GUIControls extends JPanel implements ActionListener, ChangeListene
 	private JLabel sepsField;	// simulated events per second field
 	private JButton playButton;
 	private JButton playUntilButton;
-	private boolean paused;
+	private volatile boolean paused;
 	private JButton stepButton;
-	private boolean step;
+	private AtomicBoolean step;
+	/** monitor the simulation thread waits on when paused */
+	private final Object playLock = new Object();
 	private JButton ffwButton;
 	private boolean isFfw;
 	private int oldSpeedIndex; // what speed was selected before FFW
@@ -90,7 +94,7 @@ public class GUIControls extends JPanel implements ActionListener, ChangeListene
 	/** index of FFW speed setting */
 	public static final int FFW_SPEED_INDEX = 7;
 	
-	private double guiUpdateInterval;
+	private volatile double guiUpdateInterval;
 	private javax.swing.JSpinner zoomSelector;
 
 	private PlayField pf;
@@ -98,7 +102,7 @@ public class GUIControls extends JPanel implements ActionListener, ChangeListene
 	
 	private long lastUpdate;
 	private double lastSimTime;
-	private double playUntilTime;
+	private volatile double playUntilTime;
 	
 	private boolean useHourDisplay = false;
 	
@@ -109,6 +113,7 @@ public class GUIControls extends JPanel implements ActionListener, ChangeListene
 		this.lastUpdate = System.currentTimeMillis();
 		this.lastSimTime = 0;
 		this.paused = true;
+		this.step = new AtomicBoolean(false);
 		this.isFfw = false;
 		this.playUntilTime = Double.MAX_VALUE;
 		initPanel();
@@ -210,25 +215,74 @@ public class GUIControls extends JPanel implements ActionListener, ChangeListene
 	}
 	
 	/**
-	 * Sets simulation to pause or play.
+	 * Sets simulation to pause or play. Can be called from any thread; the
+	 * simulation thread publishes the paused state for drawing.
 	 * @param paused If true, simulation is put to pause
 	 */
 	public void setPaused(boolean paused) {
 		if (!paused) {
-			this.playButton.setIcon(createImageIcon(ICON_PAUSE));
-			this.playButton.setToolTipText(TEXT_PAUSE);
-			this.paused = false;
 			if (SimClock.getTime() >= this.playUntilTime) {
 				// playUntilTime passed -> disable it
 				this.playUntilTime = Double.MAX_VALUE;
 			}
+			this.paused = false;
+			wakeUpSim();
+		}
+		else {
+			this.paused = true;
+		}
+		updatePlayButton(paused);
+	}
+	
+	/**
+	 * Updates the play button to match the pause state
+	 * @param paused Is the simulation paused
+	 */
+	private void updatePlayButton(final boolean paused) {
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					updatePlayButton(paused);
+				}
+			});
+			return;
+		}
+		
+		if (!paused) {
+			this.playButton.setIcon(createImageIcon(ICON_PAUSE));
+			this.playButton.setToolTipText(TEXT_PAUSE);
 		}
 		else {
 			this.playButton.setIcon(createImageIcon(ICON_PLAY));
 			this.playButton.setToolTipText(TEXT_PLAY);
-			this.paused = true;
-			this.setSimTime(SimClock.getTime());
-			this.pf.updateField();
+		}
+	}
+	
+	/**
+	 * Wakes up the simulation thread if it's waiting in 
+	 * {@link #waitForPlay(long)}
+	 */
+	private void wakeUpSim() {
+		synchronized (playLock) {
+			playLock.notifyAll();
+		}
+	}
+	
+	/**
+	 * Waits until the simulation is set to play or stepped, or until the
+	 * timeout has passed. Called by the simulation thread when paused.
+	 * @param ms Max time to wait (milliseconds)
+	 */
+	public void waitForPlay(long ms) {
+		synchronized (playLock) {
+			if (!this.paused || this.step.get()) {
+				return;
+			}
+			try {
+				playLock.wait(ms);
+			} catch (InterruptedException e) {
+				// nothing to do here
+			}
 		}
 	}
 	
@@ -252,8 +306,8 @@ public class GUIControls extends JPanel implements ActionListener, ChangeListene
 	 * @return True if pause is requested
 	 */
 	public boolean isPaused() {
-		if (step) { // if we want to step, return false once and reset stepping
-			step = false;
+		// if we want to step, return false once and reset stepping
+		if (step.compareAndSet(true, false)) {
 			return false;
 		}
 		if (SimClock.getTime() >= this.playUntilTime) {
@@ -262,6 +316,14 @@ public class GUIControls extends JPanel implements ActionListener, ChangeListene
 		return this.paused;
 	}
 	
+	/**
+	 * Returns the pause state without consuming a step request
+	 * @return True if the simulation is paused
+	 */
+	public boolean isPausedNow() {
+		return this.paused;
+	}
+	
 	/**
 	 * Is fast forward turned on
 	 * @return True if FFW is on, false if not
@@ -307,7 +369,8 @@ public class GUIControls extends JPanel implements ActionListener, ChangeListene
 		}
 		else if (e.getSource() == this.stepButton) {
 			setPaused(true);
-			this.step = true;
+			this.step.set(true);
+			wakeUpSim();
 		}
 		else if (e.getSource() == this.ffwButton) {
 			switchFfw();
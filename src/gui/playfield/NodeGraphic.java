@@ -6,19 +6,14 @@ package gui.playfield;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Ellipse2D;
-import java.util.ArrayList;
-
-import core.Connection;
-import core.Coord;
-import core.DTNHost;
-import core.NetworkInterface;
 
 /**
- * Visualization of a DTN Node
- *
+ * Visualization of a DTN Node. Nodes are drawn from position snapshots
+ * (see {@link PositionSnapshot}), not directly from the hosts.
  */
-public class NodeGraphic extends PlayFieldGraphic {
+public class NodeGraphic {
 	private static boolean drawCoverage = true;
 	private static boolean drawNodeName = true;
 	private static boolean drawConnections = true;
@@ -31,63 +26,104 @@ public class NodeGraphic extends PlayFieldGraphic {
 	private static Color msgColor2 = Color.GREEN;
 	private static Color msgColor3 = Color.RED;
 
-	private DTNHost node;
+	/** size of the area around a node where its graphics (excluding the
+	 * radio range) are drawn (pixels) */
+	private static final int GRAPHICS_MARGIN = 60;
 
-	public NodeGraphic(DTNHost node) {	
-		this.node = node;
-	}
+	/** index of the node in position snapshots */
+	private int index;
+	/** reused shape for the radio coverage */
+	private Ellipse2D.Double coverage;
 
-	@Override
-	public void draw(Graphics2D g2) {
-		drawHost(g2);
-		drawMessages(g2);
+	/**
+	 * Creates a graphic that draws a node from position snapshots
+	 * @param index Index of the node in the snapshots
+	 */
+	public NodeGraphic(int index) {
+		this.index = index;
+		this.coverage = new Ellipse2D.Double();
 	}
 
 	/**
-	 * Visualize node's location, radio ranges and connections
+	 * Draws the node using the state in a position snapshot. Nothing is
+	 * drawn if the node's graphics are not within the clip area.
 	 * @param g2 The graphic context to draw to
+	 * @param s The snapshot
+	 * @param clip The area that needs to be drawn (null = everything)
 	 */
-	private void drawHost(Graphics2D g2) {
-		Coord loc = node.getLocation();
-
-		if (drawCoverage && node.isActive()) {
-			ArrayList<NetworkInterface> interfaces = new ArrayList<NetworkInterface>();
-			interfaces.addAll(node.getInterfaces());
-			for (NetworkInterface ni : interfaces) {
-				double range = ni.getTransmitRange();
-				Ellipse2D.Double coverage;
-
-				coverage = new Ellipse2D.Double(scale(loc.getX()-range),
-						scale(loc.getY()-range), scale(range * 2), scale(range * 2)); 
-
-				// draw the "range" circle
-				g2.setColor(rangeColor);
-				g2.draw(coverage);
+	public void draw(Graphics2D g2, PositionSnapshot s, Rectangle clip) {
+		double x = s.getX(index);
+		double y = s.getY(index);
+		double[] ranges = s.getRanges(index);
+		boolean showCoverage = drawCoverage && s.isActive(index);
+
+		if (clip != null) {
+			double maxRange = 0;
+			if (showCoverage) {
+				for (double r : ranges) {
+					maxRange = Math.max(maxRange, r);
+				}
+			}
+			int margin = Math.max(scale(maxRange), GRAPHICS_MARGIN);
+			int gx = scale(x);
+			int gy = scale(y);
+			if (gx + margin < clip.x || gx - margin > clip.x + clip.width ||
+				gy + margin < clip.y || gy - margin > clip.y + clip.height) {
+				return; // not visible
 			}
 		}
 
-		if (drawConnections) {
-			g2.setColor(conColor);
-			Coord c1 = node.getLocation();
-			ArrayList<Connection> conList = new ArrayList<Connection>();
-			// create a copy to prevent concurrent modification exceptions
-			conList.addAll(node.getConnections());
-			for (Connection c : conList) {
-				Coord c2 = c.getOtherNode(node).getLocation();
-
-				g2.drawLine(scale(c1.getX()), scale(c1.getY()),
-						scale(c2.getX()), scale(c2.getY()));
+		if (showCoverage) {
+			g2.setColor(rangeColor);
+			for (double range : ranges) {
+				coverage.setFrame(scale(x-range), scale(y-range),
+						scale(range * 2), scale(range * 2));
+				g2.draw(coverage);
 			}
 		}
 
 		g2.setColor(hostColor);	// draw rectangle to host's location
-		g2.drawRect(scale(loc.getX()-1),scale(loc.getY()-1),scale(2),scale(2));
+		g2.drawRect(scale(x-1),scale(y-1),scale(2),scale(2));
 
 		if (drawNodeName) {
 			g2.setColor(hostNameColor);
-			// Draw node's address next to it
-			g2.drawString(node.toString(), scale(loc.getX()),
-					scale(loc.getY()));
+			g2.drawString(s.getName(index), scale(x), scale(y));
+		}
+
+		int nrofMessages = s.getNrofMessages(index);
+		drawBar(g2, x, y, nrofMessages % 10, 1);
+		drawBar(g2, x, y, nrofMessages / 10, 2);
+	}
+
+	/**
+	 * Draws the connections in a snapshot. Only connections whose end
+	 * points' bounding box intersects the clip area are drawn.
+	 * @param g2 The graphic context to draw to
+	 * @param s The snapshot
+	 * @param clip The area that needs to be drawn (null = everything)
+	 */
+	public static void drawConnections(Graphics2D g2, PositionSnapshot s,
+			Rectangle clip) {
+		if (!drawConnections) {
+			return;
+		}
+
+		g2.setColor(conColor);
+		for (int c = 0, n = s.getNrofConnections(); c < n; c++) {
+			int from = s.getConnectionFrom(c);
+			int to = s.getConnectionTo(c);
+			int x1 = scale(s.getX(from));
+			int y1 = scale(s.getY(from));
+			int x2 = scale(s.getX(to));
+			int y2 = scale(s.getY(to));
+
+			if (clip != null && (Math.max(x1, x2) < clip.x ||
+					Math.min(x1, x2) > clip.x + clip.width ||
+					Math.max(y1, y2) < clip.y ||
+					Math.min(y1, y2) > clip.y + clip.height)) {
+				continue;
+			}
+			g2.drawLine(x1, y1, x2, y2);
 		}
 	}
 
@@ -117,25 +153,25 @@ public class NodeGraphic extends PlayFieldGraphic {
 
 
 	/**
-	 * Visualize the messages this node is carrying
-	 * @param g2 The graphic context to draw to
+	 * Scales the value according to the play field's current zoom level
+	 * @param value Value to scale
+	 * @return Scaled value
+	 * @see PlayFieldGraphic#scale(double)
 	 */
-	private void drawMessages(Graphics2D g2) {
-		int nrofMessages = node.getNrofMessages();
-		Coord loc = node.getLocation();
-
-		drawBar(g2,loc, nrofMessages % 10, 1);
-		drawBar(g2,loc, nrofMessages / 10, 2);
+	private static int scale(double value) {
+		return PlayFieldGraphic.scale(value);
 	}
 
 	/**
 	 * Draws a bar (stack of squares) next to a location
 	 * @param g2 The graphic context to draw to
-	 * @param loc The location where to draw
+	 * @param x The x coordinate of the location
+	 * @param y The y coordinate of the location
 	 * @param nrof How many squares in the stack
 	 * @param col Which column
 	 */
-	private void drawBar(Graphics2D g2, Coord loc, int nrof, int col) {
+	private void drawBar(Graphics2D g2, double x, double y, int nrof,
+			int col) {
 		final int BAR_HEIGHT = 5;
 		final int BAR_WIDTH = 5;
 		final int BAR_DISPLACEMENT = 2;
@@ -154,8 +190,8 @@ public class NodeGraphic extends PlayFieldGraphic {
 				}
 			}
 
-			g2.fillRect(scale(loc.getX()-BAR_DISPLACEMENT-(BAR_WIDTH*col)),
-					scale(loc.getY()- BAR_DISPLACEMENT- i* BAR_HEIGHT),
+			g2.fillRect(scale(x-BAR_DISPLACEMENT-(BAR_WIDTH*col)),
+					scale(y- BAR_DISPLACEMENT- i* BAR_HEIGHT),
 					scale(BAR_WIDTH), scale(BAR_HEIGHT));
 		}
 
@@ -8,6 +8,7 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
@@ -20,6 +21,7 @@ import movement.Path;
 import movement.map.SimMap;
 import core.Coord;
 import core.DTNHost;
+import core.SimClock;
 import core.World;
 
 /**
@@ -27,6 +29,9 @@ import core.World;
  *
  */
 public class PlayField extends JPanel {
+	/** Number of snapshots in the snapshot ring buffer */
+	public static final int SNAPSHOT_RING_SIZE = 4;
+
 	private World w;
 	private Color bgColor = Color.WHITE;
 	
@@ -42,6 +47,11 @@ public class PlayField extends JPanel {
 	private double underlayImgDx;
 	private double underlayImgDy;
 	
+	/** graphics of the hosts, reused for every frame */
+	private NodeGraphic[] nodeGraphics;
+	/** snapshots from the simulation thread to the drawing thread */
+	private SnapshotRing snapshots;
+	
 	/**
 	 * Creates a playfield
 	 * @param w The world that contains the actors to be drawn
@@ -57,6 +67,38 @@ public class PlayField extends JPanel {
         this.underlayImage = null;
         this.imageTransform = null;
         this.autoClearOverlay = true;
+        
+        this.snapshots = new SnapshotRing(SNAPSHOT_RING_SIZE);
+        this.nodeGraphics = new NodeGraphic[0];
+        takeSnapshot(w.getHosts());
+	}
+	
+	/**
+	 * Takes a snapshot of the hosts' state and publishes it for drawing.
+	 * To be called by the simulation thread between world updates. The
+	 * snapshot that is being drawn is never refilled, so drawing doesn't
+	 * need to block the simulation (or vice versa).
+	 * @param hosts The hosts whose state to take
+	 */
+	public void takeSnapshot(List<DTNHost> hosts) {
+		snapshots.claim().fill(hosts, SimClock.getTime());
+		snapshots.publish();
+	}
+	
+	/**
+	 * Returns true if a snapshot newer than the one drawn last is available
+	 * @return true if there's a new snapshot to draw
+	 */
+	public boolean hasNewSnapshot() {
+		return snapshots.getPublishedSeq() != snapshots.getReadingSeq();
+	}
+	
+	/**
+	 * Returns the simulation time of the latest snapshot
+	 * @return The time of the snapshot
+	 */
+	public double getSnapshotTime() {
+		return snapshots.acquireLatest().getSimTime();
 	}
 	
 	/**
@@ -156,9 +198,18 @@ public class PlayField extends JPanel {
 			mapGraphic.draw(g2);
 		}
 		
-		// draw hosts
-		for (DTNHost h : w.getHosts()) {
-			new NodeGraphic(h).draw(g2); // TODO: Optimization..?
+		// draw hosts from the latest snapshot; only the visible ones
+		PositionSnapshot s = snapshots.acquireLatest();
+		Rectangle clip = g2.getClipBounds();
+		if (nodeGraphics.length != s.getNrofHosts()) {
+			nodeGraphics = new NodeGraphic[s.getNrofHosts()];
+			for (int i=0; i<nodeGraphics.length; i++) {
+				nodeGraphics[i] = new NodeGraphic(i);
+			}
+		}
+		NodeGraphic.drawConnections(g2, s, clip);
+		for (NodeGraphic ng : nodeGraphics) {
+			ng.draw(g2, s, clip);
 		}
 		
 		// draw overlay graphics
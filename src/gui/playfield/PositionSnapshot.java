@@ -0,0 +1,213 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package gui.playfield;
+
+import java.util.Arrays;
+import java.util.List;
+
+import core.Connection;
+import core.Coord;
+import core.DTNHost;
+import core.NetworkInterface;
+
+/**
+ * Snapshot of the hosts' state that the play field needs for drawing them:
+ * locations, radio ranges, connections and the number of buffered messages.
+ * Snapshots are taken in the simulation thread and drawn in the event
+ * dispatch thread, so drawing never touches the (changing) hosts. The arrays
+ * of a snapshot are reused when it is refilled.
+ */
+public class PositionSnapshot {
+	private int nrofHosts;
+	private double[] x;
+	private double[] y;
+	private boolean[] active;
+	private int[] nrofMessages;
+	private double[][] ranges;
+	private String[] names;
+	/** connections as pairs of host indexes: from at 2*i, to at 2*i+1 */
+	private int[] connections;
+	private int nrofConnections;
+	private double simTime;
+
+	/**
+	 * Constructor. Creates an empty snapshot.
+	 */
+	public PositionSnapshot() {
+		this.nrofHosts = 0;
+		this.x = new double[0];
+		this.y = new double[0];
+		this.active = new boolean[0];
+		this.nrofMessages = new int[0];
+		this.ranges = new double[0][];
+		this.names = new String[0];
+		this.connections = new int[16];
+		this.nrofConnections = 0;
+	}
+
+	/**
+	 * Fills the snapshot with the current state of the hosts. Hosts are
+	 * indexed by their position in the list, which is their address.
+	 * @param hosts The hosts
+	 * @param simTime Current simulation time
+	 */
+	public void fill(List<DTNHost> hosts, double simTime) {
+		int n = hosts.size();
+		if (this.x.length != n) {
+			this.x = new double[n];
+			this.y = new double[n];
+			this.active = new boolean[n];
+			this.nrofMessages = new int[n];
+			this.ranges = new double[n][];
+			this.names = new String[n];
+		}
+
+		this.nrofHosts = n;
+		this.simTime = simTime;
+		this.nrofConnections = 0;
+
+		for (int i = 0; i < n; i++) {
+			DTNHost h = hosts.get(i);
+			Coord loc = h.getLocation();
+			List<NetworkInterface> net = h.getInterfaces();
+
+			this.x[i] = loc.getX();
+			this.y[i] = loc.getY();
+			this.active[i] = h.isActive();
+			// don't create lazy routers just for drawing them
+			this.nrofMessages[i] = h.hasRouter() ? h.getNrofMessages() : 0;
+			if (this.names[i] == null) {
+				this.names[i] = h.toString();
+			}
+			if (this.ranges[i] == null || this.ranges[i].length != net.size()) {
+				this.ranges[i] = new double[net.size()];
+			}
+
+			for (int j = 0, m = net.size(); j < m; j++) {
+				NetworkInterface ni = net.get(j);
+				this.ranges[i][j] = ni.getTransmitRange();
+
+				List<Connection> cons = ni.getConnections();
+				for (int k = 0, c = cons.size(); k < c; k++) {
+					DTNHost other = cons.get(k).getOtherNode(h);
+					if (other.getAddress() > h.getAddress()) {
+						addConnection(i, other.getAddress());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a connection between two hosts
+	 * @param from Index of the first host
+	 * @param to Index of the other host
+	 */
+	private void addConnection(int from, int to) {
+		if (2 * this.nrofConnections + 1 >= this.connections.length) {
+			this.connections = Arrays.copyOf(this.connections,
+					this.connections.length * 2);
+		}
+		this.connections[2 * this.nrofConnections] = from;
+		this.connections[2 * this.nrofConnections + 1] = to;
+		this.nrofConnections++;
+	}
+
+	/**
+	 * Returns the number of hosts in the snapshot
+	 * @return the number of hosts
+	 */
+	public int getNrofHosts() {
+		return this.nrofHosts;
+	}
+
+	/**
+	 * Returns the x coordinate of a host
+	 * @param i Index of the host
+	 * @return the x coordinate
+	 */
+	public double getX(int i) {
+		return this.x[i];
+	}
+
+	/**
+	 * Returns the y coordinate of a host
+	 * @param i Index of the host
+	 * @return the y coordinate
+	 */
+	public double getY(int i) {
+		return this.y[i];
+	}
+
+	/**
+	 * Returns true if the host was active
+	 * @param i Index of the host
+	 * @return true if the host was active
+	 */
+	public boolean isActive(int i) {
+		return this.active[i];
+	}
+
+	/**
+	 * Returns the number of messages the host was carrying
+	 * @param i Index of the host
+	 * @return the number of messages
+	 */
+	public int getNrofMessages(int i) {
+		return this.nrofMessages[i];
+	}
+
+	/**
+	 * Returns the transmit ranges of the host's interfaces
+	 * @param i Index of the host
+	 * @return the ranges (must not be modified)
+	 */
+	public double[] getRanges(int i) {
+		return this.ranges[i];
+	}
+
+	/**
+	 * Returns the name of a host
+	 * @param i Index of the host
+	 * @return the name
+	 */
+	public String getName(int i) {
+		return this.names[i];
+	}
+
+	/**
+	 * Returns the number of connections in the snapshot
+	 * @return the number of connections
+	 */
+	public int getNrofConnections() {
+		return this.nrofConnections;
+	}
+
+	/**
+	 * Returns the index of the first host of a connection
+	 * @param c Index of the connection
+	 * @return Index of the host
+	 */
+	public int getConnectionFrom(int c) {
+		return this.connections[2 * c];
+	}
+
+	/**
+	 * Returns the index of the second host of a connection
+	 * @param c Index of the connection
+	 * @return Index of the host
+	 */
+	public int getConnectionTo(int c) {
+		return this.connections[2 * c + 1];
+	}
+
+	/**
+	 * Returns the simulation time when the snapshot was taken
+	 * @return the simulation time
+	 */
+	public double getSimTime() {
+		return this.simTime;
+	}
+}
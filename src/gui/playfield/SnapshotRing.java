@@ -0,0 +1,126 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package gui.playfield;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free ring buffer of position snapshots between one producer (the
+ * simulation thread) and one consumer (the event dispatch thread). The
+ * producer fills the snapshots in the ring in order and publishes them; the
+ * consumer always takes the latest published snapshot. The snapshot the
+ * consumer is reading is never refilled: if the producer would get to its
+ * slot, that slot is skipped. Neither thread ever waits for the other.
+ * <P>Both threads first announce the snapshot they are going to use and
+ * then check the other thread's announcement (the producer in
+ * {@link #claim()}, the consumer in {@link #acquireLatest()}), so at least
+ * one of them always sees the conflict when they go for the same slot: the
+ * producer skips the slot or the consumer takes a newer snapshot.</P>
+ */
+public class SnapshotRing {
+	/** Smallest accepted number of snapshots in the ring */
+	public static final int MIN_SIZE = 3;
+
+	private PositionSnapshot[] slots;
+	/** sequence number of the latest published snapshot (-1 = none) */
+	private AtomicLong published;
+	/** sequence number of the snapshot the consumer is reading (-1 = none) */
+	private volatile long reading;
+	/** sequence number of the snapshot the producer is filling (-1 =
+	 * none yet) */
+	private volatile long claimed;
+	/** sequence number of the snapshot the producer fills next */
+	private long next;
+
+	/**
+	 * Constructor.
+	 * @param size Number of snapshots in the ring (at least
+	 * {@link #MIN_SIZE})
+	 */
+	public SnapshotRing(int size) {
+		if (size < MIN_SIZE) {
+			throw new IllegalArgumentException("Too small ring size " + size);
+		}
+		this.slots = new PositionSnapshot[size];
+		for (int i = 0; i < size; i++) {
+			this.slots[i] = new PositionSnapshot();
+		}
+		this.published = new AtomicLong(-1);
+		this.reading = -1;
+		this.claimed = -1;
+		this.next = 0;
+	}
+
+	/**
+	 * Returns the snapshot that the producer should fill next. Must be
+	 * followed by {@link #publish()} once the snapshot is filled.
+	 * @return The snapshot to fill
+	 */
+	public PositionSnapshot claim() {
+		while (true) {
+			this.claimed = next;
+			long r = this.reading;
+			if (r >= 0 && slotOf(r) == slotOf(next)) {
+				next++; // consumer is reading this one; use the next one
+			} else {
+				return this.slots[slotOf(next)];
+			}
+		}
+	}
+
+	/**
+	 * Publishes the snapshot returned by the latest {@link #claim()}
+	 */
+	public void publish() {
+		this.published.set(next);
+		next++;
+	}
+
+	/**
+	 * Returns the latest published snapshot for the consumer. The snapshot
+	 * stays valid (is not refilled) until this method is called again.
+	 * @return The latest snapshot or null if nothing is published yet
+	 */
+	public PositionSnapshot acquireLatest() {
+		long p;
+		do {
+			p = this.published.get();
+			if (p < 0) {
+				return null;
+			}
+			this.reading = p;
+			/* if the producer has got around the ring to the slot (or past
+			 * it) before seeing the reading mark, it may be refilling the
+			 * slot -> try again with a newer snapshot */
+		} while (this.claimed - p >= this.slots.length);
+
+		return this.slots[slotOf(p)];
+	}
+
+	/**
+	 * Returns the sequence number of the latest published snapshot
+	 * @return The sequence number or -1 if nothing is published yet
+	 */
+	public long getPublishedSeq() {
+		return this.published.get();
+	}
+
+	/**
+	 * Returns the sequence number of the snapshot the consumer is reading
+	 * @return The sequence number or -1 if the consumer isn't reading any
+	 */
+	public long getReadingSeq() {
+		return this.reading;
+	}
+
+	/**
+	 * Returns the ring slot of a sequence number
+	 * @param seq The sequence number
+	 * @return The slot index
+	 */
+	private int slotOf(long seq) {
+		return (int)(seq % this.slots.length);
+	}
+}
@@ -18,12 +18,16 @@ import core.SimError;
 /**
  * Reads External Events from a binary file. Can also create binary files
  * from a list of external events.
+ * @see BinaryEventsWriter
  */
 public class BinaryEventsReader implements ExternalEventsReader {
 	/** Extension of binary external events file */
 	public static final String BINARY_EXT = ".binee";
+	/** Event count of files whose events end with a null object */
+	public static final int UNKNOWN_COUNT = -1;
 	
 	private ObjectInputStream in;
+	/** number of events left or {@link #UNKNOWN_COUNT} */
 	private int eventsLeft;
 	
 	/**
@@ -34,7 +38,8 @@ public class BinaryEventsReader implements ExternalEventsReader {
 		try {
 			FileInputStream fis = new FileInputStream(eventsFile);
 			in = new ObjectInputStream(fis);
-			// first object should tell the amount of events
+			// first object should tell the amount of events (or that the
+			// amount is unknown)
 			eventsLeft = (Integer)in.readObject(); 
 		} catch (IOException e) {
 			throw new SimError(e);
@@ -60,9 +65,16 @@ public class BinaryEventsReader implements ExternalEventsReader {
 		}
 		
 		try {
-			for (int i=0; i < nrof && eventsLeft > 0; i++) {
-				events.add((ExternalEvent)in.readObject());
-				eventsLeft--;
+			for (int i=0; i < nrof && eventsLeft != 0; i++) {
+				ExternalEvent ee = (ExternalEvent)in.readObject();
+				if (ee == null) { // end of a file with unknown count
+					eventsLeft = 0;
+					break;
+				}
+				events.add(ee);
+				if (eventsLeft > 0) {
+					eventsLeft--;
+				}
 			}
 			if (eventsLeft == 0) {
 				in.close();
@@ -107,7 +119,7 @@ public class BinaryEventsReader implements ExternalEventsReader {
 
 		// make sure the file name ends with binary extension
 		if (!fileName.endsWith(BINARY_EXT)) {
-			fileName += "BINARY_EXT";
+			fileName += BINARY_EXT;
 		}
 		
 		ObjectOutputStream out;
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+/**
+ * Writes external events to a binary file one at a time, so the events
+ * don't need to be in memory all at once. The number of events is not known
+ * when the file is started, so the file has an unknown count (-1) at the
+ * start and ends with a null object. The files can be read with
+ * {@link BinaryEventsReader}.
+ */
+public class BinaryEventsWriter {
+	/** number of events between resets of the stream's object table */
+	private static final int RESET_INTERVAL = 1000;
+
+	private ObjectOutputStream out;
+	private String fileName;
+	private int nrofEvents;
+
+	/**
+	 * Constructor. Creates the file.
+	 * @param fileName Path to the file where the events are stored. The
+	 * {@link BinaryEventsReader#BINARY_EXT} extension is added to the name
+	 * if it doesn't have it.
+	 * @throws IOException if the file couldn't be created
+	 */
+	public BinaryEventsWriter(String fileName) throws IOException {
+		if (!fileName.endsWith(BinaryEventsReader.BINARY_EXT)) {
+			fileName += BinaryEventsReader.BINARY_EXT;
+		}
+		this.fileName = fileName;
+		this.out = new ObjectOutputStream(new FileOutputStream(fileName));
+		this.out.writeObject(Integer.valueOf(BinaryEventsReader.UNKNOWN_COUNT));
+		this.nrofEvents = 0;
+	}
+
+	/**
+	 * Writes an event to the file
+	 * @param ee The event
+	 * @throws IOException if the writing failed
+	 */
+	public void write(ExternalEvent ee) throws IOException {
+		this.out.writeObject(ee);
+		this.nrofEvents++;
+		if (this.nrofEvents % RESET_INTERVAL == 0) {
+			/* don't keep references to all the written events */
+			this.out.reset();
+		}
+	}
+
+	/**
+	 * Ends the file and closes it
+	 * @throws IOException if the writing failed
+	 */
+	public void close() throws IOException {
+		this.out.writeObject(null);
+		this.out.close();
+	}
+
+	/**
+	 * Returns the path of the file (with the extension)
+	 * @return the path of the file
+	 */
+	public String getFileName() {
+		return this.fileName;
+	}
+
+	/**
+	 * Returns the number of events written so far
+	 * @return the number of events
+	 */
+	public int getNrofEvents() {
+		return this.nrofEvents;
+	}
+}
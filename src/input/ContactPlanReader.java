@@ -0,0 +1,123 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package input;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import core.SimError;
+
+/**
+ * Reads a binary contact plan written by {@link ContactPlanWriter} and
+ * returns its link up and down events as {@link ConnectionEvent}s. The
+ * connections are created with the interfaces of the recorded interface
+ * types, so the replay must use the same interface settings as the recording
+ * to get the same connection speeds.
+ */
+public class ContactPlanReader implements ExternalEventsReader {
+	/** Extension of contact plan files */
+	public static final String CONTACT_PLAN_EXT = ".cplan";
+	/** Magic number in the beginning of contact plan files */
+	public static final int MAGIC = 0x4F4E4543; // "ONEC"
+	/** Record type of interface type definitions */
+	public static final int REC_INTERFACE = 0;
+	/** Record type of link up events */
+	public static final int REC_UP = 1;
+	/** Record type of link down events */
+	public static final int REC_DOWN = 2;
+	
+	private DataInputStream in;
+	/** interface type names by their index */
+	private List<String> interfaceTypes;
+	private boolean allRead;
+	
+	/**
+	 * Constructor.
+	 * @param planFile The contact plan file
+	 */
+	public ContactPlanReader(File planFile) {
+		this.interfaceTypes = new ArrayList<String>();
+		this.allRead = false;
+		try {
+			this.in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(planFile)));
+			if (in.readInt() != MAGIC) {
+				throw new SimError("Not a contact plan file: " + 
+						planFile.getAbsolutePath());
+			}
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+	}
+	
+	/**
+	 * Checks if the given file is a contact plan file (by its extension)
+	 * @param file The file to check
+	 * @return True if the file is a contact plan file, false if not
+	 */
+	public static boolean isContactPlanFile(File file) {
+		return file.getName().endsWith(CONTACT_PLAN_EXT);
+	}
+	
+	/**
+	 * Reads link events from the plan
+	 * @param nrof Maximum number of events to read
+	 * @return Events in a List (empty list if there are no more events)
+	 */
+	public List<ExternalEvent> readEvents(int nrof) {
+		List<ExternalEvent> events = new ArrayList<ExternalEvent>(nrof);
+		
+		try {
+			while (!allRead && events.size() < nrof) {
+				int type = in.read();
+				if (type < 0) { // end of file
+					allRead = true;
+					in.close();
+				}
+				else if (type == REC_INTERFACE) {
+					int index = in.readShort();
+					String name = in.readUTF();
+					while (interfaceTypes.size() <= index) {
+						interfaceTypes.add(null);
+					}
+					interfaceTypes.set(index, name);
+				}
+				else if (type == REC_UP || type == REC_DOWN) {
+					double time = in.readDouble();
+					int from = in.readInt();
+					int to = in.readInt();
+					String interfaceType = interfaceTypes.get(in.readShort());
+					in.readInt(); // speed (recorded for analysis)
+					events.add(new ConnectionEvent(from, to, interfaceType,
+							type == REC_UP, time));
+				}
+				else {
+					throw new SimError("Invalid record type " + type + 
+							" in contact plan");
+				}
+			}
+		} catch (EOFException e) {
+			throw new SimError("Truncated contact plan", e);
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+		
+		return events;
+	}
+	
+	public void close() {
+		try {
+			this.in.close();
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+	}
+}
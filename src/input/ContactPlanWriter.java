@@ -0,0 +1,111 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package input;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import core.SimError;
+
+/**
+ * Writes a binary contact plan: the sequence of link up and down events
+ * of a simulation with the interface types and connection speeds.
+ * The plan is written as a stream, so memory use doesn't depend on the
+ * number of contacts. The plan can be replayed with
+ * {@link ContactPlanReader} (e.g., as an {@link ExternalEventsQueue} file).
+ * <P>File format (big-endian, see {@link java.io.DataOutputStream}): the
+ * magic number {@link ContactPlanReader#MAGIC} followed by records that
+ * start with a record type byte. An interface type record
+ * ({@link ContactPlanReader#REC_INTERFACE}) has the index (short) and the
+ * name (UTF) of an interface type. A link record
+ * ({@link ContactPlanReader#REC_UP} or {@link ContactPlanReader#REC_DOWN})
+ * has the time (double), the addresses of the initiating and the other host
+ * (int, int), the interface type index (short) and the connection speed
+ * (int, bytes per second; zero for down records).</P>
+ */
+public class ContactPlanWriter {
+	private DataOutputStream out;
+	/** indexes of the interface types already written */
+	private Map<String, Integer> interfaceTypes;
+	private int nrofRecords;
+	
+	/**
+	 * Creates a new contact plan file. Extension
+	 * {@link ContactPlanReader#CONTACT_PLAN_EXT} is added to the file name
+	 * if it doesn't have it.
+	 * @param fileName Path of the file
+	 */
+	public ContactPlanWriter(String fileName) {
+		if (!fileName.endsWith(ContactPlanReader.CONTACT_PLAN_EXT)) {
+			fileName += ContactPlanReader.CONTACT_PLAN_EXT;
+		}
+		this.interfaceTypes = new HashMap<String, Integer>();
+		this.nrofRecords = 0;
+		try {
+			this.out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(fileName)));
+			this.out.writeInt(ContactPlanReader.MAGIC);
+		} catch (IOException e) {
+			throw new SimError("Couldn't create contact plan " + fileName, e);
+		}
+	}
+	
+	/**
+	 * Writes a link up or down event to the plan
+	 * @param time Time of the event
+	 * @param from Address of the host that initiated the (dis)connection
+	 * @param to Address of the other host
+	 * @param interfaceType Type (name) of the connected interfaces
+	 * @param up True for a link up event, false for a link down event
+	 * @param speed Speed of the connection (for link up events)
+	 */
+	public void writeLink(double time, int from, int to, String interfaceType,
+			boolean up, int speed) {
+		try {
+			Integer index = this.interfaceTypes.get(interfaceType);
+			if (index == null) {
+				index = this.interfaceTypes.size();
+				this.interfaceTypes.put(interfaceType, index);
+				out.writeByte(ContactPlanReader.REC_INTERFACE);
+				out.writeShort(index);
+				out.writeUTF(interfaceType);
+			}
+			
+			out.writeByte(up ? ContactPlanReader.REC_UP :
+				ContactPlanReader.REC_DOWN);
+			out.writeDouble(time);
+			out.writeInt(from);
+			out.writeInt(to);
+			out.writeShort(index);
+			out.writeInt(up ? speed : 0);
+			this.nrofRecords++;
+		} catch (IOException e) {
+			throw new SimError("Couldn't write contact plan", e);
+		}
+	}
+	
+	/**
+	 * Returns the number of link events written so far
+	 * @return the number of link events
+	 */
+	public int getNrofRecords() {
+		return this.nrofRecords;
+	}
+	
+	/**
+	 * Closes the plan file
+	 */
+	public void close() {
+		try {
+			this.out.close();
+		} catch (IOException e) {
+			throw new SimError("Couldn't close contact plan", e);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores copies of the bundles received from dtnd to a directory. The
+ * copies are made with file channel transfers (instead of copying byte by
+ * byte) and can be made from several CLA threads at the same time.
+ */
+public class DTN2BundleStore {
+	private File directory;
+	/** number of the next bundle file */
+	private AtomicLong nextFileNumber;
+
+	/**
+	 * Constructor. Creates the directory if it does not exist.
+	 * @param directory The directory to store the bundles to
+	 */
+	public DTN2BundleStore(File directory) {
+		this.directory = directory;
+		if (!directory.exists()) {
+			directory.mkdir();
+		}
+		// random start makes collisions with files of earlier runs unlikely
+		this.nextFileNumber =
+			new AtomicLong(Math.round(Math.random() * 1000000000));
+	}
+
+	/**
+	 * Stores a copy of a bundle file
+	 * @param source The bundle file
+	 * @return The copy of the file
+	 * @throws IOException if the copy could not be made
+	 */
+	public File store(File source) throws IOException {
+		File copy;
+		do {
+			copy = new File(this.directory,
+					this.nextFileNumber.getAndIncrement() + ".bundle");
+		} while (!copy.createNewFile());
+
+		FileChannel in = new FileInputStream(source).getChannel();
+		try {
+			FileChannel out = new FileOutputStream(copy).getChannel();
+			try {
+				long size = in.size();
+				long position = 0;
+				while (position < size) {
+					position += in.transferTo(position, size - position, out);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the directory of the stored bundles
+	 * @return the directory
+	 */
+	public File getDirectory() {
+		return this.directory;
+	}
+}
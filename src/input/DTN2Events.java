@@ -11,9 +11,7 @@ import fi.tkk.netlab.dtn.ecla.CLAInterface;
 import fi.tkk.netlab.dtn.ecla.CLAParser;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -88,51 +86,35 @@ public class DTN2Events implements EventQueue {
 		//********************************************************************//
 		public BundleTransferReceipt incomingBundle(String location, 
 				CLAParser.BundleAttributes attributes) {
-			FileInputStream		f_in;
-			
 			CLAInterface.BundleTransferReceipt r = 
 				new CLAInterface.BundleTransferReceipt();
 			
-			// Open the bundle file
-			try {
-				f_in = new FileInputStream(new File(location));
-			} catch (FileNotFoundException ex) {
+			// Check that the bundle file exists
+			File f = new File(location);
+			if (!f.isFile()) {
 				Debug.p("CLAInterfaceImpl: Couldn't open file "+location+
 						" (file not found)");
 				return r;
 			}
 			
 			// Make a copy of the bundle
-			String filepath = "bundles/"+Math.round(Math.random()*1000000000)+
-				".bundle";
-			File new_f = new File(filepath);
+			File new_f;
 			try {
-				while (!new_f.createNewFile()) {
-					filepath = "bundles/"+Math.round(Math.random()*1000000000)+
-						".bundle";
-					new_f = new File(filepath);
-				}
-				FileOutputStream f_out = new FileOutputStream(new_f);
-				int i;
-				while ( (i=f_in.read()) != -1 ) {
-					f_out.write(i);
-				}
-				f_in.close();
-				f_out.close();
-			} catch (Exception e) {
-				// TBD
+				new_f = DTN2Manager.getBundleStore().store(f);
+			} catch (IOException e) {
+				Debug.p("CLAInterfaceImpl: Couldn't copy file "+location+
+						" ("+e.getMessage()+")");
+				return r;
 			}
 			
 			// Parse the bundle
 			Bundle bundle = new Bundle(new_f);
 			
 			// Check that we haven't forwarded this bundle before
-			if (isReg(bundle)) {
+			if (!regMsg(bundle)) {
 				r.reply = false;
 				r.bytes_sent = 0;
 				return r;
-			} else {
-				regMsg(bundle);
 			}
 						
 			// Lookup the receiving host
@@ -190,17 +172,20 @@ public class DTN2Events implements EventQueue {
 	//                              EventQueue Implementation                              //
 	//************************************************************************//
 	public ExternalEvent nextEvent() {
-		if (!this.events.isEmpty()) {
-			return this.events.remove();
-		} else
-			return new ExternalEvent(Double.MAX_VALUE);
+		synchronized (this.events) {
+			if (!this.events.isEmpty()) {
+				return this.events.remove();
+			}
+		}
+		return new ExternalEvent(Double.MAX_VALUE);
 	}
 	
 	public double nextEventsTime() {
-		if (!this.events.isEmpty())
-			return SimClock.getTime();
-		else
-			return Double.MAX_VALUE;
+		synchronized (this.events) {
+			if (!this.events.isEmpty())
+				return SimClock.getTime();
+		}
+		return Double.MAX_VALUE;
 	}
 	//************************************************************************//
 	
@@ -237,19 +222,17 @@ public class DTN2Events implements EventQueue {
 		DTN2Manager.addBundle(id,bundle);
 	}
 	
-	// Keep track of the bundles we've received
-	private void regMsg(Bundle bundle) {
+	// Keep track of the bundles we've received. Returns false if the
+	// bundle has been received before (possibly by another CLA thread).
+	private boolean regMsg(Bundle bundle) {
 		String key = bundle.source_EID+":"+bundle.destination_EID+":"+
 			bundle.creation_timestamp_time+":"+bundle.creation_timestamp_seq_no;
-		if (!this.bundle_list.containsKey(key))
+		synchronized (this.bundle_list) {
+			if (this.bundle_list.containsKey(key))
+				return false;
 			this.bundle_list.put(key,null);
-	}
-	
-	// Check if the bundle has been received before
-	private boolean isReg(Bundle bundle) {
-		String key = bundle.source_EID+":"+bundle.destination_EID+":"+
-			bundle.creation_timestamp_time+":"+bundle.creation_timestamp_seq_no;
-		return this.bundle_list.containsKey(key);
+			return true;
+		}
 	}
 	//************************************************************************//
 	
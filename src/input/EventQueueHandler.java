@@ -4,10 +4,13 @@
  */
 package input;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import core.Settings;
+import core.SimError;
+import core.SimScenario;
 
 /**
  * <p>
@@ -31,6 +34,9 @@ import core.Settings;
  * is used to define the path to the event file and event generator class 
  * is loaded when the name of the class is defined with 
  * <code>CLASS_SETTING</code>. 
+ * <p>
+ * The events of an event generator class can be exported to a binary
+ * external events file with <code>EXPORT_FILE_SETTING</code>.
  */
 public class EventQueueHandler  {
 	/** Event queue settings main namespace ({@value})*/
@@ -48,6 +54,14 @@ public class EventQueueHandler  {
 	public static final String PRELOAD_SETTING = "nrofPreload";
 	/** path of external events file -setting id ({@value})*/
 	public static final String PATH_SETTING = "filePath";
+	/** export file for class based events -setting id ({@value}). If
+	 * defined, all the events of the event generator class up to the end of
+	 * the scenario are written to this binary external events file (see
+	 * {@link BinaryEventsReader#BINARY_EXT}) before the simulation starts,
+	 * and the simulation replays the events from the file. The same events
+	 * can then be replayed in other runs with the file as an external events
+	 * queue. */
+	public static final String EXPORT_FILE_SETTING = "exportFile";
 	
 	private List<EventQueue> queues;
 	
@@ -78,11 +92,43 @@ public class EventQueueHandler  {
 					s.getSetting(CLASS_SETTING);
 				EventQueue eq = (EventQueue)s.createIntializedObject(className);
 				
+				if (s.contains(EXPORT_FILE_SETTING)) {
+					int preload = s.contains(PRELOAD_SETTING) ?
+							s.getInt(PRELOAD_SETTING) : 0;
+					eq = exportEvents(eq, s.getSetting(EXPORT_FILE_SETTING),
+							preload);
+				}
 				queues.add(eq);
 			}
 		}
 	}
 	
+	/**
+	 * Writes the events of a queue up to the end of the scenario to a
+	 * binary external events file, one event at a time
+	 * @param eq The event queue
+	 * @param fileName Path to the file
+	 * @param preload Number of events to preload when replaying the file
+	 * @return A queue that replays the events from the file
+	 */
+	private EventQueue exportEvents(EventQueue eq, String fileName, 
+			int preload) {
+		double endTime = new Settings(SimScenario.SCENARIO_NS).getDouble(
+				SimScenario.END_TIME_S);
+		String path;
+		try {
+			BinaryEventsWriter out = new BinaryEventsWriter(fileName);
+			while (eq.nextEventsTime() <= endTime) {
+				out.write(eq.nextEvent());
+			}
+			out.close();
+			path = out.getFileName();
+		} catch (IOException e) {
+			throw new SimError("Couldn't export events to " + fileName, e);
+		}
+		return new ExternalEventsQueue(path, preload);
+	}
+	
 	/** 
 	 * Returns all the loaded event queues
 	 * @return all the loaded event queues
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.util.List;
+
+/**
+ * Indexed binary min-heap of event queues keyed by the time of their next
+ * event. The heap stores the times the queues had when they were last
+ * (re)inserted, so after taking an event from the first queue only that
+ * queue needs to be re-keyed with {@link #updateFirst()}. Queues with equal
+ * times are ordered by their index in the list given to the constructor.
+ * <P>The heap is valid only as long as the event times of the queues change
+ * only when events are taken from them. Queues whose event times may change
+ * by themselves must be re-keyed with {@link #rebuild()}.</P>
+ */
+public class EventQueueHeap {
+	private EventQueue[] queues;
+	/** the times of the queues' next events, indexed by queue index */
+	private double[] times;
+	/** queue indexes in heap order (the earliest queue at index 0) */
+	private int[] heap;
+
+	/**
+	 * Constructor. Creates a heap of the given queues.
+	 * @param queues The event queues
+	 */
+	public EventQueueHeap(List<? extends EventQueue> queues) {
+		int n = queues.size();
+		this.queues = queues.toArray(new EventQueue[n]);
+		this.times = new double[n];
+		this.heap = new int[n];
+		rebuild();
+	}
+
+	/**
+	 * Re-keys all the queues and rebuilds the heap
+	 */
+	public void rebuild() {
+		for (int i = 0; i < this.queues.length; i++) {
+			this.times[i] = this.queues[i].nextEventsTime();
+			this.heap[i] = i;
+		}
+		for (int i = this.heap.length / 2 - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}
+
+	/**
+	 * Re-keys the first queue (the queue an event was just taken from)
+	 * and restores the heap order
+	 */
+	public void updateFirst() {
+		if (this.heap.length == 0) {
+			return;
+		}
+		this.times[this.heap[0]] = this.queues[this.heap[0]].nextEventsTime();
+		siftDown(0);
+	}
+
+	/**
+	 * Returns the queue that has the earliest next event
+	 * @return The queue or null if the heap is empty
+	 */
+	public EventQueue getFirst() {
+		return this.heap.length > 0 ? this.queues[this.heap[0]] : null;
+	}
+
+	/**
+	 * Returns the index of the queue that has the earliest next event
+	 * (index in the list given to the constructor)
+	 * @return The index or -1 if the heap is empty
+	 */
+	public int getFirstIndex() {
+		return this.heap.length > 0 ? this.heap[0] : -1;
+	}
+
+	/**
+	 * Returns the time of the earliest next event of the queues
+	 * @return The time or Double.MAX_VALUE if the heap is empty
+	 */
+	public double getFirstTime() {
+		return this.heap.length > 0 ?
+				this.times[this.heap[0]] : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Moves a queue down in the heap until the heap order is restored
+	 * @param pos Position of the queue in the heap
+	 */
+	private void siftDown(int pos) {
+		int n = this.heap.length;
+		int q = this.heap[pos];
+
+		while (true) {
+			int child = 2 * pos + 1;
+			if (child >= n) {
+				break;
+			}
+			if (child + 1 < n &&
+					isBefore(this.heap[child + 1], this.heap[child])) {
+				child++;
+			}
+			if (!isBefore(this.heap[child], q)) {
+				break;
+			}
+			this.heap[pos] = this.heap[child];
+			pos = child;
+		}
+		this.heap[pos] = q;
+	}
+
+	/**
+	 * Returns true if a queue's next event is before the other queue's
+	 * @param a Index of the first queue
+	 * @param b Index of the other queue
+	 * @return true if queue a is earlier (or as early but with smaller index)
+	 */
+	private boolean isBefore(int a, int b) {
+		return this.times[a] < this.times[b] ||
+			(this.times[a] == this.times[b] && a < b);
+	}
+}
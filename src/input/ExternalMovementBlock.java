@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.util.Arrays;
+
+/**
+ * Locations of the nodes at one time instance of an external movement
+ * trace, stored in primitive arrays. Nodes are identified by dense integer
+ * indexes instead of the trace's string IDs.
+ * @see ExternalMovementReader#readNextMovements(java.util.Map,
+ * ExternalMovementBlock)
+ */
+public class ExternalMovementBlock {
+	/** Index of the nodes that are not in the index map */
+	public static final int UNKNOWN_ID = -1;
+
+	private double time;
+	private int[] ids;
+	private double[] xs;
+	private double[] ys;
+	private int size;
+
+	/**
+	 * Constructor. Creates an empty block.
+	 * @param capacity Initial capacity of the block
+	 */
+	public ExternalMovementBlock(int capacity) {
+		capacity = Math.max(capacity, 1);
+		this.ids = new int[capacity];
+		this.xs = new double[capacity];
+		this.ys = new double[capacity];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds a location to the block
+	 * @param id Index of the node (or {@link #UNKNOWN_ID})
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 */
+	public void add(int id, double x, double y) {
+		if (this.size == this.ids.length) {
+			int capacity = this.size * 2;
+			this.ids = Arrays.copyOf(this.ids, capacity);
+			this.xs = Arrays.copyOf(this.xs, capacity);
+			this.ys = Arrays.copyOf(this.ys, capacity);
+		}
+		this.ids[size] = id;
+		this.xs[size] = x;
+		this.ys[size] = y;
+		this.size++;
+	}
+
+	/**
+	 * Removes all locations from the block (keeps the capacity)
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+
+	/**
+	 * Sets the time stamp of the locations
+	 * @param time The time stamp
+	 */
+	public void setTime(double time) {
+		this.time = time;
+	}
+
+	/**
+	 * Returns the time stamp of the locations
+	 * @return the time stamp
+	 */
+	public double getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Returns the number of locations in the block
+	 * @return the number of locations
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the node index of a location
+	 * @param index Index of the location
+	 * @return the node index or {@link #UNKNOWN_ID}
+	 */
+	public int getId(int index) {
+		return this.ids[index];
+	}
+
+	/**
+	 * Returns the x coordinate of a location
+	 * @param index Index of the location
+	 * @return the x coordinate
+	 */
+	public double getX(int index) {
+		return this.xs[index];
+	}
+
+	/**
+	 * Returns the y coordinate of a location
+	 * @param index Index of the location
+	 * @return the y coordinate
+	 */
+	public double getY(int index) {
+		return this.ys[index];
+	}
+}
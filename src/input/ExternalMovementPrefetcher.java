@@ -0,0 +1,128 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import core.SimError;
+
+/**
+ * Reads the time instances of an external movement trace on a background
+ * thread ahead of the simulation. The time instances are read to a fixed
+ * pool of {@link ExternalMovementBlock}s that are recycled, so the amount of
+ * memory used for the prefetched data is bounded by the lookahead.
+ * <P>The reader must not be used by any other thread after the prefetcher
+ * has been started and the ID mapping must not be modified.</P>
+ */
+public class ExternalMovementPrefetcher implements Runnable {
+	private ExternalMovementReader reader;
+	private Map<String, Integer> idIndex;
+	/** blocks read by the prefetching thread, in time order */
+	private BlockingQueue<ExternalMovementBlock> readBlocks;
+	/** blocks that can be (re)used for reading */
+	private BlockingQueue<ExternalMovementBlock> freeBlocks;
+	private Thread thread;
+	/** the exception that stopped the prefetching thread (or null) */
+	private volatile Throwable error;
+
+	/** the block last returned by {@link #nextBlock()} */
+	private ExternalMovementBlock current;
+	/** has the end of the trace been reached */
+	private boolean finished;
+
+	/**
+	 * Constructor. Creates a prefetcher and starts the prefetching thread.
+	 * @param reader The reader to read the trace with
+	 * @param idIndex Mapping of the external IDs to node indexes
+	 * @param lookahead How many time instances to read ahead at most
+	 */
+	public ExternalMovementPrefetcher(ExternalMovementReader reader,
+			Map<String, Integer> idIndex, int lookahead) {
+		int nrofBlocks = Math.max(lookahead, 1) + 1;
+		this.reader = reader;
+		this.idIndex = idIndex;
+		this.readBlocks =
+			new ArrayBlockingQueue<ExternalMovementBlock>(nrofBlocks);
+		this.freeBlocks =
+			new ArrayBlockingQueue<ExternalMovementBlock>(nrofBlocks);
+		for (int i = 0; i < nrofBlocks; i++) {
+			this.freeBlocks.add(
+					new ExternalMovementBlock(Math.max(idIndex.size(), 1)));
+		}
+		this.finished = false;
+
+		this.thread = new Thread(this, "ExternalMovementPrefetcher");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Reads time instances until the end of the trace (or until stopped)
+	 */
+	public void run() {
+		try {
+			ExternalMovementBlock block;
+			do {
+				block = this.freeBlocks.take();
+				try {
+					this.reader.readNextMovements(this.idIndex, block);
+				} catch (RuntimeException e) {
+					this.error = e;
+					block.clear();
+				} catch (Error e) { // e.g. SettingsError
+					this.error = e;
+					block.clear();
+				}
+				this.readBlocks.put(block);
+			} while (block.size() > 0);
+		} catch (InterruptedException e) {
+			return; // stopped
+		}
+	}
+
+	/**
+	 * Returns the next time instance of the trace. The returned block is
+	 * valid until the next call of this method. Blocks until the time
+	 * instance has been read.
+	 * @return The locations of the next time instance or an empty block if
+	 * there are no more moves
+	 * @throws SimError if reading the trace failed or the thread was
+	 * interrupted while waiting
+	 */
+	public ExternalMovementBlock nextBlock() {
+		if (this.finished) {
+			return this.current;
+		}
+		if (this.current != null) {
+			this.freeBlocks.add(this.current);
+		}
+
+		try {
+			this.current = this.readBlocks.take();
+		} catch (InterruptedException e) {
+			throw new SimError("Interrupted while waiting for movement data",
+					e);
+		}
+
+		if (this.current.size() == 0) {
+			this.finished = true;
+			if (this.error instanceof Error) {
+				throw (Error)this.error;
+			} else if (this.error != null) {
+				throw (RuntimeException)this.error;
+			}
+		}
+		return this.current;
+	}
+
+	/**
+	 * Stops the prefetching thread
+	 */
+	public void stop() {
+		this.thread.interrupt();
+	}
+}
@@ -8,6 +8,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 import core.Coord;
@@ -100,9 +101,39 @@ public class ExternalMovementReader {
 	public List<Tuple<String, Coord>> readNextMovements() {
 		ArrayList<Tuple<String, Coord>> moves = 
 			new ArrayList<Tuple<String, Coord>>();
-		
+		readNext(moves, null, null);
+		return moves;
+	}
+	
+	/**
+	 * Reads all new locations that belong to the same time instance to a
+	 * block of primitive arrays. The block is cleared first and its time
+	 * stamp is set to the time stamp of the read locations.
+	 * @param idIndex Mapping of the external IDs to node indexes. Locations
+	 * of IDs that are not in the mapping are stored with index 
+	 * {@link ExternalMovementBlock#UNKNOWN_ID}.
+	 * @param block The block where the locations are read to. The block is
+	 * empty after the call if there were no more moves.
+	 * @throws SettingError if an invalid line was read
+	 */
+	public void readNextMovements(Map<String, Integer> idIndex, 
+			ExternalMovementBlock block) {
+		block.clear();
+		readNext(null, idIndex, block);
+		block.setTime(lastTimeStamp);
+	}
+	
+	/**
+	 * Reads all new locations that belong to the same time instance either
+	 * to a list of tuples or to a block
+	 * @param moves The list where the tuples are added or null
+	 * @param idIndex Mapping of IDs to node indexes (if block is used)
+	 * @param block The block where the locations are added or null
+	 */
+	private void readNext(List<Tuple<String, Coord>> moves, 
+			Map<String, Integer> idIndex, ExternalMovementBlock block) {
 		if (!scanner.hasNextLine()) {
-			return moves;
+			return;
 		}
 		
 		Scanner lineScan = new Scanner(lastLine);
@@ -128,7 +159,7 @@ public class ExternalMovementReader {
 			}
 						
 			// add previous line's tuple
-			moves.add(new Tuple<String, Coord>(id, new Coord(x,y)));		
+			addMove(id, x, y, moves, idIndex, block);
 
 			lineScan = new Scanner(lastLine);
 			
@@ -149,10 +180,24 @@ public class ExternalMovementReader {
 		}
 		
 		if (!scanner.hasNextLine()) {	// add the last tuple of the file
+			addMove(id, x, y, moves, idIndex, block);
+		}
+	}
+	
+	/**
+	 * Adds a read location to the list or to the block
+	 */
+	private void addMove(String id, double x, double y, 
+			List<Tuple<String, Coord>> moves, Map<String, Integer> idIndex,
+			ExternalMovementBlock block) {
+		if (moves != null) {
 			moves.add(new Tuple<String, Coord>(id, new Coord(x,y)));
+			return;
 		}
 		
-		return moves;
+		Integer index = idIndex.get(id);
+		block.add(index != null ? index : ExternalMovementBlock.UNKNOWN_ID,
+				x, y);
 	}
 	
 	/**
@@ -31,10 +31,11 @@ public class MessageBurstGenerator extends MessageEventGenerator {
 	}
 	
 	/** 
-	 * Returns the next message creation event
-	 * @see input.EventQueue#nextEvent()
+	 * Draws the next message creation event to the workload
+	 * @see MessageEventGenerator#drawEvent(MessageWorkload)
 	 */
-	public ExternalEvent nextEvent() {
+	@Override
+	protected void drawEvent(MessageWorkload w) {
 		int responseSize = 0; /* no responses requested */
 		int msgSize;
 		int interval;
@@ -50,8 +51,8 @@ public class MessageBurstGenerator extends MessageEventGenerator {
 		}
 		
 		msgSize = drawMessageSize();		
-		MessageCreateEvent mce = new MessageCreateEvent(from, to, getID(), 
-				msgSize, responseSize, this.nextEventsTime);
+		w.add(this.nextEventsTime, from, to, msgSize, responseSize, 
+				nextIdNumber());
 
 		if (to < this.toHostRange[1] - 1) {
 			this.nextToOffset++;
@@ -85,8 +86,6 @@ public class MessageBurstGenerator extends MessageEventGenerator {
 			/* next event would be later than the end time */
 			this.nextEventsTime = Double.MAX_VALUE;
 		}
-		
-		return mce;
 	}
 
 }
\ No newline at end of file
@@ -13,6 +13,12 @@ import core.SettingsError;
  * Message creation -external events generator. Creates uniformly distributed
  * message creation patterns whose message size and inter-message intervals can
  * be configured.
+ * <P>The events are generated ahead in blocks of {@link #BLOCK_SIZE_S} events
+ * to a {@link MessageWorkload}; the event objects are created only when the
+ * events are requested. Subclasses define the workload by overriding
+ * {@link #drawEvent(MessageWorkload)}, or by overriding {@link #nextEvent()}
+ * and keeping {@link #nextEventsTime} at the time of the event the next
+ * call returns (the blocks are then not used).</P>
  */
 public class MessageEventGenerator implements EventQueue {
 	/** Message size range -setting id ({@value}). Can be either a single
@@ -44,8 +50,13 @@ public class MessageEventGenerator implements EventQueue {
 	 * and after the second value. By default, messages are created for the 
 	 * whole simulation time. */
 	public static final String MESSAGE_TIME_S = "time";
+	/** Block size -setting id ({@value}). Number of events generated ahead
+	 * at a time. Default is {@link #DEF_BLOCK_SIZE}. */
+	public static final String BLOCK_SIZE_S = "blockSize";
+	/** Default block size ({@value}) */
+	public static final int DEF_BLOCK_SIZE = 256;
 	
-	/** Time of the next event (simulated seconds) */
+	/** Time of the next event to draw (simulated seconds) */
 	protected double nextEventsTime = 0;
 	/** Range of host addresses that can be senders or receivers */
 	protected int[] hostRange = {0, 0};
@@ -65,6 +76,12 @@ public class MessageEventGenerator implements EventQueue {
 	/** Random number generator for this Class */
 	protected Random rng;
 	
+	/** Events generated ahead */
+	private MessageWorkload workload;
+	/** Index of the next event to return from the workload */
+	private int workloadIndex;
+	private int blockSize;
+	
 	/**
 	 * Constructor, initializes the interval between events, 
 	 * and the size of messages generated, as well as number 
@@ -83,6 +100,17 @@ public class MessageEventGenerator implements EventQueue {
 		else {
 			this.msgTime = null;
 		}
+		this.blockSize = DEF_BLOCK_SIZE;
+		if (s.contains(BLOCK_SIZE_S)) {
+			this.blockSize = s.getInt(BLOCK_SIZE_S);
+			if (this.blockSize < 1) {
+				throw new SettingsError("Invalid " + BLOCK_SIZE_S + " value " +
+						this.blockSize);
+			}
+		}
+		this.workload = new MessageWorkload(this.blockSize);
+		this.workloadIndex = 0;
+		
 		if (s.contains(TO_HOST_RANGE_S)) {
 			this.toHostRange = s.getCsvInts(TO_HOST_RANGE_S, 2);
 		}
@@ -181,11 +209,14 @@ public class MessageEventGenerator implements EventQueue {
 		return to;
 	}
 	
-	/** 
-	 * Returns the next message creation event
-	 * @see input.EventQueue#nextEvent()
+	/**
+	 * Draws the next message creation event to the workload and advances
+	 * {@link #nextEventsTime} to the time of the event after it (or to 
+	 * Double.MAX_VALUE if there are no more events).
+	 * Called only when {@link #nextEventsTime} is not Double.MAX_VALUE.
+	 * @param w The workload where to add the event
 	 */
-	public ExternalEvent nextEvent() {
+	protected void drawEvent(MessageWorkload w) {
 		int responseSize = 0; /* zero stands for one way messages */
 		int msgSize;
 		int interval;
@@ -199,33 +230,57 @@ public class MessageEventGenerator implements EventQueue {
 		msgSize = drawMessageSize();
 		interval = drawNextEventTimeDiff();
 		
-		/* Create event and advance to next event */
-		MessageCreateEvent mce = new MessageCreateEvent(from, to, this.getID(), 
-				msgSize, responseSize, this.nextEventsTime);
+		/* Add event and advance to next event */
+		w.add(this.nextEventsTime, from, to, msgSize, responseSize, 
+				nextIdNumber());
 		this.nextEventsTime += interval;	
 		
 		if (this.msgTime != null && this.nextEventsTime > this.msgTime[1]) {
 			/* next event would be later than the end time */
 			this.nextEventsTime = Double.MAX_VALUE;
 		}
-		
-		return mce;
+	}
+	
+	/** 
+	 * Returns the next message creation event. Draws a new block of events
+	 * when the previous block has been used.
+	 * @see input.EventQueue#nextEvent()
+	 */
+	public ExternalEvent nextEvent() {
+		if (this.workloadIndex == this.workload.size()) {
+			this.workload.clear();
+			this.workloadIndex = 0;
+			while (this.workload.size() < this.blockSize && 
+					this.nextEventsTime != Double.MAX_VALUE) {
+				drawEvent(this.workload);
+			}
+			if (this.workload.size() == 0) {
+				return new ExternalEvent(Double.MAX_VALUE);
+			}
+		}
+		return this.workload.createEvent(this.workloadIndex++, this.idPrefix);
 	}
 
 	/**
-	 * Returns next message creation event's time
+	 * Returns next message creation event's time, i.e., the time of the
+	 * next event in the current block or, if the block has been used, the
+	 * time of the next event to draw
 	 * @see input.EventQueue#nextEventsTime()
 	 */
 	public double nextEventsTime() {
+		if (this.workloadIndex < this.workload.size()) {
+			return this.workload.getTime(this.workloadIndex);
+		}
 		return this.nextEventsTime;
 	}
 	
 	/**
-	 * Returns a next free message ID
-	 * @return next globally unique message ID
+	 * Returns the number of the next free message ID. The ID is the
+	 * ID prefix followed by the number.
+	 * @return number of the next globally unique message ID
 	 */
-	protected String getID(){
+	protected int nextIdNumber() {
 		this.id++;
-		return idPrefix + this.id;
+		return this.id;
 	}	
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.util.Arrays;
+
+/**
+ * Block of pre-generated message creation events stored in primitive arrays
+ * (creation time, sender, receiver, size, response size and ID number).
+ * The event objects and their ID strings are created only when the events
+ * are taken from the block.
+ * @see MessageEventGenerator
+ */
+public class MessageWorkload {
+	/** Sender address of entries that don't create a message */
+	private static final int NO_MESSAGE = -1;
+
+	private double[] times;
+	private int[] from;
+	private int[] to;
+	private int[] sizes;
+	private int[] responseSizes;
+	private int[] idNumbers;
+	private int size;
+
+	/**
+	 * Constructor. Creates an empty block.
+	 * @param capacity Initial capacity of the block
+	 */
+	public MessageWorkload(int capacity) {
+		capacity = Math.max(capacity, 1);
+		this.times = new double[capacity];
+		this.from = new int[capacity];
+		this.to = new int[capacity];
+		this.sizes = new int[capacity];
+		this.responseSizes = new int[capacity];
+		this.idNumbers = new int[capacity];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds a message creation event to the block
+	 * @param time Time when the message is created
+	 * @param fromAddr Address of the sender
+	 * @param toAddr Address of the receiver
+	 * @param msgSize Size of the message
+	 * @param responseSize Size of the requested response (0 = no response)
+	 * @param idNumber Number of the message ID (ID is prefix + number)
+	 */
+	public void add(double time, int fromAddr, int toAddr, int msgSize,
+			int responseSize, int idNumber) {
+		if (this.size == this.times.length) {
+			int capacity = this.size * 2;
+			this.times = Arrays.copyOf(this.times, capacity);
+			this.from = Arrays.copyOf(this.from, capacity);
+			this.to = Arrays.copyOf(this.to, capacity);
+			this.sizes = Arrays.copyOf(this.sizes, capacity);
+			this.responseSizes = Arrays.copyOf(this.responseSizes, capacity);
+			this.idNumbers = Arrays.copyOf(this.idNumbers, capacity);
+		}
+		this.times[size] = time;
+		this.from[size] = fromAddr;
+		this.to[size] = toAddr;
+		this.sizes[size] = msgSize;
+		this.responseSizes[size] = responseSize;
+		this.idNumbers[size] = idNumber;
+		this.size++;
+	}
+
+	/**
+	 * Adds an event that doesn't create any message
+	 * @param time Time of the event
+	 */
+	public void addNoMessage(double time) {
+		add(time, NO_MESSAGE, NO_MESSAGE, 0, 0, 0);
+	}
+
+	/**
+	 * Returns the number of events in the block
+	 * @return the number of events
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the time of an event
+	 * @param index Index of the event
+	 * @return the time of the event
+	 */
+	public double getTime(int index) {
+		return this.times[index];
+	}
+
+	/**
+	 * Creates the event object of an event
+	 * @param index Index of the event
+	 * @param idPrefix Prefix of the message ID
+	 * @return The event
+	 */
+	public ExternalEvent createEvent(int index, String idPrefix) {
+		if (this.from[index] == NO_MESSAGE) {
+			return new ExternalEvent(this.times[index]);
+		}
+		return new MessageCreateEvent(this.from[index], this.to[index],
+				idPrefix + this.idNumbers[index], this.sizes[index],
+				this.responseSizes[index], this.times[index]);
+	}
+
+	/**
+	 * Removes all events from the block (keeps the capacity)
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+}
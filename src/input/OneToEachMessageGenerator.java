@@ -24,6 +24,8 @@ import core.SettingsError;
  */
 public class OneToEachMessageGenerator extends MessageEventGenerator {
 	private List<Integer> toIds;
+	/** index of the next unused address in the list */
+	private int nextIndex;
 	
 	public OneToEachMessageGenerator(Settings s) {
 		super(s);
@@ -37,39 +39,40 @@ public class OneToEachMessageGenerator extends MessageEventGenerator {
 			toIds.add(i);
 		}
 		Collections.shuffle(toIds, rng);
+		this.nextIndex = 0;
 	}
 	
 	/** 
-	 * Returns the next message creation event
-	 * @see input.EventQueue#nextEvent()
+	 * Draws the next message creation event to the workload
+	 * @see MessageEventGenerator#drawEvent(MessageWorkload)
 	 */
-	public ExternalEvent nextEvent() {
+	@Override
+	protected void drawEvent(MessageWorkload w) {
 		int responseSize = 0; /* no responses requested */
+		double time = this.nextEventsTime;
 		int from;
 		int to;
 		
 		from = drawHostAddress(hostRange);	
-		to = this.toIds.remove(0);
+		to = this.toIds.get(nextIndex++);
 		
 		if (to == from) { /* skip self */
-			if (this.toIds.size() == 0) { /* oops, no more from addresses */
+			if (nextIndex == this.toIds.size()) { /* oops, no more addresses */
 				this.nextEventsTime = Double.MAX_VALUE;
-				return new ExternalEvent(Double.MAX_VALUE);
+				w.addNoMessage(time);
+				return;
 			} else {
-				to = this.toIds.remove(0);
+				to = this.toIds.get(nextIndex++);
 			}
 		}
 
-		if (this.toIds.size() == 0) {
+		if (nextIndex == this.toIds.size()) {
 			this.nextEventsTime = Double.MAX_VALUE; /* no messages left */
 		} else {
 			this.nextEventsTime += drawNextEventTimeDiff();
 		}
 				
-		MessageCreateEvent mce = new MessageCreateEvent(from, to, getID(), 
-				drawMessageSize(), responseSize, this.nextEventsTime);
-		
-		return mce;
+		w.add(time, from, to, drawMessageSize(), responseSize, nextIdNumber());
 	}
 
 }
\ No newline at end of file
@@ -4,52 +4,58 @@
  */
 package input;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Event queue where simulation objects can request an update to happen
- * at the specified simulation time. Multiple updates at the same time 
+ * at the specified simulation time. Multiple updates at the same time
  * are merged to a single update.
+ * <P>The update times are kept in a binary min-heap of primitive doubles,
+ * so adding an update and taking the next one both take O(log n) time.
+ * Duplicate times are merged when the next update is taken.</P>
  */
 public class ScheduledUpdatesQueue implements EventQueue {
-	/** Time of the event (simulated seconds) */
-	private ExternalEvent nextEvent;
-	private List<ExternalEvent> updates;
-	
+	/** Initial capacity of the heap */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** Update times in a min-heap (the earliest time at index 0) */
+	private double[] times;
+	/** Number of times in the heap */
+	private int size;
+
 	/**
 	 * Constructor. Creates an empty update queue.
 	 */
 	public ScheduledUpdatesQueue(){
-		this.nextEvent = new ExternalEvent(Double.MAX_VALUE);
-		this.updates = new ArrayList<ExternalEvent>();
+		this.times = new double[INITIAL_CAPACITY];
+		this.size = 0;
 	}
-	
+
 	/**
 	 * Returns the next scheduled event or event with time Double.MAX_VALUE
-	 * if there aren't any. 
+	 * if there aren't any.
 	 * @return the next scheduled event
 	 */
 	public ExternalEvent nextEvent() {
-		ExternalEvent event = this.nextEvent;
-		
-		if (this.updates.size() == 0) {
-			this.nextEvent = new ExternalEvent(Double.MAX_VALUE);
+		if (this.size == 0) {
+			return new ExternalEvent(Double.MAX_VALUE);
 		}
-		else {
-			this.nextEvent = this.updates.remove(0);
-		}
-		
-		return event;
+
+		double time = this.times[0];
+		do { /* remove also all the merged updates for the same time */
+			removeFirst();
+		} while (this.size > 0 && this.times[0] == time);
+
+		return new ExternalEvent(time);
 	}
-	
+
 	/**
 	 * Returns the next scheduled event's time or Double.MAX_VALUE if there
 	 * aren't any events left
 	 * @return the next scheduled event's time
 	 */
 	public double nextEventsTime() {
-		return this.nextEvent.getTime();
+		return this.size > 0 ? this.times[0] : Double.MAX_VALUE;
 	}
 
 	/**
@@ -57,49 +63,65 @@ public class ScheduledUpdatesQueue implements EventQueue {
 	 * @param simTime The time when the update should happen
 	 */
 	public void addUpdate(double simTime) {
-		ExternalEvent ee = new ExternalEvent(simTime);
-
-		if (ee.compareTo(nextEvent) == 0) { // this event is already next
-			return;
+		if (this.size > 0 && this.times[0] == simTime) {
+			return; // this event is already next
 		}
-		else if (this.nextEvent.getTime() > simTime) { // new nextEvent
-			putToQueue(this.nextEvent); // put the old nextEvent back to q
-			this.nextEvent = ee;
+		if (this.size == this.times.length) {
+			this.times = Arrays.copyOf(this.times, this.size * 2);
 		}
-		else { // given event happens later..
-			putToQueue(ee);
+
+		/* sift the new time up from the bottom of the heap */
+		int i = this.size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (this.times[parent] <= simTime) {
+				break;
+			}
+			this.times[i] = this.times[parent];
+			i = parent;
 		}
+		this.times[i] = simTime;
 	}
-	
+
 	/**
-	 * Puts a event to the queue in the right place
-	 * @param ee The event to put to the queue
+	 * Removes the earliest time from the heap
 	 */
-	private void putToQueue(ExternalEvent ee) {
-		double eeTime = ee.getTime();
-		
-		for (int i=0, n=this.updates.size(); i<n; i++) {
-			double time = updates.get(i).getTime();
-			if (time == eeTime) {
-				return; // update with the given time exists -> no need for new
+	private void removeFirst() {
+		double last = this.times[--this.size];
+		int n = this.size;
+		int i = 0;
+
+		/* sift the last time down from the top of the heap */
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= n) {
+				break;
 			}
-			else if (eeTime < time) {
-				this.updates.add(i, ee);
-				return;
+			if (child + 1 < n && this.times[child + 1] < this.times[child]) {
+				child++;
 			}
+			if (last <= this.times[child]) {
+				break;
+			}
+			this.times[i] = this.times[child];
+			i = child;
+		}
+		if (n > 0) {
+			this.times[i] = last;
 		}
-		
-		/* all existing updates are earlier -> add to the end of the list */
-		this.updates.add(ee);  
 	}
-	
+
 	public String toString() {
-		String times = "updates @ " + this.nextEvent.getTime();
-		
-		for (ExternalEvent ee : this.updates) {
-			times += ", " + ee.getTime();
+		double[] sorted = Arrays.copyOf(this.times, this.size);
+		Arrays.sort(sorted);
+		String times = "updates @ " + nextEventsTime();
+
+		for (int i = 1; i < sorted.length; i++) {
+			if (sorted[i] != sorted[i - 1]) {
+				times += ", " + sorted[i];
+			}
 		}
-		
+
 		return times;
 	}
 }
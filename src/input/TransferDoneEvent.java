@@ -0,0 +1,39 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package input;
+
+import core.World;
+
+/**
+ * Event for the time when a message transfer that a host started is done.
+ * The event only marks the sending host as touched so that its router
+ * finalizes the transfer in the following host update, at the exact time
+ * the transfer is done.
+ * @see TransferDoneQueue
+ */
+public class TransferDoneEvent extends ExternalEvent {
+	/** address of the host that is sending the message */
+	private int fromAddr;
+	
+	/**
+	 * Creates a transfer done event
+	 * @param from Address of the host that is sending the message
+	 * @param time Time when the transfer is done
+	 */
+	public TransferDoneEvent(int from, double time) {
+		super(time);
+		this.fromAddr = from;
+	}
+	
+	@Override
+	public void processEvent(World world) {
+		world.getNodeByAddress(this.fromAddr); // touches the sender
+	}
+	
+	@Override
+	public String toString() {
+		return "TRANSFER_DONE @" + this.time + " " + fromAddr;
+	}
+}
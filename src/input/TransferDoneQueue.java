@@ -0,0 +1,160 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package input;
+
+import java.util.Arrays;
+
+/**
+ * Event queue of the times when the ongoing message transfers are done.
+ * The times and sender addresses are kept in a binary min-heap of
+ * primitives; transfers done at the same time are returned in the order
+ * they were added.
+ * @see TransferDoneEvent
+ */
+public class TransferDoneQueue implements EventQueue {
+	/** Initial capacity of the heap */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** transfer done times in a min-heap (the earliest at index 0) */
+	private double[] times;
+	/** sequence numbers of the entries (for ordering equal times) */
+	private long[] seqs;
+	/** addresses of the sending hosts */
+	private int[] hosts;
+	private int size;
+	private long nextSeq;
+
+	/**
+	 * Constructor. Creates an empty queue.
+	 */
+	public TransferDoneQueue() {
+		this.times = new double[INITIAL_CAPACITY];
+		this.seqs = new long[INITIAL_CAPACITY];
+		this.hosts = new int[INITIAL_CAPACITY];
+		this.size = 0;
+		this.nextSeq = 0;
+	}
+
+	/**
+	 * Adds a transfer to the queue
+	 * @param time Time when the transfer is done
+	 * @param fromAddr Address of the host sending the message
+	 */
+	public void addTransfer(double time, int fromAddr) {
+		if (this.size == this.times.length) {
+			int capacity = this.size * 2;
+			this.times = Arrays.copyOf(this.times, capacity);
+			this.seqs = Arrays.copyOf(this.seqs, capacity);
+			this.hosts = Arrays.copyOf(this.hosts, capacity);
+		}
+
+		long seq = this.nextSeq++;
+		int i = this.size++;
+		while (i > 0) { /* sift up */
+			int parent = (i - 1) >>> 1;
+			if (!isBefore(time, seq, parent)) {
+				break;
+			}
+			move(parent, i);
+			i = parent;
+		}
+		this.times[i] = time;
+		this.seqs[i] = seq;
+		this.hosts[i] = fromAddr;
+	}
+
+	/**
+	 * Returns the next transfer done event or an event with time
+	 * Double.MAX_VALUE if there aren't any.
+	 * @return the next transfer done event
+	 */
+	public ExternalEvent nextEvent() {
+		if (this.size == 0) {
+			return new ExternalEvent(Double.MAX_VALUE);
+		}
+		TransferDoneEvent event = new TransferDoneEvent(this.hosts[0],
+				this.times[0]);
+
+		int n = --this.size;
+		double time = this.times[n];
+		long seq = this.seqs[n];
+		int host = this.hosts[n];
+		int i = 0;
+		while (true) { /* sift the last entry down from the top */
+			int child = 2 * i + 1;
+			if (child >= n) {
+				break;
+			}
+			if (child + 1 < n && isBefore(this.times[child + 1],
+					this.seqs[child + 1], child)) {
+				child++;
+			}
+			if (!isBefore(this.times[child], this.seqs[child], time, seq)) {
+				break;
+			}
+			move(child, i);
+			i = child;
+		}
+		if (n > 0) {
+			this.times[i] = time;
+			this.seqs[i] = seq;
+			this.hosts[i] = host;
+		}
+
+		return event;
+	}
+
+	/**
+	 * Returns the time of the next transfer done event or Double.MAX_VALUE
+	 * if there aren't any
+	 * @return the next event's time
+	 */
+	public double nextEventsTime() {
+		return this.size > 0 ? this.times[0] : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the number of transfers in the queue
+	 * @return the number of transfers
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Moves an entry of the heap to another position
+	 * @param from The position to move from
+	 * @param to The position to move to
+	 */
+	private void move(int from, int to) {
+		this.times[to] = this.times[from];
+		this.seqs[to] = this.seqs[from];
+		this.hosts[to] = this.hosts[from];
+	}
+
+	/**
+	 * Returns true if the given entry is before the entry at a position
+	 * @param time Time of the entry
+	 * @param seq Sequence number of the entry
+	 * @param pos The position of the other entry
+	 * @return true if the entry is before the other one
+	 */
+	private boolean isBefore(double time, long seq, int pos) {
+		return isBefore(time, seq, this.times[pos], this.seqs[pos]);
+	}
+
+	/**
+	 * Returns true if an entry is before another
+	 * @param time Time of the entry
+	 * @param seq Sequence number of the entry
+	 * @param otherTime Time of the other entry
+	 * @param otherSeq Sequence number of the other entry
+	 * @return true if the entry is before the other one
+	 */
+	private static boolean isBefore(double time, long seq, double otherTime,
+			long otherSeq) {
+		return time < otherTime || (time == otherTime && seq < otherSeq);
+	}
+}
@@ -11,21 +11,48 @@ import core.DTNHost;
 import core.NetworkInterface;
 import core.Settings;
 import core.VBRConnection;
+import core.World;
 
 /**
  * A simple Network Interface that provides a variable bit-rate service, where
  * the bit-rate depends on the number of other transmitting stations within
  * range The current transmit speed is updated only if there are ongoing
  * transmissions. The configured transmit speed is the maximum obtainable speed.
+ * <P>With the two-phase interference model (see
+ * {@link #TWO_PHASE_INTERFERENCE_S}) the transmission states and speeds of
+ * all interfaces are computed once per simulation time instance from the
+ * state at the beginning of the update (see {@link InterferenceState}), 
+ * so the speeds don't depend on the update order of the hosts. Connections
+ * that go up or down and transfers that start during an update affect the
+ * speeds only from the next update on (i.e., with a lag of one update).</P>
  */
 public class InterferenceLimitedInterface extends NetworkInterface {
+	/**
+	 * Two-phase interference model -setting id ({@value}). Boolean in the
+	 * {@link World#SETTINGS_NS} namespace. Default is false (the speed
+	 * of an interface is computed when it's updated, from the neighbors'
+	 * states at that moment).
+	 */
+	public static final String TWO_PHASE_INTERFERENCE_S = 
+		"twoPhaseInterference";
+
 	protected int currentTransmitSpeed;
 	protected int numberOfTransmissions;
+	/** is the two-phase interference model used */
+	private boolean twoPhase;
+	/** the shared interference state (if two-phase model is used) */
+	private InterferenceState state;
+	/** index of this interface in the interference state */
+	private int stateIndex;
 
 	public InterferenceLimitedInterface(Settings s) {
 		super(s);
 		this.currentTransmitSpeed = 0;
 		this.numberOfTransmissions = 0;
+		
+		Settings optimization = new Settings(World.SETTINGS_NS);
+		this.twoPhase = optimization.contains(TWO_PHASE_INTERFERENCE_S) &&
+			optimization.getBoolean(TWO_PHASE_INTERFERENCE_S);
 	}
 
 	/**
@@ -38,6 +65,11 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 		this.transmitSpeed = ni.transmitSpeed;
 		this.currentTransmitSpeed = 0;
 		this.numberOfTransmissions = 0;
+		this.twoPhase = ni.twoPhase;
+		if (this.twoPhase) {
+			this.state = InterferenceState.getInstance();
+			this.stateIndex = state.register(this);
+		}
 	}
 
 	
@@ -78,6 +110,11 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 	 * that are out of range).
 	 */
 	public void update() {
+		if (this.state != null) {
+			// computes the speeds of all interfaces (once per time instance)
+			this.state.update();
+		}
+		
 		// First break the old ones
 		optimizer.updateLocation(this);
 		for (int i=0; i<this.connections.size(); ) {
@@ -100,34 +137,82 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 		for (NetworkInterface i : interfaces) 
 			connect(i);
 
-		// Find the current number of transmissions
-		// (to calculate the current transmission speed
-		numberOfTransmissions = 0;
-		int numberOfActive = 1;
-		for (Connection con : this.connections) {
-			if (con.getMessage() != null) {
-				numberOfTransmissions++;
-			}
-			if (((InterferenceLimitedInterface)con.getOtherInterface(this)).
-					isTransferring() == true) {
-				numberOfActive++;
+		if (this.state == null) {
+			// Find the current number of transmissions
+			// (to calculate the current transmission speed
+			numberOfTransmissions = 0;
+			int numberOfActive = 1;
+			for (Connection con : this.connections) {
+				if (con.getMessage() != null) {
+					numberOfTransmissions++;
+				}
+				if (((InterferenceLimitedInterface)con.getOtherInterface(this)).
+						isTransferring() == true) {
+					numberOfActive++;
+				}
 			}
+			currentTransmitSpeed = computeTransmitSpeed(numberOfTransmissions,
+					numberOfActive);
 		}
-
-		int ntrans = numberOfTransmissions;
-		if ( numberOfTransmissions < 1) ntrans = 1;
-		if ( numberOfActive <2 ) numberOfActive = 2;
+		
+		for (Connection con : getConnections()) {
+			con.update();
+		}
+	}
+	
+	/**
+	 * Computes the transmit speed of this interface
+	 * @param nrofTransmissions Number of ongoing transmissions
+	 * @param nrofActive Number of transmitting stations in range (including
+	 * this)
+	 * @return The transmit speed
+	 */
+	private int computeTransmitSpeed(int nrofTransmissions, int nrofActive) {
+		int ntrans = nrofTransmissions;
+		if ( nrofTransmissions < 1) ntrans = 1;
+		if ( nrofActive <2 ) nrofActive = 2;
 
 		// Based on the equation of Gupta and Kumar - and the transmission speed
 		// is divided equally to all the ongoing transmissions 
-		currentTransmitSpeed = (int)Math.floor((double)transmitSpeed / 
-				(Math.sqrt((1.0*numberOfActive) *
-						Math.log(1.0*numberOfActive))) /
+		return (int)Math.floor((double)transmitSpeed / 
+				(Math.sqrt((1.0*nrofActive) *
+						Math.log(1.0*nrofActive))) /
 							ntrans );
-		
-		for (Connection con : getConnections()) {
-			con.update();
+	}
+	
+	/**
+	 * Returns the number of connections of this interface that have a 
+	 * transfer going on (first phase of the two-phase model)
+	 * @return The number of transmissions
+	 */
+	int countTransmissions() {
+		int count = 0;
+		for (int i = 0, n = this.connections.size(); i < n; i++) {
+			if (this.connections.get(i).getMessage() != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Updates the number of transmissions and the transmit speed of this 
+	 * interface from the first phase's results (second phase of the 
+	 * two-phase model)
+	 * @param state The interference state with the first phase's results
+	 */
+	void updateTransmitSpeed(InterferenceState state) {
+		int numberOfActive = 1;
+		for (int i = 0, n = this.connections.size(); i < n; i++) {
+			InterferenceLimitedInterface other = (InterferenceLimitedInterface)
+				this.connections.get(i).getOtherInterface(this);
+			if (state.getTransmissions(other.stateIndex) > 0) {
+				numberOfActive++;
+			}
 		}
+		this.numberOfTransmissions = state.getTransmissions(this.stateIndex);
+		this.currentTransmitSpeed = computeTransmitSpeed(
+				this.numberOfTransmissions, numberOfActive);
 	}
 
 	/** 
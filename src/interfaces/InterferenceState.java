@@ -0,0 +1,214 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import core.DTNSim;
+import core.Settings;
+import core.SimClock;
+import core.SimError;
+import core.World;
+
+/**
+ * Interference state of all {@link InterferenceLimitedInterface}s that use
+ * the two-phase interference model. The state is computed once per
+ * simulation time instance, when the first interface is updated: first the
+ * number of ongoing transmissions of every interface is stored to a shared
+ * array and then every interface's transmit speed is computed from the
+ * states of its neighbors in that array. Both phases only read the
+ * connections, so they can be run in parallel
+ * (see {@link #INTERFERENCE_THREADS_S}).
+ * <P>Because the state is computed before any interface of the time
+ * instance has updated its connections, the connection changes and the
+ * transfers started at one time instance show in the state of the next
+ * one. The legacy model has a similar lag for the neighbors that are
+ * updated after the interface, but there it depends on the update
+ * order.</P>
+ */
+public class InterferenceState {
+	/**
+	 * Number of threads computing the interference state -setting id
+	 * ({@value}). Integer in the {@link World#SETTINGS_NS} namespace.
+	 * Default is 1 (the state is computed in the simulation thread).
+	 */
+	public static final String INTERFERENCE_THREADS_S = "interferenceThreads";
+	/** Minimum number of interfaces per parallel task */
+	private static final int MIN_CHUNK_SIZE = 256;
+
+	private static InterferenceState instance;
+
+	/** the interfaces by their index */
+	private List<InterferenceLimitedInterface> interfaces;
+	/** number of ongoing transmissions of the interfaces by index */
+	private int[] transmissions;
+	/** the time of the computed state */
+	private double stateTime;
+	private int nrofThreads;
+	private ExecutorService pool;
+
+	static {
+		DTNSim.registerForReset(InterferenceState.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Constructor.
+	 * @param nrofThreads Number of threads to compute the state with
+	 */
+	private InterferenceState(int nrofThreads) {
+		this.interfaces = new ArrayList<InterferenceLimitedInterface>();
+		this.transmissions = new int[0];
+		this.stateTime = Double.NaN;
+		this.nrofThreads = Math.max(nrofThreads, 1);
+	}
+
+	/**
+	 * Returns the interference state of the current simulation
+	 * @return The state
+	 */
+	public static synchronized InterferenceState getInstance() {
+		if (instance == null) {
+			Settings s = new Settings(World.SETTINGS_NS);
+			instance = new InterferenceState(s.contains(INTERFERENCE_THREADS_S)
+					? s.getInt(INTERFERENCE_THREADS_S) : 1);
+		}
+		return instance;
+	}
+
+	/**
+	 * Adds an interface to the state
+	 * @param ni The interface
+	 * @return Index of the interface in the state
+	 */
+	public synchronized int register(InterferenceLimitedInterface ni) {
+		this.interfaces.add(ni);
+		this.stateTime = Double.NaN;
+		return this.interfaces.size() - 1;
+	}
+
+	/**
+	 * Computes the state for the current simulation time, unless it has
+	 * been computed already
+	 */
+	public void update() {
+		double time = SimClock.getTime();
+		if (time == this.stateTime) {
+			return;
+		}
+		this.stateTime = time;
+
+		int n = this.interfaces.size();
+		if (this.transmissions.length != n) {
+			this.transmissions = Arrays.copyOf(this.transmissions, n);
+		}
+
+		if (this.nrofThreads == 1 || n < 2 * MIN_CHUNK_SIZE) {
+			countTransmissions(0, n);
+			updateSpeeds(0, n);
+		} else {
+			runInParallel(true);
+			runInParallel(false);
+		}
+	}
+
+	/**
+	 * Returns the number of ongoing transmissions of an interface in the
+	 * current state
+	 * @param index Index of the interface
+	 * @return The number of transmissions
+	 */
+	public int getTransmissions(int index) {
+		return this.transmissions[index];
+	}
+
+	/**
+	 * First phase: stores the number of ongoing transmissions of interfaces
+	 * @param from Index of the first interface
+	 * @param to Index of the last interface + 1
+	 */
+	private void countTransmissions(int from, int to) {
+		for (int i = from; i < to; i++) {
+			this.transmissions[i] = this.interfaces.get(i).
+				countTransmissions();
+		}
+	}
+
+	/**
+	 * Second phase: updates the transmit speeds of interfaces
+	 * @param from Index of the first interface
+	 * @param to Index of the last interface + 1
+	 */
+	private void updateSpeeds(int from, int to) {
+		for (int i = from; i < to; i++) {
+			this.interfaces.get(i).updateTransmitSpeed(this);
+		}
+	}
+
+	/**
+	 * Runs a phase for all interfaces in parallel and waits for it to finish
+	 * @param firstPhase If true, the first phase is run, otherwise the
+	 * second phase
+	 */
+	private void runInParallel(final boolean firstPhase) {
+		if (this.pool == null) {
+			this.pool = Executors.newFixedThreadPool(this.nrofThreads,
+					new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "InterferenceState");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+
+		int n = this.interfaces.size();
+		int chunk = Math.max((n + this.nrofThreads - 1) / this.nrofThreads,
+				MIN_CHUNK_SIZE);
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int start = 0; start < n; start += chunk) {
+			final int from = start;
+			final int to = Math.min(start + chunk, n);
+			tasks.add(new Callable<Object>() {
+				public Object call() {
+					if (firstPhase) {
+						countTransmissions(from, to);
+					} else {
+						updateSpeeds(from, to);
+					}
+					return null;
+				}
+			});
+		}
+
+		try {
+			for (Future<Object> f : this.pool.invokeAll(tasks)) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			throw new SimError("Interference computation was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new SimError("Interference computation failed", e);
+		}
+	}
+
+	/**
+	 * Resets the state (and stops the threads) for the next simulation run
+	 */
+	public static synchronized void reset() {
+		if (instance != null && instance.pool != null) {
+			instance.pool.shutdownNow();
+		}
+		instance = null;
+	}
+}
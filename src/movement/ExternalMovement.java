@@ -4,13 +4,14 @@
  */
 package movement;
 
+import input.ExternalMovementBlock;
+import input.ExternalMovementPrefetcher;
 import input.ExternalMovementReader;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 
 import core.Coord;
 import core.DTNSim;
@@ -20,6 +21,11 @@ import core.Tuple;
 
 /**
  * Movement model that uses external data of node locations.
+ * <P>The nodes are indexed by dense integer indexes (in the order of the
+ * first time instance of the trace) and the waypoints that have been read
+ * ahead of the simulation are kept in per-node ring buffers of primitive 
+ * values. Paths are created only when they are requested. Optionally, the 
+ * trace can be read on a background thread (see {@link #PREFETCH_S}).</P>
  */
 public class ExternalMovement extends MovementModel {
 	/** Namespace for settings */
@@ -28,16 +34,30 @@ public class ExternalMovement extends MovementModel {
 	public static final String MOVEMENT_FILE_S = "file";
 	/** number of preloaded intervals per preload run -setting id ({@value})*/
 	public static final String NROF_PRELOAD_S = "nrofPreload";
+	/** number of time instances to read ahead of the simulation on a 
+	 * background thread -setting id ({@value}). Default = 0 (the trace is
+	 * read in the simulation thread) */
+	public static final String PREFETCH_S = "prefetch";
 	
 	/** default initial location for excess nodes */
 	private static final Coord DEF_INIT_LOC = new Coord(0,0);
 	private static ExternalMovementReader reader;
 	private static String inputFileName;
 	
-	/** mapping of external id to movement model */
-	private static Map<String, ExternalMovement> idMapping;
+	/** mapping of external id to node index */
+	private static Map<String, Integer> idMapping;
+	/** movement models by node index */
+	private static ExternalMovement[] models;
 	/** initial locations for nodes */
 	private static List<Tuple<String, Coord>> initLocations;
+	/** index of the next unused initial location */
+	private static int nextInitLocation;
+	/** block where the trace is read to (if there's no prefetcher) */
+	private static ExternalMovementBlock block;
+	/** background reader of the trace (or null) */
+	private static ExternalMovementPrefetcher prefetcher;
+	/** number of time instances to prefetch (0 = no prefetching) */
+	private static int nrofPrefetch;
 	/** time of the very first location data */
 	private static double initTime;
 	/** sampling interval (seconds) of the location data */
@@ -48,18 +68,33 @@ public class ExternalMovement extends MovementModel {
 	private static double nrofPreload = 10;
 	/** minimum number intervals that should be preloaded ahead of sim time */
 	private static final double MIN_AHEAD_INTERVALS = 2;
+	/** initial capacity of the waypoint and path buffers */
+	private static final int INITIAL_CAPACITY = 4;
 		
 	/** the very first location of the node */
 	private Coord intialLocation;
-	/** queue of path-start-time, path tuples */
-	private Queue<Tuple<Double, Path>> pathQueue;
+	
+	/** ring buffer of the queued waypoints' coordinates and speeds */
+	private double[] wpX;
+	private double[] wpY;
+	private double[] wpSpeed;
+	/** index of the first queued waypoint and number of queued waypoints */
+	private int wpFirst;
+	private int wpCount;
+	/** ring buffer of the completed paths' start times and lengths */
+	private double[] pathStartTimes;
+	private int[] pathLengths;
+	/** index of the first completed path and number of completed paths */
+	private int pathFirst;
+	private int pathCount;
 	
 	/** when was the path currently under construction started */
 	private double latestPathStartTime;
 	/** the last location of path waypoint */
-	private Coord latestLocation;
-	/** the path currently under construction */
-	private Path latestPath;
+	private double latestX;
+	private double latestY;
+	/** number of waypoints in the path currently under construction */
+	private int latestPathLength;
 	
 	/** is this node active */
 	private boolean isActive;
@@ -79,12 +114,14 @@ public class ExternalMovement extends MovementModel {
 		if (idMapping == null) {
 			// run these the first time object is created or after reset call
 			Settings s = new Settings(EXTERNAL_MOVEMENT_NS);
-			idMapping = new HashMap<String, ExternalMovement>();
+			idMapping = new HashMap<String, Integer>();
 			inputFileName = s.getSetting(MOVEMENT_FILE_S);
 			reader = new ExternalMovementReader(inputFileName);
 			
 			initLocations = reader.readNextMovements();
 			initTime = reader.getLastTimeStamp();
+			models = new ExternalMovement[initLocations.size()];
+			nextInitLocation = 0;
 			samplingInterval = -1;
 			lastPreloadTime = -1;
 			
@@ -95,6 +132,7 @@ public class ExternalMovement extends MovementModel {
 					nrofPreload = 1;
 				}
 			}
+			nrofPrefetch = s.contains(PREFETCH_S) ? s.getInt(PREFETCH_S) : 0;
 		}
 	}
 	
@@ -106,17 +144,20 @@ public class ExternalMovement extends MovementModel {
 	private ExternalMovement(MovementModel mm) {
 		super(mm);
 		
-		pathQueue = new LinkedList<Tuple<Double, Path>>();
-		latestPath = null;
+		latestPathLength = 0;
 		
-		if (initLocations.size() > 0) { // we have location data left
-			// gets a new location from the list
-			Tuple<String, Coord> initLoc = initLocations.remove(0); 
-			this.intialLocation = this.latestLocation = initLoc.getValue();
+		Tuple<String, Coord> initLoc = assignInitLocation(this);
+		if (initLoc != null) { // we have location data left
+			this.intialLocation = initLoc.getValue();
+			this.latestX = intialLocation.getX();
+			this.latestY = intialLocation.getY();
 			this.latestPathStartTime = initTime;
 			
-			// puts the new model to model map for later updates
-			idMapping.put(initLoc.getKey(), this);
+			wpX = new double[INITIAL_CAPACITY];
+			wpY = new double[INITIAL_CAPACITY];
+			wpSpeed = new double[INITIAL_CAPACITY];
+			pathStartTimes = new double[INITIAL_CAPACITY];
+			pathLengths = new int[INITIAL_CAPACITY];
 			isActive = true;
 		}
 		else {
@@ -126,6 +167,27 @@ public class ExternalMovement extends MovementModel {
 		}		
 	}
 	
+	/**
+	 * Gives the next unused initial location to a new node and maps the
+	 * location's external ID to the node for later updates. Synchronized 
+	 * because nodes can be created concurrently.
+	 * @param em The movement model of the new node
+	 * @return The initial location tuple or null if there are no locations
+	 * left
+	 */
+	private static synchronized Tuple<String, Coord> assignInitLocation(
+			ExternalMovement em) {
+		if (nextInitLocation == initLocations.size()) {
+			return null;
+		}
+		
+		int index = nextInitLocation++;
+		Tuple<String, Coord> initLoc = initLocations.get(index);
+		models[index] = em;
+		idMapping.put(initLoc.getKey(), index);
+		return initLoc;
+	}
+	
 	/**
 	 * Checks if more paths should be preloaded and preloads them if
 	 * needed.
@@ -135,10 +197,10 @@ public class ExternalMovement extends MovementModel {
 			lastPreloadTime = readMorePaths();
 		}
 		
-		if (lastPreloadTime != Double.NaN && SimClock.getTime() >= 
+		if (!Double.isNaN(lastPreloadTime) && SimClock.getTime() >= 
 				lastPreloadTime - (samplingInterval * MIN_AHEAD_INTERVALS) ) {
 			for (int i=0; i < nrofPreload && 
-					lastPreloadTime != Double.NaN; i++) {
+					!Double.isNaN(lastPreloadTime); i++) {
 				lastPreloadTime = readMorePaths();
 			}
 		}
@@ -158,32 +220,109 @@ public class ExternalMovement extends MovementModel {
 	 * Adds a new location with a time to this model's move pattern. If the
 	 * node stayed stationary during the update, the current path is put to the
 	 * queue and a new path is started once the node starts moving.
-	 * @param loc The location
+	 * @param x The x coordinate of the location
+	 * @param y The y coordinate of the location
 	 * @param time When should the node be there
 	 */
-	private void addLocation(Coord loc, double time) {
+	private void addLocation(double x, double y, double time) {
 		assert samplingInterval > 0 : "Non-positive sampling interval!";
 		
-		if (loc.equals(latestLocation)) { // node didn't move
-			if (latestPath != null) {
+		if (x == latestX && y == latestY) { // node didn't move
+			if (latestPathLength > 0) {
 				// constructing path -> end constructing and put it in the queue
-				pathQueue.add(new Tuple<Double, Path>
-					(latestPathStartTime, latestPath));
-				latestPath = null;
+				addCompletedPath(latestPathStartTime, latestPathLength);
+				latestPathLength = 0;
 			}
 
 			this.latestPathStartTime = time;
 			return;
 		}
 		
-		if (latestPath == null) {
-			latestPath = new Path();			
-		}
-			
-		double speed = loc.distance(this.latestLocation) / samplingInterval;		
-		latestPath.addWaypoint(loc, speed);
+		double dx = x - latestX;
+		double dy = y - latestY;
+		double speed = Math.sqrt(dx*dx + dy*dy) / samplingInterval;
+		addWaypoint(x, y, speed);
+		latestPathLength++;
 
-		this.latestLocation = loc;
+		this.latestX = x;
+		this.latestY = y;
+	}
+	
+	/**
+	 * Adds a waypoint to the end of the waypoint ring buffer
+	 * @param x The x coordinate of the waypoint
+	 * @param y The y coordinate of the waypoint
+	 * @param speed Speed towards the waypoint
+	 */
+	private void addWaypoint(double x, double y, double speed) {
+		if (wpCount == wpX.length) {
+			wpX = unwrap(wpX, wpFirst, wpCount);
+			wpY = unwrap(wpY, wpFirst, wpCount);
+			wpSpeed = unwrap(wpSpeed, wpFirst, wpCount);
+			wpFirst = 0;
+		}
+		int i = (wpFirst + wpCount) % wpX.length;
+		wpX[i] = x;
+		wpY[i] = y;
+		wpSpeed[i] = speed;
+		wpCount++;
+	}
+	
+	/**
+	 * Adds a completed path to the end of the path ring buffer
+	 * @param startTime When the path starts
+	 * @param length Number of waypoints in the path
+	 */
+	private void addCompletedPath(double startTime, int length) {
+		if (pathCount == pathLengths.length) {
+			pathStartTimes = unwrap(pathStartTimes, pathFirst, pathCount);
+			int[] lengths = new int[pathCount * 2];
+			for (int i = 0; i < pathCount; i++) {
+				lengths[i] = pathLengths[(pathFirst + i) % pathCount];
+			}
+			pathLengths = lengths;
+			pathFirst = 0;
+		}
+		int i = (pathFirst + pathCount) % pathLengths.length;
+		pathStartTimes[i] = startTime;
+		pathLengths[i] = length;
+		pathCount++;
+	}
+	
+	/**
+	 * Returns a double sized copy of a full ring buffer where the values 
+	 * start from index 0
+	 * @param buffer The buffer
+	 * @param first Index of the first value in the buffer
+	 * @param count Number of values in the buffer (= its length)
+	 * @return The new buffer
+	 */
+	private static double[] unwrap(double[] buffer, int first, int count) {
+		double[] unwrapped = Arrays.copyOfRange(buffer, first, 
+				first + count * 2);
+		System.arraycopy(buffer, 0, unwrapped, count - first, first);
+		return unwrapped;
+	}
+	
+	/**
+	 * Creates a path of the first waypoints in the waypoint ring buffer and
+	 * removes the waypoints from the buffer
+	 * @param length Number of waypoints in the path
+	 * @return The path or null if the length is 0
+	 */
+	private Path createPath(int length) {
+		if (length == 0) {
+			return null;
+		}
+		
+		Path p = new Path();
+		for (int i = 0; i < length; i++) {
+			p.addWaypoint(new Coord(wpX[wpFirst], wpY[wpFirst]), 
+					wpSpeed[wpFirst]);
+			wpFirst = (wpFirst + 1) % wpX.length;
+		}
+		wpCount -= length;
+		return p;
 	}
 	
 	/**
@@ -192,11 +331,11 @@ public class ExternalMovement extends MovementModel {
 	 */
 	@Override
 	public double nextPathAvailable() {
-		if (pathQueue.size() == 0) {
+		if (pathCount == 0) {
 			return latestPathStartTime;
 		}
 		else {
-			return pathQueue.element().getKey();
+			return pathStartTimes[pathFirst];
 		}		
 	}
 	
@@ -210,12 +349,14 @@ public class ExternalMovement extends MovementModel {
 			return null;
 		}		
 		
-		if (pathQueue.size() == 0) { // nothing in the queue, return latest
-			p = latestPath;
-			latestPath = null;
+		if (pathCount == 0) { // nothing in the queue, return latest
+			p = createPath(latestPathLength);
+			latestPathLength = 0;
 		}
 		else {	// return first path in the queue
-			p = pathQueue.remove().getValue();
+			p = createPath(pathLengths[pathFirst]);
+			pathFirst = (pathFirst + 1) % pathLengths.length;
+			pathCount--;
 		}
 		
 		return p;
@@ -243,22 +384,22 @@ public class ExternalMovement extends MovementModel {
 	 * were read.
 	 */
 	private static double readMorePaths() {
-		List<Tuple<String, Coord>> list = reader.readNextMovements();
-		double time = reader.getLastTimeStamp();
+		ExternalMovementBlock moves = readNextBlock();
+		double time = moves.getTime();
 		
 		if (samplingInterval == -1) {
 			samplingInterval = time - initTime;
 		}
 		
-		for (Tuple<String, Coord> t : list) {
-			ExternalMovement em = idMapping.get(t.getKey());
-			if (em != null) { // skip unknown IDs, i.e. IDs not mentioned in...
-				// ...init phase or if there are more IDs than nodes
-				em.addLocation(t.getValue(), time);
+		for (int i = 0, n = moves.size(); i < n; i++) {
+			int id = moves.getId(i);
+			if (id != ExternalMovementBlock.UNKNOWN_ID) { // skip unknown IDs,
+				// i.e. IDs not mentioned in init phase or more IDs than nodes
+				models[id].addLocation(moves.getX(i), moves.getY(i), time);
 			}
 		}
 		
-		if (list.size() > 0) {
+		if (moves.size() > 0) {
 			return time;
 		}
 		else {
@@ -266,11 +407,39 @@ public class ExternalMovement extends MovementModel {
 		}
 	}
 	
+	/**
+	 * Reads the locations of the next time instance, either directly from 
+	 * the reader or from the prefetcher (that is started on the first call)
+	 * @return The locations (valid until the next call)
+	 */
+	private static ExternalMovementBlock readNextBlock() {
+		if (nrofPrefetch > 0) {
+			if (prefetcher == null) {
+				prefetcher = new ExternalMovementPrefetcher(reader, idMapping,
+						nrofPrefetch);
+			}
+			return prefetcher.nextBlock();
+		}
+		
+		if (block == null) {
+			block = new ExternalMovementBlock(models.length);
+		}
+		reader.readNextMovements(idMapping, block);
+		return block;
+	}
+	
 	/**
 	 * Reset state so that next instance will have a fresh state
 	 */
 	public static void reset() {
+		if (prefetcher != null) {
+			prefetcher.stop();
+		}
 		idMapping = null;
+		models = null;
+		initLocations = null;
+		block = null;
+		prefetcher = null;
 	}
 
 }
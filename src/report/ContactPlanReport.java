@@ -0,0 +1,170 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package report;
+
+import input.ContactPlanReader;
+import input.ContactPlanWriter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.Connection;
+import core.ConnectionListener;
+import core.DTNHost;
+import core.NetworkInterface;
+import core.Settings;
+import core.SimScenario;
+
+/**
+ * Records the link up and down events of a simulation, with the interface
+ * types and connection speeds, to a binary contact plan (see
+ * {@link ContactPlanWriter}). The plan can be replayed in later runs of the
+ * same scenario as an external events file 
+ * (<CODE>Events1.class = ExternalEventsQueue</CODE>,
+ * <CODE>Events1.filePath = plan.cplan</CODE>) with the movement and
+ * connection simulation switched off
+ * (<CODE>Group.movementModel = StationaryMovement</CODE>,
+ * <CODE>Scenario.simulateConnections = false</CODE>). The connectivity is
+ * then the same as in the recorded run, but e.g. different routers can be
+ * compared without simulating the movement and the geometry again.
+ * The interface settings of the replay must be the same as in the recording.
+ * Replaying with <CODE>Optimization.eventBatchEpsilon = 0</CODE> applies all
+ * the link changes of an update interval before the hosts are updated, which
+ * is closest to how the connections change in the recorded run.
+ * <P>The report's own output has only the number of recorded events. 
+ * All connections are recorded, also during the warm up period.</P>
+ */
+public class ContactPlanReport extends Report implements ConnectionListener {
+	/** Contact plan file -setting id ({@value}). Path of the plan file.
+	 * Default is the report directory and the scenario name followed by
+	 * "_ContactPlanReport" and extension 
+	 * {@link ContactPlanReader#CONTACT_PLAN_EXT}. */
+	public static final String PLAN_FILE_S = "planFile";
+	
+	private ContactPlanWriter writer;
+	private String planFile;
+	/** types of the interfaces that are connected between host pairs
+	 * (keyed by the addresses of the pair) */
+	private Map<Long, List<String>> upInterfaces;
+	private int nrofUp;
+	private int nrofDown;
+	
+	/**
+	 * Constructor.
+	 */
+	public ContactPlanReport() {
+		Settings s = getSettings();
+		if (s.contains(PLAN_FILE_S)) {
+			this.planFile = s.valueFillString(s.getSetting(PLAN_FILE_S));
+		}
+		else {
+			s.setNameSpace(null);
+			String dir = s.getSetting(REPORTDIR_SETTING);
+			if (!dir.endsWith("/")) {
+				dir += "/";
+			}
+			this.planFile = dir + s.valueFillString(s.getSetting(
+					SimScenario.SCENARIO_NS + "." + SimScenario.NAME_S)) +
+					"_" + getClass().getSimpleName() +
+					ContactPlanReader.CONTACT_PLAN_EXT;
+		}
+		init();
+	}
+	
+	@Override
+	protected void init() {
+		super.init();
+		this.writer = new ContactPlanWriter(this.planFile);
+		this.upInterfaces = new HashMap<Long, List<String>>();
+		this.nrofUp = 0;
+		this.nrofDown = 0;
+	}
+	
+	public void hostsConnected(DTNHost h1, DTNHost h2) {
+		Long key = pairKey(h1, h2);
+		List<String> up = this.upInterfaces.get(key);
+		
+		/* find the interface that has a new connection to the other host */
+		for (NetworkInterface ni : h1.getInterfaces()) {
+			String type = ni.getInterfaceType();
+			if (up != null && up.contains(type)) {
+				continue;
+			}
+			Connection con = getUpConnection(ni, h2);
+			if (con != null) {
+				if (up == null) {
+					up = new ArrayList<String>(1);
+					this.upInterfaces.put(key, up);
+				}
+				up.add(type);
+				this.writer.writeLink(getSimTime(), h1.getAddress(),
+						h2.getAddress(), type, true, (int)con.getSpeed());
+				this.nrofUp++;
+				return;
+			}
+		}
+	}
+	
+	public void hostsDisconnected(DTNHost h1, DTNHost h2) {
+		Long key = pairKey(h1, h2);
+		List<String> up = this.upInterfaces.get(key);
+		if (up == null) {
+			return;
+		}
+		
+		/* find the interface that no longer has a connection that is up */
+		for (NetworkInterface ni : h1.getInterfaces()) {
+			String type = ni.getInterfaceType();
+			if (up.contains(type) && getUpConnection(ni, h2) == null) {
+				up.remove(type);
+				if (up.isEmpty()) {
+					this.upInterfaces.remove(key);
+				}
+				this.writer.writeLink(getSimTime(), h1.getAddress(),
+						h2.getAddress(), type, false, 0);
+				this.nrofDown++;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Returns a connection of an interface to a host that is up
+	 * @param ni The interface
+	 * @param other The other host
+	 * @return The connection or null if there's no such connection
+	 */
+	private Connection getUpConnection(NetworkInterface ni, DTNHost other) {
+		for (Connection con : ni.getConnections()) {
+			if (con.isUp() && con.getOtherNode(ni.getHost()) == other) {
+				return con;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns a key for a pair of hosts (same for both orders)
+	 * @param h1 A host
+	 * @param h2 The other host
+	 * @return The key
+	 */
+	private Long pairKey(DTNHost h1, DTNHost h2) {
+		long a = Math.min(h1.getAddress(), h2.getAddress());
+		long b = Math.max(h1.getAddress(), h2.getAddress());
+		return (a << 32) | b;
+	}
+	
+	@Override
+	public void done() {
+		this.writer.close();
+		write("Contact plan: " + this.planFile);
+		write("link_up: " + this.nrofUp);
+		write("link_down: " + this.nrofDown);
+		super.done();
+	}
+}
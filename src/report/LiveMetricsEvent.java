@@ -0,0 +1,54 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for the snapshots of {@link LiveMetricsReport}.
+ * The event is committed only if JFR events are enabled for the report and
+ * a flight recording is running.
+ */
+@Name("one.LiveMetrics")
+@Label("ONE Live Metrics")
+@Category("ONE Simulator")
+@Description("Periodic snapshot of simulator throughput and state")
+public class LiveMetricsEvent extends jdk.jfr.Event {
+	@Label("Simulation Time")
+	double simTime;
+
+	@Label("Simulated Seconds per Second")
+	double simSecondsPerSecond;
+
+	@Label("Events Phase Time (ms)")
+	double eventsMillis;
+
+	@Label("Move Phase Time (ms)")
+	double moveMillis;
+
+	@Label("Connect Phase Time (ms)")
+	double connectMillis;
+
+	@Label("Route Phase Time (ms)")
+	double routeMillis;
+
+	@Label("Active Connections")
+	int activeConnections;
+
+	@Label("Buffered Messages")
+	int bufferedMessages;
+
+	@Label("Transfers Started")
+	int transfersStarted;
+
+	@Label("Transfers Aborted")
+	int transfersAborted;
+
+	@Label("GC Time per Second (ms)")
+	double gcMillisPerSecond;
+}
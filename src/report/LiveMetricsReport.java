@@ -0,0 +1,394 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import core.ConnectionListener;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.Settings;
+import core.SimError;
+import core.SimScenario;
+import core.UpdateListener;
+import core.UpdateTimer;
+
+/**
+ * Publishes live metrics about the running simulation. The metrics are
+ * collected to a snapshot (at most) every {@link #PUBLISH_INTERVAL_S}
+ * milliseconds of wall clock time and the latest snapshot can be read using
+ * a local HTTP endpoint (see {@link #HTTP_PORT_S}), JMX (see {@link #JMX_S})
+ * and Java Flight Recorder events (see {@link #JFR_S}). The final snapshot
+ * is written to the report file when the simulation is done.
+ * <P>Loading this report turns on update phase timing in the world (see
+ * {@link core.World#enableUpdateTimer()}); nothing is collected when the
+ * report is not loaded.</P>
+ */
+public class LiveMetricsReport extends Report implements UpdateListener,
+		ConnectionListener, MessageListener, LiveMetricsReportMBean {
+	/** Snapshot interval (wall clock milliseconds) -setting id ({@value}).
+	 * Default is {@link #DEF_PUBLISH_INTERVAL}. */
+	public static final String PUBLISH_INTERVAL_S = "publishInterval";
+	/** HTTP port -setting id ({@value}). If defined, the latest snapshot is
+	 * served as text from {@value #HTTP_PATH} at the loopback address and
+	 * the given port. */
+	public static final String HTTP_PORT_S = "httpPort";
+	/** JMX -setting id ({@value}). Boolean. If true, the report is
+	 * registered to the platform MBean server with name
+	 * {@value #JMX_NAME}. Default is true. */
+	public static final String JMX_S = "jmx";
+	/** JFR events -setting id ({@value}). Boolean. If true, a
+	 * {@link LiveMetricsEvent} is committed for every snapshot.
+	 * Default is false. */
+	public static final String JFR_S = "jfr";
+
+	/** Default snapshot interval ({@value} ms) */
+	public static final long DEF_PUBLISH_INTERVAL = 1000;
+	/** Path of the HTTP endpoint */
+	public static final String HTTP_PATH = "/metrics";
+	/** Object name of the MBean */
+	public static final String JMX_NAME = "core:type=LiveMetrics";
+
+	private long publishInterval;
+	private boolean jfrEvents;
+	private HttpServer httpServer;
+	private ObjectName mbeanName;
+	private UpdateTimer timer;
+
+	private int activeConnections;
+	private int transfersStarted;
+	private int transfersAborted;
+
+	private long lastPublishRt;
+	private double lastPublishSimTime;
+	private long lastGcTime;
+	/** the latest snapshot; replaced (never modified) by the sim thread */
+	private volatile Snapshot snapshot;
+
+	/**
+	 * Constructor.
+	 */
+	public LiveMetricsReport() {
+		Settings s = getSettings();
+		init();
+
+		this.publishInterval = DEF_PUBLISH_INTERVAL;
+		if (s.contains(PUBLISH_INTERVAL_S)) {
+			this.publishInterval = s.getInt(PUBLISH_INTERVAL_S);
+		}
+		this.jfrEvents = s.contains(JFR_S) && s.getBoolean(JFR_S);
+
+		this.timer = SimScenario.getInstance().getWorld().enableUpdateTimer();
+		this.lastPublishRt = System.currentTimeMillis();
+		this.lastGcTime = getGcTime();
+		this.snapshot = new Snapshot();
+
+		if (s.contains(HTTP_PORT_S)) {
+			startHttpServer(s.getInt(HTTP_PORT_S));
+		}
+		if (!s.contains(JMX_S) || s.getBoolean(JMX_S)) {
+			registerMBean();
+		}
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		this.activeConnections = 0;
+		this.transfersStarted = 0;
+		this.transfersAborted = 0;
+		this.lastPublishSimTime = getSimTime();
+	}
+
+	/**
+	 * Starts the HTTP endpoint
+	 * @param port The port to listen to
+	 */
+	private void startHttpServer(int port) {
+		try {
+			this.httpServer = HttpServer.create(new InetSocketAddress(
+					InetAddress.getLoopbackAddress(), port), 0);
+		} catch (IOException e) {
+			throw new SimError("Can't start live metrics HTTP endpoint at " +
+					"port " + port, e);
+		}
+
+		httpServer.createContext(HTTP_PATH, new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				byte[] body = snapshot.toString().getBytes("UTF-8");
+				exchange.getResponseHeaders().set("Content-Type",
+						"text/plain; charset=utf-8");
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream os = exchange.getResponseBody();
+				os.write(body);
+				os.close();
+			}
+		});
+		httpServer.start();
+	}
+
+	/**
+	 * Registers this report to the platform MBean server
+	 */
+	private void registerMBean() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			this.mbeanName = new ObjectName(JMX_NAME);
+			if (server.isRegistered(mbeanName)) { // from an earlier batch run
+				server.unregisterMBean(mbeanName);
+			}
+			server.registerMBean(this, mbeanName);
+		} catch (Exception e) {
+			throw new SimError("Can't register live metrics MBean", e);
+		}
+	}
+
+	/**
+	 * Returns the total time (ms) all garbage collectors have used so far
+	 * @return the total garbage collection time
+	 */
+	private long getGcTime() {
+		long total = 0;
+		for (GarbageCollectorMXBean gc :
+				ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (gc.getCollectionTime() > 0) {
+				total += gc.getCollectionTime();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Collects a new snapshot if the publish interval has passed.
+	 */
+	public void updated(List<DTNHost> hosts) {
+		long now = System.currentTimeMillis();
+		if (now - this.lastPublishRt < this.publishInterval) {
+			return;
+		}
+		publish(hosts, now);
+	}
+
+	/**
+	 * Collects and publishes a new snapshot
+	 * @param hosts All hosts in the world
+	 * @param now Current wall clock time
+	 */
+	private void publish(List<DTNHost> hosts, long now) {
+		Snapshot s = new Snapshot();
+		double wallSeconds = (now - this.lastPublishRt) / 1000.0;
+		long gcTime = getGcTime();
+		Runtime rt = Runtime.getRuntime();
+
+		s.simTime = getSimTime();
+		if (wallSeconds > 0) {
+			s.simSecondsPerSecond = (s.simTime - lastPublishSimTime) /
+				wallSeconds;
+			s.gcMillisPerSecond = (gcTime - lastGcTime) / wallSeconds;
+		}
+		for (int i=0; i<UpdateTimer.NROF_PHASES; i++) {
+			s.phaseMillis[i] = timer.getPhaseTime(i) / 1000000.0;
+		}
+		s.activeConnections = this.activeConnections;
+		for (DTNHost h : hosts) {
+			if (h.hasRouter()) { // don't create lazy routers
+				s.bufferedMessages += h.getNrofMessages();
+			}
+		}
+		s.transfersStarted = this.transfersStarted;
+		s.transfersAborted = this.transfersAborted;
+		s.heapUsedMB = (rt.totalMemory() - rt.freeMemory()) /
+			(1024.0 * 1024.0);
+
+		long routeTime = timer.getPhaseTime(UpdateTimer.ROUTE);
+		for (Map.Entry<String, Long> e :
+				timer.getRouterClassTimes().entrySet()) {
+			s.routerShares.put(e.getKey(), routeTime > 0 ?
+					(1.0 * e.getValue()) / routeTime : 0);
+		}
+
+		this.snapshot = s;
+		this.lastPublishRt = now;
+		this.lastPublishSimTime = s.simTime;
+		this.lastGcTime = gcTime;
+
+		if (this.jfrEvents) {
+			commitJfrEvent(s);
+		}
+	}
+
+	/**
+	 * Commits a flight recorder event of a snapshot
+	 * @param s The snapshot
+	 */
+	private void commitJfrEvent(Snapshot s) {
+		LiveMetricsEvent e = new LiveMetricsEvent();
+		if (!e.isEnabled()) {
+			return;
+		}
+		e.simTime = s.simTime;
+		e.simSecondsPerSecond = s.simSecondsPerSecond;
+		e.eventsMillis = s.phaseMillis[UpdateTimer.EVENTS];
+		e.moveMillis = s.phaseMillis[UpdateTimer.MOVE];
+		e.connectMillis = s.phaseMillis[UpdateTimer.CONNECT];
+		e.routeMillis = s.phaseMillis[UpdateTimer.ROUTE];
+		e.activeConnections = s.activeConnections;
+		e.bufferedMessages = s.bufferedMessages;
+		e.transfersStarted = s.transfersStarted;
+		e.transfersAborted = s.transfersAborted;
+		e.gcMillisPerSecond = s.gcMillisPerSecond;
+		e.commit();
+	}
+
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		this.activeConnections++;
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		this.activeConnections--;
+	}
+
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
+		this.transfersStarted++;
+	}
+
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {
+		this.transfersAborted++;
+	}
+
+	public void newMessage(Message m) { }
+
+	public void messageDeleted(Message m, DTNHost where, boolean dropped) { }
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery) { }
+
+	public double getSimulationTime() {
+		return snapshot.simTime;
+	}
+
+	public double getSimSecondsPerSecond() {
+		return snapshot.simSecondsPerSecond;
+	}
+
+	public String getPhaseTimes() {
+		return snapshot.getPhaseTimes();
+	}
+
+	public int getActiveConnections() {
+		return snapshot.activeConnections;
+	}
+
+	public int getBufferedMessages() {
+		return snapshot.bufferedMessages;
+	}
+
+	public int getTransfersStarted() {
+		return snapshot.transfersStarted;
+	}
+
+	public int getTransfersAborted() {
+		return snapshot.transfersAborted;
+	}
+
+	public double getGcMillisPerSecond() {
+		return snapshot.gcMillisPerSecond;
+	}
+
+	public double getHeapUsedMB() {
+		return snapshot.heapUsedMB;
+	}
+
+	public String getRouterCpuShares() {
+		return snapshot.routerShares.toString();
+	}
+
+	@Override
+	public void done() {
+		publish(SimScenario.getInstance().getHosts(),
+				System.currentTimeMillis());
+		write(snapshot.toString());
+
+		if (this.httpServer != null) {
+			httpServer.stop(0);
+			this.httpServer = null;
+		}
+		if (this.mbeanName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().
+					unregisterMBean(mbeanName);
+			} catch (Exception e) {
+				// already unregistered -> nothing to do
+			}
+			this.mbeanName = null;
+		}
+		super.done();
+	}
+
+	/**
+	 * Immutable (once published) set of metric values
+	 */
+	private static class Snapshot {
+		private double simTime;
+		private double simSecondsPerSecond;
+		private double[] phaseMillis = new double[UpdateTimer.NROF_PHASES];
+		private int activeConnections;
+		private int bufferedMessages;
+		private int transfersStarted;
+		private int transfersAborted;
+		private double gcMillisPerSecond;
+		private double heapUsedMB;
+		private Map<String, Double> routerShares =
+			new TreeMap<String, Double>();
+
+		private String getPhaseTimes() {
+			StringBuilder sb = new StringBuilder();
+			for (int i=0; i<UpdateTimer.NROF_PHASES; i++) {
+				sb.append(i > 0 ? ", " : "").append(UpdateTimer.PHASE_NAMES[i]);
+				sb.append("=").append(String.format("%.1f", phaseMillis[i]));
+			}
+			return sb.toString();
+		}
+
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append("sim_time: " + String.format("%.1f", simTime));
+			sb.append("\nsim_seconds_per_second: " +
+					String.format("%.2f", simSecondsPerSecond));
+			for (int i=0; i<UpdateTimer.NROF_PHASES; i++) {
+				sb.append("\nphase_ms_" + UpdateTimer.PHASE_NAMES[i] + ": " +
+						String.format("%.1f", phaseMillis[i]));
+			}
+			sb.append("\nactive_connections: " + activeConnections);
+			sb.append("\nbuffered_messages: " + bufferedMessages);
+			sb.append("\ntransfers_started: " + transfersStarted);
+			sb.append("\ntransfers_aborted: " + transfersAborted);
+			sb.append("\ngc_ms_per_second: " +
+					String.format("%.2f", gcMillisPerSecond));
+			sb.append("\nheap_used_mb: " + String.format("%.1f", heapUsedMB));
+			for (Map.Entry<String, Double> e : routerShares.entrySet()) {
+				sb.append("\nrouter_cpu_share_" + e.getKey() + ": " +
+						String.format("%.4f", e.getValue()));
+			}
+			return sb.toString() + "\n";
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+/**
+ * JMX management interface of the {@link LiveMetricsReport}. All values
+ * are from the latest published snapshot.
+ */
+public interface LiveMetricsReportMBean {
+
+	/**
+	 * Returns the current simulation time
+	 * @return the simulation time of the snapshot
+	 */
+	public double getSimulationTime();
+
+	/**
+	 * Returns simulated seconds per wall clock second since the previous
+	 * snapshot
+	 * @return simulated seconds per wall clock second
+	 */
+	public double getSimSecondsPerSecond();
+
+	/**
+	 * Returns the cumulative times (milliseconds) of the world update phases
+	 * @return the phase times in "phase=time" format
+	 */
+	public String getPhaseTimes();
+
+	/**
+	 * Returns the number of currently active connections
+	 * @return the number of currently active connections
+	 */
+	public int getActiveConnections();
+
+	/**
+	 * Returns the number of messages in the buffers of all hosts
+	 * @return the number of buffered messages
+	 */
+	public int getBufferedMessages();
+
+	/**
+	 * Returns the number of transfers started so far
+	 * @return the number of transfers started so far
+	 */
+	public int getTransfersStarted();
+
+	/**
+	 * Returns the number of transfers aborted so far
+	 * @return the number of transfers aborted so far
+	 */
+	public int getTransfersAborted();
+
+	/**
+	 * Returns milliseconds spent in garbage collection per wall clock
+	 * second since the previous snapshot
+	 * @return garbage collection time per second
+	 */
+	public double getGcMillisPerSecond();
+
+	/**
+	 * Returns the amount of used heap memory in megabytes
+	 * @return used heap memory (MB)
+	 */
+	public double getHeapUsedMB();
+
+	/**
+	 * Returns the share of router update time per router class
+	 * @return the shares in "RouterClass=share" format
+	 */
+	public String getRouterCpuShares();
+}
@@ -0,0 +1,481 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import core.SimError;
+
+/**
+ * Aggregates the values of many report files, e.g. the MessageStatsReports
+ * of a parameter sweep. Replaces the toolkit's getStats.pl, getAverages.pl
+ * and getStatsAverages.pl scripts.
+ * <P>
+ * Every line of a report file whose first token is a key (with an optional
+ * trailing colon) and second token a number is a value of that key, so both
+ * the <CODE>key: value</CODE> lines of MessageStatsReport and the
+ * <CODE>time value</CODE> lines of time series reports are read. Other lines
+ * are ignored. The files are parsed in parallel.
+ * </P>
+ * <P>
+ * The files are grouped by the capture groups of a regular expression that
+ * is matched against the file names (the part of the scenario name that
+ * has the swept values). For every group and key the number of values,
+ * mean, standard deviation, 95% confidence interval of the mean, minimum,
+ * maximum and the requested percentiles are written as one CSV row.
+ * </P>
+ * <P>
+ * Usage:<BR>
+ * <CODE>ReportAggregator [-group regex] [-percentiles p1,p2,...]
+ * [-threads n] [-precision n] [-suffix suffix] [-out file]
+ * files/directories...</CODE><BR>
+ * From directories, the files whose names end with the suffix (default
+ * {@value #DEF_SUFFIX}) are read. The default group expression is
+ * {@value #DEF_GROUP_RE} (everything up to the first underscore, as in
+ * getStats.pl).
+ * </P>
+ */
+public class ReportAggregator {
+	/** Group expression -option ({@value}) */
+	public static final String GROUP_FLAG = "-group";
+	/** Percentiles -option ({@value}) */
+	public static final String PERCENTILES_FLAG = "-percentiles";
+	/** Number of parser threads -option ({@value}) */
+	public static final String THREADS_FLAG = "-threads";
+	/** Number of decimals in the output -option ({@value}) */
+	public static final String PRECISION_FLAG = "-precision";
+	/** Suffix of the files read from directories -option ({@value}) */
+	public static final String SUFFIX_FLAG = "-suffix";
+	/** Output file -option ({@value}). Default is standard output. */
+	public static final String OUT_FLAG = "-out";
+
+	/** Default group expression ({@value}) */
+	public static final String DEF_GROUP_RE = "([^_]*)_";
+	/** Default suffix of the files read from directories ({@value}) */
+	public static final String DEF_SUFFIX = "_MessageStatsReport.txt";
+	/** Default percentiles (median) */
+	public static final double[] DEF_PERCENTILES = {50};
+
+	/** Two-sided 95% critical values of Student's t-distribution for
+	 * 1-30 degrees of freedom. Normal distribution's value is used for
+	 * more degrees of freedom. */
+	private static final double[] T_975 = {12.706, 4.303, 3.182, 2.776,
+		2.571, 2.447, 2.365, 2.306, 2.262, 2.228, 2.201, 2.179, 2.160, 2.145,
+		2.131, 2.120, 2.110, 2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064,
+		2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+	private static final double Z_975 = 1.960;
+
+	private Pattern groupPattern;
+	private int nrofDimensions;
+	private double[] percentiles;
+	private int precision;
+	/** the groups by their dimension values */
+	private Map<List<String>, Map<String, Values>> groups;
+
+	/**
+	 * Values of one key in one group
+	 */
+	private static class Values {
+		private double[] values = new double[8];
+		private int size = 0;
+
+		private void add(double value) {
+			if (this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, this.size * 2);
+			}
+			this.values[this.size++] = value;
+		}
+	}
+
+	/**
+	 * Values read from one report file
+	 */
+	private static class ParsedReport {
+		private List<String> keys = new ArrayList<String>();
+		private double[] values = new double[32];
+	}
+
+	/**
+	 * Constructor.
+	 * @param groupRe Regular expression whose capture groups (or the whole
+	 * match if it has none) are the group dimensions of a file name
+	 * @param percentiles Percentiles (0-100) to compute
+	 * @param precision Number of decimals in the output
+	 */
+	public ReportAggregator(String groupRe, double[] percentiles,
+			int precision) {
+		this.groupPattern = Pattern.compile(groupRe);
+		this.nrofDimensions = Math.max(groupPattern.matcher("").groupCount(),
+				1);
+		this.percentiles = percentiles;
+		this.precision = precision;
+		this.groups = new LinkedHashMap<List<String>, Map<String, Values>>();
+	}
+
+	/**
+	 * Runs the aggregator with the given arguments (see class description)
+	 * @param args Command line arguments
+	 */
+	public static void main(String[] args) {
+		String groupRe = DEF_GROUP_RE;
+		double[] percentiles = DEF_PERCENTILES;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int precision = Report.DEF_PRECISION;
+		String suffix = DEF_SUFFIX;
+		String outFile = null;
+		int i = 0;
+
+		/* set US locale to format decimals in consistent way */
+		java.util.Locale.setDefault(java.util.Locale.US);
+
+		try {
+			for (; i < args.length && args[i].startsWith("-"); i++) {
+				if (args[i].equals(GROUP_FLAG)) {
+					groupRe = args[++i];
+				} else if (args[i].equals(PERCENTILES_FLAG)) {
+					String[] ps = args[++i].split(",");
+					percentiles = new double[ps.length];
+					for (int j = 0; j < ps.length; j++) {
+						percentiles[j] = Double.parseDouble(ps[j].trim());
+					}
+				} else if (args[i].equals(THREADS_FLAG)) {
+					threads = Integer.parseInt(args[++i]);
+				} else if (args[i].equals(PRECISION_FLAG)) {
+					precision = Integer.parseInt(args[++i]);
+				} else if (args[i].equals(SUFFIX_FLAG)) {
+					suffix = args[++i];
+				} else if (args[i].equals(OUT_FLAG)) {
+					outFile = args[++i];
+				} else {
+					throw new IllegalArgumentException(args[i]);
+				}
+			}
+			if (i == args.length) {
+				throw new IllegalArgumentException("No input files");
+			}
+		} catch (RuntimeException e) {
+			System.err.println("Invalid arguments: " + e.getMessage());
+			System.err.println("Usage: ReportAggregator [" + GROUP_FLAG +
+					" regex] [" + PERCENTILES_FLAG + " p1,p2,...] [" +
+					THREADS_FLAG + " n] [" + PRECISION_FLAG + " n] [" +
+					SUFFIX_FLAG + " suffix] [" + OUT_FLAG + " file] " +
+					"files/directories...");
+			System.exit(-1);
+		}
+
+		List<File> files = new ArrayList<File>();
+		for (; i < args.length; i++) {
+			File f = new File(args[i]);
+			if (f.isDirectory()) {
+				File[] dirFiles = f.listFiles();
+				Arrays.sort(dirFiles);
+				for (File df : dirFiles) {
+					if (df.isFile() && df.getName().endsWith(suffix)) {
+						files.add(df);
+					}
+				}
+			} else {
+				files.add(f);
+			}
+		}
+
+		ReportAggregator ra = new ReportAggregator(groupRe, percentiles,
+				precision);
+		ra.addReports(files, threads);
+
+		try {
+			PrintWriter out = outFile == null ? new PrintWriter(System.out) :
+				new PrintWriter(outFile);
+			ra.write(out);
+			out.close();
+		} catch (IOException e) {
+			throw new SimError("Couldn't write output " + outFile, e);
+		}
+	}
+
+	/**
+	 * Parses report files in parallel and adds their values to the groups.
+	 * The values are added in the order of the files.
+	 * @param files The report files
+	 * @param threads Number of parser threads
+	 */
+	public void addReports(List<File> files, int threads) {
+		ExecutorService pool = Executors.newFixedThreadPool(
+				Math.max(threads, 1));
+		List<Future<ParsedReport>> parsed =
+			new ArrayList<Future<ParsedReport>>();
+
+		for (final File f : files) {
+			parsed.add(pool.submit(new Callable<ParsedReport>() {
+				public ParsedReport call() throws IOException {
+					return parse(f);
+				}
+			}));
+		}
+
+		try {
+			for (int i = 0; i < files.size(); i++) {
+				add(files.get(i).getName(), parsed.get(i).get());
+			}
+		} catch (InterruptedException e) {
+			throw new SimError("Aggregation was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new SimError("Couldn't read report", e);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Parses the numeric key-value lines of a report file
+	 * @param file The file
+	 * @return The keys and values in the order they were read
+	 * @throws IOException if the file couldn't be read
+	 */
+	private static ParsedReport parse(File file) throws IOException {
+		ParsedReport r = new ParsedReport();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		String line;
+
+		try {
+			while ((line = in.readLine()) != null) {
+				int n = line.length();
+				int keyStart = skipSpaces(line, 0);
+				int keyEnd = skipToken(line, keyStart);
+				int valueStart = skipSpaces(line, keyEnd);
+				int valueEnd = skipToken(line, valueStart);
+				if (keyStart == keyEnd || valueStart == valueEnd ||
+						skipSpaces(line, valueEnd) != n) {
+					continue; // not a key-value line
+				}
+
+				double value;
+				try {
+					value = Double.parseDouble(
+							line.substring(valueStart, valueEnd));
+				} catch (NumberFormatException e) {
+					continue; // not a numeric value
+				}
+				if (line.charAt(keyEnd - 1) == ':') {
+					keyEnd--;
+				}
+
+				int size = r.keys.size();
+				if (size == r.values.length) {
+					r.values = Arrays.copyOf(r.values, size * 2);
+				}
+				r.keys.add(line.substring(keyStart, keyEnd));
+				r.values[size] = value;
+			}
+		} finally {
+			in.close();
+		}
+		return r;
+	}
+
+	/**
+	 * Returns the index of the first non-whitespace character
+	 */
+	private static int skipSpaces(String line, int from) {
+		while (from < line.length() &&
+				Character.isWhitespace(line.charAt(from))) {
+			from++;
+		}
+		return from;
+	}
+
+	/**
+	 * Returns the index of the first whitespace character
+	 */
+	private static int skipToken(String line, int from) {
+		while (from < line.length() &&
+				!Character.isWhitespace(line.charAt(from))) {
+			from++;
+		}
+		return from;
+	}
+
+	/**
+	 * Adds the values of a parsed report to its group
+	 * @param fileName Name of the report file (for grouping)
+	 * @param r The parsed report
+	 */
+	private void add(String fileName, ParsedReport r) {
+		Matcher m = this.groupPattern.matcher(fileName);
+		if (!m.find()) {
+			System.err.println("Skipping " + fileName + ": doesn't match " +
+					"the group expression " + this.groupPattern);
+			return;
+		}
+
+		List<String> dimensions = new ArrayList<String>();
+		if (m.groupCount() == 0) {
+			dimensions.add(m.group());
+		}
+		for (int i = 1; i <= m.groupCount(); i++) {
+			dimensions.add(m.group(i) != null ? m.group(i) : "");
+		}
+
+		Map<String, Values> group = this.groups.get(dimensions);
+		if (group == null) {
+			group = new LinkedHashMap<String, Values>();
+			this.groups.put(dimensions, group);
+		}
+
+		for (int i = 0, n = r.keys.size(); i < n; i++) {
+			if (Double.isNaN(r.values[i]) || Double.isInfinite(r.values[i])){
+				continue; // e.g. overhead ratio with no deliveries
+			}
+			Values v = group.get(r.keys.get(i));
+			if (v == null) {
+				v = new Values();
+				group.put(r.keys.get(i), v);
+			}
+			v.add(r.values[i]);
+		}
+	}
+
+	/**
+	 * Writes the statistics of all groups and keys as CSV
+	 * @param out Where to write to
+	 */
+	public void write(PrintWriter out) {
+		List<String> header = new ArrayList<String>();
+		for (int i = 1; i <= this.nrofDimensions; i++) {
+			header.add("group" + i);
+		}
+		header.addAll(Arrays.asList("key", "n", "mean", "stddev",
+				"ci95_low", "ci95_high", "min", "max"));
+		for (double p : this.percentiles) {
+			header.add("p" + (p == (int)p ? String.valueOf((int)p) :
+				String.valueOf(p)));
+		}
+		out.println(toCsv(header));
+
+		for (Map.Entry<List<String>, Map<String, Values>> g :
+			this.groups.entrySet()) {
+			for (Map.Entry<String, Values> e : g.getValue().entrySet()) {
+				List<String> row = new ArrayList<String>(g.getKey());
+				row.add(e.getKey());
+				double[] s = getStats(e.getValue());
+				row.add(String.valueOf(e.getValue().size));
+				for (double d : s) {
+					row.add(format(d));
+				}
+				out.println(toCsv(row));
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Computes the statistics of values
+	 * @param v The values
+	 * @return Mean, standard deviation, confidence interval's low and high
+	 * limits, minimum, maximum and the percentiles
+	 */
+	private double[] getStats(Values v) {
+		double[] sorted = Arrays.copyOf(v.values, v.size);
+		Arrays.sort(sorted);
+		int n = sorted.length;
+		double[] stats = new double[6 + this.percentiles.length];
+
+		double sum = 0;
+		for (double d : sorted) {
+			sum += d;
+		}
+		double mean = sum / n;
+		double sqSum = 0;
+		for (double d : sorted) {
+			sqSum += (d - mean) * (d - mean);
+		}
+		double stdDev = n > 1 ? Math.sqrt(sqSum / (n - 1)) : Double.NaN;
+		double ci = n > 1 ? tValue(n - 1) * stdDev / Math.sqrt(n) :
+			Double.NaN;
+
+		stats[0] = mean;
+		stats[1] = stdDev;
+		stats[2] = mean - ci;
+		stats[3] = mean + ci;
+		stats[4] = sorted[0];
+		stats[5] = sorted[n - 1];
+		for (int i = 0; i < this.percentiles.length; i++) {
+			stats[6 + i] = percentile(sorted, this.percentiles[i]);
+		}
+		return stats;
+	}
+
+	/**
+	 * Returns the two-sided 95% critical value of Student's t-distribution
+	 * @param df Degrees of freedom
+	 * @return The critical value
+	 */
+	public static double tValue(int df) {
+		return df <= T_975.length ? T_975[df - 1] : Z_975;
+	}
+
+	/**
+	 * Returns a percentile of sorted values. Interpolates linearly between
+	 * the closest ranks.
+	 * @param sorted The values in ascending order (at least one value)
+	 * @param p The percentile (0-100)
+	 * @return The percentile
+	 */
+	public static double percentile(double[] sorted, double p) {
+		double rank = (p / 100.0) * (sorted.length - 1);
+		int lower = (int)Math.floor(rank);
+		if (lower >= sorted.length - 1) {
+			return sorted[sorted.length - 1];
+		}
+		if (lower < 0) {
+			return sorted[0];
+		}
+		return sorted[lower] +
+			(rank - lower) * (sorted[lower + 1] - sorted[lower]);
+	}
+
+	/**
+	 * Formats a value with the precision of the aggregator
+	 */
+	private String format(double value) {
+		if (Double.isNaN(value)) {
+			return Report.NAN;
+		}
+		return String.format("%." + this.precision + "f", value);
+	}
+
+	/**
+	 * Joins values to a CSV row. Values with commas or quotes are quoted.
+	 */
+	private static String toCsv(List<String> values) {
+		StringBuilder sb = new StringBuilder();
+		for (String v : values) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			if (v.indexOf(',') >= 0 || v.indexOf('"') >= 0) {
+				v = '"' + v.replace("\"", "\"\"") + '"';
+			}
+			sb.append(v);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import core.Settings;
+import core.SimScenario;
+import core.UpdateTimer;
+
+/**
+ * Profiles where the world spends its time when updating and writes the
+ * result in the "folded stacks" format used by flame graph tools (e.g.
+ * <CODE>flamegraph.pl</CODE>): one line per call path, frames separated by
+ * semicolons, followed by the time spent in microseconds. The paths are
+ * <CODE>World.update;processEvent;EventClass</CODE>,
+ * <CODE>World.update;moveHosts</CODE>,
+ * <CODE>World.update;updateHosts(type);connect;host</CODE> and
+ * <CODE>World.update;updateHosts(type);route;RouterClass;host</CODE>, where
+ * the type tells whether the host updates were done right after an external
+ * event or at the end of an update interval. Per host frames can be left out
+ * with the {@link #PER_HOST_S} setting.
+ * <P>The times are measured with {@link System#nanoTime()} in the world
+ * (see {@link core.World#enableUpdateTimer()}) only when this (or some other
+ * timing) report is loaded.</P>
+ */
+public class UpdateProfileReport extends Report {
+	/** Per host frames -setting id ({@value}). Boolean. If false, the times
+	 * are summed per router class and no host frames are written.
+	 * Default is true. */
+	public static final String PER_HOST_S = "perHost";
+	/** Name of the root frame */
+	public static final String ROOT_FRAME = "World.update";
+
+	private boolean perHost;
+	private UpdateTimer timer;
+
+	/**
+	 * Constructor.
+	 */
+	public UpdateProfileReport() {
+		Settings s = getSettings();
+		init();
+		this.perHost = !s.contains(PER_HOST_S) || s.getBoolean(PER_HOST_S);
+		this.timer = SimScenario.getInstance().getWorld().enableUpdateTimer();
+	}
+
+	/**
+	 * Adds time to a stack's total
+	 * @param stacks The stacks and their totals
+	 * @param stack The stack (frames separated by semicolons)
+	 * @param nanos The time to add
+	 */
+	private void addStack(Map<String, Long> stacks, String stack, long nanos) {
+		Long old = stacks.get(stack);
+		stacks.put(stack, (old == null ? 0 : old) + nanos);
+	}
+
+	/**
+	 * Returns a name that can be used as a frame name
+	 * @param name The name
+	 * @return The name with semicolons and whitespace replaced
+	 */
+	private String frame(String name) {
+		return name.replaceAll("[;\\s]", "_");
+	}
+
+	@Override
+	public void done() {
+		Map<String, Long> stacks = new TreeMap<String, Long>();
+
+		for (Map.Entry<String, Long> e :
+				timer.getEventClassTimes().entrySet()) {
+			addStack(stacks, ROOT_FRAME + ";processEvent;" + frame(e.getKey()),
+					e.getValue());
+		}
+		addStack(stacks, ROOT_FRAME + ";moveHosts",
+				timer.getPhaseTime(UpdateTimer.MOVE));
+
+		for (UpdateTimer.HostTimes ht : timer.getHostTimes()) {
+			String host = frame(ht.getHost().toString());
+			for (int type = 0; type < UpdateTimer.UPDATE_TYPE_NAMES.length;
+					type++) {
+				String prefix = ROOT_FRAME + ";updateHosts(" +
+					UpdateTimer.UPDATE_TYPE_NAMES[type] + ")";
+				String connect = prefix + ";connect";
+				String route = prefix + ";route;" + frame(ht.getRouterName());
+				if (perHost) {
+					connect += ";" + host;
+					route += ";" + host;
+				}
+				addStack(stacks, connect, ht.getConnectTime(type));
+				addStack(stacks, route, ht.getRouteTime(type));
+			}
+		}
+
+		for (Map.Entry<String, Long> e : stacks.entrySet()) {
+			long micros = e.getValue() / 1000;
+			if (micros > 0) {
+				write(e.getKey() + " " + micros);
+			}
+		}
+
+		super.done();
+	}
+}
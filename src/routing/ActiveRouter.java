@@ -7,7 +7,11 @@ package routing;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Random;
 
 import core.Connection;
@@ -28,6 +32,13 @@ public abstract class ActiveRouter extends MessageRouter {
 	 * If set to true and final recipient of a message rejects it because it
 	 * already has it, the message is deleted from buffer. Default=false. */
 	public static final String DELETE_DELIVERED_S = "deleteDelivered";
+	/** Expiry queue -setting id ({@value}). Boolean valued.
+	 * If set to true, the router keeps its messages also in a queue ordered
+	 * by their expiry time and drops every message at the first update after
+	 * it has expired (unless the message is being sent), instead of
+	 * scanning the whole buffer once every {@link #TTL_CHECK_INTERVAL}
+	 * seconds when not sending. Default=false. */
+	public static final String EXPIRY_QUEUE_S = "expiryQueue";
 	/** should messages that final recipient marks as delivered be deleted
 	 * from message buffer */
 	protected boolean deleteDelivered;
@@ -38,8 +49,16 @@ public abstract class ActiveRouter extends MessageRouter {
 	public static int TTL_CHECK_INTERVAL = 60;
 	/** connection(s) that are currently used for sending */
 	protected ArrayList<Connection> sendingConnections;
+	/** sending connections by the IDs of the messages they were sending
+	 * when added to {@link #sendingConnections} */
+	private HashMap<String, Connection> beingSent;
 	/** sim time when the last TTL check was done */
 	private double lastTtlCheck;
+	/** should the expiry queue be used for dropping expired messages */
+	private boolean useExpiryQueue;
+	/** buffered messages in the order of expiry; may also contain messages
+	 * that are no longer in the buffer. Null if the queue is not used. */
+	private PriorityQueue<Message> expiryQueue;
 	
 
 	/**
@@ -56,6 +75,9 @@ public abstract class ActiveRouter extends MessageRouter {
 		else {
 			this.deleteDelivered = false;
 		}
+		
+		this.useExpiryQueue = s.contains(EXPIRY_QUEUE_S) &&
+			s.getBoolean(EXPIRY_QUEUE_S);
 	}
 	
 	/**
@@ -65,13 +87,19 @@ public abstract class ActiveRouter extends MessageRouter {
 	protected ActiveRouter(ActiveRouter r) {
 		super(r);
 		this.deleteDelivered = r.deleteDelivered;
+		this.useExpiryQueue = r.useExpiryQueue;
 	}
 	
 	@Override
 	public void init(DTNHost host, List<MessageListener> mListeners) {
 		super.init(host, mListeners);
 		this.sendingConnections = new ArrayList<Connection>(1);
+		this.beingSent = new HashMap<String, Connection>(4);
 		this.lastTtlCheck = 0;
+		if (this.useExpiryQueue) {
+			this.expiryQueue = new PriorityQueue<Message>(11, 
+					new ExpiryComparator());
+		}
 	}
 	
 	/**
@@ -259,6 +287,11 @@ public abstract class ActiveRouter extends MessageRouter {
 	 * Drops messages whose TTL is less than zero.
 	 */
 	protected void dropExpiredMessages() {
+		if (this.expiryQueue != null) {
+			dropExpiredFromQueue();
+			return;
+		}
+		
 		Message[] messages = getMessageCollection().toArray(new Message[0]);
 		for (int i=0; i<messages.length; i++) {
 			int ttl = messages[i].getTtl(); 
@@ -268,6 +301,48 @@ public abstract class ActiveRouter extends MessageRouter {
 		}
 	}
 	
+	/**
+	 * Drops the expired messages from the head of the expiry queue. Messages
+	 * that are being sent are left in the queue and dropped later.
+	 */
+	private void dropExpiredFromQueue() {
+		double now = SimClock.getTime();
+		List<Message> beingSent = null;
+		
+		while (!expiryQueue.isEmpty() && 
+				expiryQueue.peek().getExpiryTime() <= now) {
+			Message m = expiryQueue.peek();
+			if (m.getTtl() > 0) {
+				break; /* rounding at the exact expiry time */
+			}
+			expiryQueue.poll();
+			if (getMessage(m.getId()) != m) {
+				continue; /* message was already removed from the buffer */
+			}
+			if (isSending(m.getId())) {
+				if (beingSent == null) {
+					beingSent = new ArrayList<Message>(1);
+				}
+				beingSent.add(m);
+				continue;
+			}
+			deleteMessage(m.getId(), true);
+		}
+		
+		if (beingSent != null) {
+			expiryQueue.addAll(beingSent);
+		}
+	}
+	
+	@Override
+	protected void addToMessages(Message m, boolean newMessage) {
+		super.addToMessages(m, newMessage);
+		if (this.expiryQueue != null && 
+				m.getExpiryTime() != Double.MAX_VALUE) {
+			this.expiryQueue.add(m);
+		}
+	}
+	
 	/**
 	 * Tries to make room for a new message. Current implementation simply
 	 * calls {@link #makeRoomForMessage(int)} and ignores the return value.
@@ -486,6 +561,9 @@ public abstract class ActiveRouter extends MessageRouter {
 	 */
 	protected void addToSendingConnections(Connection con) {
 		this.sendingConnections.add(con);
+		if (con.getMessage() != null) {
+			this.beingSent.put(con.getMessage().getId(), con);
+		}
 	}
 		
 	/**
@@ -520,15 +598,14 @@ public abstract class ActiveRouter extends MessageRouter {
 	 * @return True if the message is being sent false if not
 	 */
 	public boolean isSending(String msgId) {
-		for (Connection con : this.sendingConnections) {
-			if (con.getMessage() == null) {
-				continue; // transmission is finalized
-			}
-			if (con.getMessage().getId().equals(msgId)) {
-				return true;
-			}
+		if (this.beingSent.isEmpty()) {
+			return false;
 		}
-		return false;
+		Connection con = this.beingSent.get(msgId);
+		if (con == null || con.getMessage() == null) {
+			return false; // not sent or transmission is finalized
+		}
+		return con.getMessage().getId().equals(msgId);
 	}
 	
 	/**
@@ -571,6 +648,7 @@ public abstract class ActiveRouter extends MessageRouter {
 					this.makeRoomForMessage(0);
 				}
 				sendingConnections.remove(i);
+				removeFromBeingSent(con);
 			}
 			else {
 				/* index increase needed only if nothing was removed */
@@ -578,14 +656,77 @@ public abstract class ActiveRouter extends MessageRouter {
 			}
 		}
 		
-		/* time to do a TTL check and drop old messages? Only if not sending */
-		if (SimClock.getTime() - lastTtlCheck >= TTL_CHECK_INTERVAL && 
+		/* time to do a TTL check and drop old messages? Only if not sending
+		 * (the expiry queue is checked on every update) */
+		if (this.expiryQueue != null) {
+			dropExpiredMessages();
+		}
+		else if (SimClock.getTime() - lastTtlCheck >= TTL_CHECK_INTERVAL && 
 				sendingConnections.size() == 0) {
 			dropExpiredMessages();
 			lastTtlCheck = SimClock.getTime();
 		}
 	}
 	
+	/**
+	 * Removes a connection that is no longer used for sending from the
+	 * messages being sent
+	 * @param con The connection
+	 */
+	private void removeFromBeingSent(Connection con) {
+		Iterator<Connection> i = this.beingSent.values().iterator();
+		while (i.hasNext()) {
+			if (i.next() == con) {
+				i.remove();
+			}
+		}
+		
+		/* the same message may be sent through some other connection too */
+		for (Connection other : this.sendingConnections) {
+			Message m = other.getMessage();
+			if (m != null && !this.beingSent.containsKey(m.getId())) {
+				this.beingSent.put(m.getId(), other);
+			}
+		}
+	}
+	
+	/**
+	 * Returns true if the router does nothing in its updates when it has no
+	 * transfers going on and either has no messages or no connections (apart
+	 * from the TTL checks of {@link ActiveRouter}). Such routers can be
+	 * skipped in the updates while they are idle (see
+	 * {@link #getIdleUntil()}). Default is false; subclasses that override
+	 * this must re-check the condition if their subclasses extend
+	 * {@link #update()}.
+	 * @return true if idle updates of the router can be skipped
+	 */
+	protected boolean canSkipIdleUpdates() {
+		return false;
+	}
+
+	/**
+	 * Returns the time of the next TTL check if the router is idle (see
+	 * {@link #canSkipIdleUpdates()}), or the current time if not
+	 */
+	@Override
+	public double getIdleUntil() {
+		if (!canSkipIdleUpdates() || this.sendingConnections.size() > 0 ||
+				hasApplications()) {
+			return SimClock.getTime();
+		}
+		if (this.getNrofMessages() == 0) {
+			return Double.MAX_VALUE; // nothing to send nor to expire
+		}
+		if (this.getConnections().size() > 0) {
+			return SimClock.getTime();
+		}
+		if (this.expiryQueue != null) {
+			return this.expiryQueue.isEmpty() ? Double.MAX_VALUE :
+				this.expiryQueue.peek().getExpiryTime();
+		}
+		return this.lastTtlCheck + TTL_CHECK_INTERVAL;
+	}
+
 	/**
 	 * Method is called just before a transfer is aborted at {@link #update()} 
 	 * due connection going down. This happens on the sending host. 
@@ -602,4 +743,18 @@ public abstract class ActiveRouter extends MessageRouter {
 	 */
 	protected void transferDone(Connection con) { }
 	
+	/**
+	 * Comparator that orders messages by their expiry time and messages
+	 * with equal expiry times by their unique IDs (i.e., creation order).
+	 */
+	private static class ExpiryComparator implements Comparator<Message> {
+		public int compare(Message m1, Message m2) {
+			int c = Double.compare(m1.getExpiryTime(), m2.getExpiryTime());
+			if (c == 0) {
+				c = Integer.compare(m1.getUniqueId(), m2.getUniqueId());
+			}
+			return c;
+		}
+	}
+	
 }
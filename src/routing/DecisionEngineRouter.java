@@ -3,6 +3,7 @@ package routing;
 import java.util.*;
 
 import core.*;
+import routing.util.MessageIdSet;
 
 /**
  * This class overrides ActiveRouter in order to inject calls to a
@@ -91,7 +92,7 @@ public class DecisionEngineRouter extends ActiveRouter {
     protected RoutingDecisionEngine decider;
     protected List<Tuple<Message, Connection>> outgoingMessages;
 
-    protected Set<String> tombstones;
+    protected MessageIdSet tombstones;
 
     /**
      * Used to save state machine when new connections are made. See comment in
@@ -116,7 +117,7 @@ public class DecisionEngineRouter extends ActiveRouter {
         }
 
         if (tombstoning) {
-            tombstones = new HashSet<String>(10);
+            tombstones = new MessageIdSet();
         }
         conStates = new HashMap<Connection, Integer>(4);
     }
@@ -128,7 +129,7 @@ public class DecisionEngineRouter extends ActiveRouter {
         tombstoning = r.tombstoning;
 
         if (this.tombstoning) {
-            tombstones = new HashSet<String>(10);
+            tombstones = new MessageIdSet();
         }
         conStates = new HashMap<Connection, Integer>(4);
     }
@@ -311,7 +312,7 @@ public class DecisionEngineRouter extends ActiveRouter {
             addToSendingConnections(con);
         } else if (tombstoning && retVal == DENIED_DELIVERED) {
             this.deleteMessage(m.getId(), false);
-            tombstones.add(m.getId());
+            tombstones.add(m.getIdNumber(), SimClock.getTime());
         } else if (deleteDelivered && (retVal == DENIED_OLD || retVal == DENIED_DELIVERED)
                 && decider.shouldDeleteOldMessage(m, con.getOtherNode(getHost()))) {
             /* final recipient has already received the msg -> delete it */
@@ -325,7 +326,7 @@ public class DecisionEngineRouter extends ActiveRouter {
 
     @Override
     public int receiveMessage(Message m, DTNHost from) {
-        if (isDeliveredMessage(m) || (tombstoning && tombstones.contains(m.getId()))) {
+        if (isDeliveredMessage(m) || (tombstoning && tombstones.contains(m.getIdNumber()))) {
             return DENIED_DELIVERED;
         }
 
@@ -369,7 +370,7 @@ public class DecisionEngineRouter extends ActiveRouter {
         }
 
         if (isFirstDelivery) {
-            this.deliveredMessages.put(id, aMessage);
+            addDeliveredMessage(aMessage);
         }
 
         for (MessageListener ml : this.mListeners) {
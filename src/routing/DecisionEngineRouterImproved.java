@@ -8,6 +8,7 @@ package routing;
 import java.util.*;
 
 import core.*;
+import routing.util.MessageIdSet;
 import static routing.MessageRouter.DENIED_DELIVERED;
 import static routing.MessageRouter.DENIED_OLD;
 import static routing.MessageRouter.RCV_OK;
@@ -28,7 +29,7 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
     protected RoutingDecisionEngineImproved decider;
     protected List<Tuple<Message, Connection>> outgoingMessages;
 
-    protected Set<String> tombstones;
+    protected MessageIdSet tombstones;
 
     protected Map<Connection, Integer> conStates;
 
@@ -49,7 +50,7 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
         }
 
         if (tombstoning) {
-            tombstones = new HashSet<String>(10);
+            tombstones = new MessageIdSet();
         }
         conStates = new HashMap<Connection, Integer>(4);
     }
@@ -61,7 +62,7 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
         tombstoning = r.tombstoning;
 
         if (this.tombstoning) {
-            tombstones = new HashSet<String>(10);
+            tombstones = new MessageIdSet();
         }
         conStates = new HashMap<Connection, Integer>(4);
     }
@@ -141,7 +142,7 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
             addToSendingConnections(con);
         } else if (tombstoning && retVal == DENIED_DELIVERED) {
             this.deleteMessage(m.getId(), false);
-            tombstones.add(m.getId());
+            tombstones.add(m.getIdNumber(), SimClock.getTime());
         } else if (deleteDelivered && (retVal == DENIED_OLD || retVal == DENIED_DELIVERED)
                 && decider.shouldDeleteOldMessage(m, con.getOtherNode(getHost()))) {
             this.deleteMessage(m.getId(), false);
@@ -152,7 +153,7 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
 
     @Override
     public int receiveMessage(Message m, DTNHost from) {
-        if (isDeliveredMessage(m) || (tombstoning && tombstones.contains(m.getId()))) {
+        if (isDeliveredMessage(m) || (tombstoning && tombstones.contains(m.getIdNumber()))) {
             return DENIED_DELIVERED;
         }
 
@@ -194,7 +195,7 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
         }
 
         if (isFirstDelivery) {
-            this.deliveredMessages.put(id, aMessage);
+            addDeliveredMessage(aMessage);
         }
 
         for (MessageListener ml : this.mListeners) {
@@ -19,6 +19,11 @@ public class DirectDeliveryRouter extends ActiveRouter {
 		super(r);
 	}
 	
+	@Override
+	protected boolean canSkipIdleUpdates() {
+		return true;
+	}
+
 	@Override
 	public void update() {
 		super.update();
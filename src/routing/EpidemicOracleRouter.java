@@ -7,6 +7,7 @@ package routing;
 import java.util.ArrayList;
 import java.util.List;
 
+import routing.util.MessageLocationIndex;
 import core.*;
 
 /**
@@ -16,11 +17,16 @@ import core.*;
  * This router also <B>ignores message size and all messages are delivered 
  * immediately</B>.</P><P>
  * <B>Note:</B> This router module also bypasses ActiveRouter.update()
+ * </P><P>
+ * The oracle keeps a global index of the hosts holding each message, so
+ * a delivered message is removed only from the routers that have it and the
+ * messages to exchange on a new connection are found as a bit set difference.
+ * </P>
  */
 public class EpidemicOracleRouter extends ActiveRouter {
 	
-	/** List of all routers in this node group */
-	private static List<EpidemicOracleRouter> allRouters;
+	/** Which hosts (using this routing module) hold which messages */
+	private static MessageLocationIndex locations;
 
 	static {
 		DTNSim.registerForReset(EpidemicOracleRouter.class.getCanonicalName());
@@ -42,7 +48,6 @@ public class EpidemicOracleRouter extends ActiveRouter {
 	 */
 	protected EpidemicOracleRouter(EpidemicOracleRouter r) {
 		super(r);
-		allRouters.add(this);
 	}
 	
 	@Override
@@ -51,9 +56,16 @@ public class EpidemicOracleRouter extends ActiveRouter {
 			DTNHost peer = con.getOtherNode(getHost());
 			List<Message> newMessages = new ArrayList<Message>();
 			
-			for (Message m : peer.getMessageCollection()) {
-				if (!this.hasMessage(m.getId())) {
-					newMessages.add(m);
+			if (peer.getRouter() instanceof EpidemicOracleRouter) {
+				/* messages the peer has but this host doesn't (from index) */
+				for (String id : locations.getMissing(peer, getHost())) {
+					newMessages.add(peer.getRouter().getMessage(id));
+				}
+			} else { /* peer's messages aren't indexed */
+				for (Message m : peer.getMessageCollection()) {
+					if (!this.hasMessage(m.getId())) {
+						newMessages.add(m);
+					}
 				}
 			}
 			for (Message m : newMessages) {
@@ -110,9 +122,10 @@ public class EpidemicOracleRouter extends ActiveRouter {
 		Message m = super.messageTransferred(id, from);
 
 		if (m.getTo() == this.getHost()) {
-			for (EpidemicOracleRouter r : allRouters) {
+			for (DTNHost holder : locations.getHolders(id)) {
+				MessageRouter r = holder.getRouter();
 				if (r != this && r != from.getRouter()) {
-					r.removeDeliveredMessage(id);
+					((EpidemicOracleRouter)r).removeDeliveredMessage(id);
 				}
 			}
 		} else {
@@ -123,8 +136,7 @@ public class EpidemicOracleRouter extends ActiveRouter {
 	}
 	
 	protected int checkReceiving(Message m) {
-		if ( isIncomingMessage(m.getId()) || hasMessage(m.getId()) || 
-				isDeliveredMessage(m) ){
+		if (hasMessage(m.getId()) || isDeliveredMessage(m)) {
 			return DENIED_OLD; // already seen this message -> reject it
 		}
 		
@@ -156,6 +168,21 @@ public class EpidemicOracleRouter extends ActiveRouter {
 		}
 	}
 	
+	@Override
+	protected void addToMessages(Message m, boolean newMessage) {
+		super.addToMessages(m, newMessage);
+		locations.add(getHost(), m);
+	}
+	
+	@Override
+	protected Message removeFromMessages(String id) {
+		Message m = super.removeFromMessages(id);
+		if (m != null) {
+			locations.remove(getHost(), m);
+		}
+		return m;
+	}
+	
 	@Override
 	public void update() {
 		/* nothing to do; all transfers are started only when new connections
@@ -170,10 +197,10 @@ public class EpidemicOracleRouter extends ActiveRouter {
 	}
 	
 	/**
-	 * Resets the static router list
+	 * Resets the static message location index
 	 */
 	public static void reset() {
-		allRouters = new ArrayList<EpidemicOracleRouter>();
+		locations = new MessageLocationIndex();
 	}
 
 }
\ No newline at end of file
@@ -31,6 +31,11 @@ public class EpidemicRouter extends ActiveRouter {
 		//TODO: copy epidemic settings here (if any)
 	}
 			
+	@Override
+	protected boolean canSkipIdleUpdates() {
+		return true;
+	}
+
 	@Override
 	public void update() {
 		super.update();
@@ -45,6 +45,11 @@ public class FirstContactRouter extends ActiveRouter {
 		return recvCheck;
 	}
 			
+	@Override
+	protected boolean canSkipIdleUpdates() {
+		return true;
+	}
+
 	@Override
 	public void update() {
 		super.update();
@@ -4,6 +4,7 @@
  */
 package routing;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -22,6 +23,8 @@ import core.SettingsError;
 import core.SimClock;
 import core.SimError;
 import core.Tuple;
+import routing.util.LongKeyMap;
+import routing.util.MessageIdSet;
 
 /**
  * Superclass for message routers.
@@ -49,6 +52,20 @@ public abstract class MessageRouter {
      * </UL>
      */
     public static final String SEND_QUEUE_MODE_S = "sendQueue";
+    /**
+     * Keep delivered messages -setting id ({@value}). Boolean. If true, the
+     * router keeps the message objects it has received as the final
+     * recipient (see {@link #getDeliveredMessages()}); otherwise only their
+     * IDs are stored in a compact set. Default is false.
+     */
+    public static final String KEEP_DELIVERED_S = "keepDeliveredMessages";
+    /**
+     * Delivered message ID eviction -setting id ({@value}). Double value in
+     * seconds. If defined, the IDs of messages delivered longer
+     * than this time ago are forgotten, so the same message may be accepted
+     * (and reported) as delivered again. Default is to keep all IDs.
+     */
+    public static final String DELIVERED_EVICTION_S = "deliveredEviction";
 
     /**
      *
@@ -92,17 +109,34 @@ public abstract class MessageRouter {
     public static final int DENIED_DELIVERED = -4;
     protected List<MessageListener> mListeners;
     /**
-     * The messages being transferred with msgID_hostName keys
+     * The messages being transferred, keyed by the hash code of the message
+     * ID and the address of the sender (see {@link #incomingKey})
+     */
+    private LongKeyMap<Message> incomingMessages;
+    /**
+     * The messages being transferred whose key collided with another
+     * incoming message's key, with msgID_hostName keys (or null if there
+     * has been no collisions)
      */
-    private HashMap<String, Message> incomingMessages;
+    private HashMap<String, Message> incomingCollisions;
     /**
      * The messages this router is carrying
      */
     private HashMap<String, Message> messages;
     /**
-     * The messages this router has received as the final recipient
+     * IDs (see {@link Message#getIdNumber()}) of the messages this
+     * router has received as the final recipient
+     */
+    private MessageIdSet deliveredIds;
+    /**
+     * The messages this router has received as the final recipient, or null
+     * if delivered messages are not kept
      */
-    protected HashMap<String, Message> deliveredMessages;
+    private HashMap<String, Message> deliveredMessages;
+    /** should the delivered messages be kept */
+    private boolean keepDelivered;
+    /** time after which delivered IDs are evicted (or negative for never) */
+    private double deliveredEviction;
     /**
      * Host where this router belongs to
      */
@@ -160,6 +194,13 @@ public abstract class MessageRouter {
             sendQueueMode = Q_MODE_RANDOM;
         }
 
+        this.keepDelivered = s.contains(KEEP_DELIVERED_S)
+                && s.getBoolean(KEEP_DELIVERED_S);
+        this.deliveredEviction = -1;
+        if (s.contains(DELIVERED_EVICTION_S)) {
+            this.deliveredEviction = s.getDouble(DELIVERED_EVICTION_S);
+        }
+
     }
 
     /**
@@ -170,9 +211,13 @@ public abstract class MessageRouter {
      * @param mListeners The message listeners
      */
     public void init(DTNHost host, List<MessageListener> mListeners) {
-        this.incomingMessages = new HashMap<String, Message>();
+        this.incomingMessages = new LongKeyMap<Message>();
+        this.incomingCollisions = null;
         this.messages = new HashMap<String, Message>();
-        this.deliveredMessages = new HashMap<String, Message>();
+        this.deliveredIds = new MessageIdSet(this.deliveredEviction >= 0);
+        if (this.keepDelivered) {
+            this.deliveredMessages = new HashMap<String, Message>();
+        }
         this.mListeners = mListeners;
         this.host = host;
 //        Random rnd = new Random();
@@ -195,6 +240,8 @@ public abstract class MessageRouter {
         this.bufferSize = r.bufferSize;
         this.msgTtl = r.msgTtl;
         this.sendQueueMode = r.sendQueueMode;
+        this.keepDelivered = r.keepDelivered;
+        this.deliveredEviction = r.deliveredEviction;
         this.nodeSelfish = r.nodeSelfish;
         this.nodeList = r.nodeList;
         this.applications = new HashMap<String, Collection<Application>>();
@@ -217,6 +264,28 @@ public abstract class MessageRouter {
         }
     }
 
+    /**
+     * Returns the simulation time until which calling {@link #update()} would
+     * not do anything, unless the host is woken up before that by a
+     * connection change, a new or transferred message etc. Routers whose
+     * updates do work that can't be predicted this way must return the
+     * current simulation time, which is what this implementation does.
+     *
+     * @return The time until which the router is idle
+     */
+    public double getIdleUntil() {
+        return SimClock.getTime();
+    }
+
+    /**
+     * Returns true if any applications are attached to this router
+     *
+     * @return true if any applications are attached to this router
+     */
+    protected boolean hasApplications() {
+        return !this.applications.isEmpty();
+    }
+
     /**
      * Informs the router about change in connections state.
      *
@@ -254,7 +323,37 @@ public abstract class MessageRouter {
      * as the final recipient.
      */
     protected boolean isDeliveredMessage(Message m) {
-        return (this.deliveredMessages.containsKey(m.getId()));
+        return this.deliveredIds.contains(m.getIdNumber());
+    }
+
+    /**
+     * Marks a message delivered to this host as the final recipient
+     *
+     * @param m The delivered message
+     */
+    protected void addDeliveredMessage(Message m) {
+        double now = SimClock.getTime();
+        this.deliveredIds.add(m.getIdNumber(), now);
+        if (this.deliveredMessages != null) {
+            this.deliveredMessages.put(m.getId(), m);
+        }
+        if (this.deliveredEviction >= 0) {
+            this.deliveredIds.evictOlderThan(now - this.deliveredEviction);
+        }
+    }
+
+    /**
+     * Returns the messages this router has received as the final recipient.
+     * The messages are kept only if {@link #KEEP_DELIVERED_S} is true.
+     *
+     * @return The delivered messages (or an empty collection if the messages
+     * are not kept)
+     */
+    public Collection<Message> getDeliveredMessages() {
+        if (this.deliveredMessages == null) {
+            return Collections.emptyList();
+        }
+        return this.deliveredMessages.values();
     }
 
     /**
@@ -414,7 +513,7 @@ public abstract class MessageRouter {
             // -> put to buffer
             addToMessages(aMessage, false);
         } else if (isFirstDelivery) {
-            this.deliveredMessages.put(id, aMessage);
+            addDeliveredMessage(aMessage);
         }
 
         for (MessageListener ml : this.mListeners) {
@@ -433,7 +532,16 @@ public abstract class MessageRouter {
      * @param from Who the message was from (previous hop).
      */
     protected void putToIncomingBuffer(Message m, DTNHost from) {
-        this.incomingMessages.put(m.getId() + "_" + from.toString(), m);
+        long key = incomingKey(m.getId(), from);
+        Message old = this.incomingMessages.get(key);
+        if (old == null || old.getId().equals(m.getId())) {
+            this.incomingMessages.put(key, m);
+        } else { // different ID with the same hash code
+            if (this.incomingCollisions == null) {
+                this.incomingCollisions = new HashMap<String, Message>();
+            }
+            this.incomingCollisions.put(m.getId() + "_" + from.toString(), m);
+        }
     }
 
     /**
@@ -445,18 +553,26 @@ public abstract class MessageRouter {
      * @return The found message or null if such message wasn't found
      */
     protected Message removeFromIncomingBuffer(String id, DTNHost from) {
-        return this.incomingMessages.remove(id + "_" + from.toString());
+        long key = incomingKey(id, from);
+        Message m = this.incomingMessages.get(key);
+        if (m != null && m.getId().equals(id)) {
+            return this.incomingMessages.remove(key);
+        }
+        if (this.incomingCollisions == null) {
+            return null;
+        }
+        return this.incomingCollisions.remove(id + "_" + from.toString());
     }
 
     /**
-     * Returns true if a message with the given ID is one of the currently
-     * incoming messages, false if not
+     * Returns the key of an incoming message in the incoming buffer
      *
      * @param id ID of the message
-     * @return True if such message is incoming right now
+     * @param from The host that sent the message
+     * @return The key
      */
-    protected boolean isIncomingMessage(String id) {
-        return this.incomingMessages.containsKey(id);
+    private long incomingKey(String id, DTNHost from) {
+        return ((long) id.hashCode() << 32) | (from.getAddress() & 0xFFFFFFFFL);
     }
 
     /**
@@ -628,9 +744,14 @@ public abstract class MessageRouter {
      */
     public RoutingInfo getRoutingInfo() {
         RoutingInfo ri = new RoutingInfo(this);
-        RoutingInfo incoming = new RoutingInfo(this.incomingMessages.size()
+        List<Message> incomingList = new ArrayList<Message>(
+                this.incomingMessages.values());
+        if (this.incomingCollisions != null) {
+            incomingList.addAll(this.incomingCollisions.values());
+        }
+        RoutingInfo incoming = new RoutingInfo(incomingList.size()
                 + " incoming message(s)");
-        RoutingInfo delivered = new RoutingInfo(this.deliveredMessages.size()
+        RoutingInfo delivered = new RoutingInfo(this.deliveredIds.size()
                 + " delivered message(s)");
 
         RoutingInfo cons = new RoutingInfo(host.getConnections().size()
@@ -640,11 +761,11 @@ public abstract class MessageRouter {
         ri.addMoreInfo(delivered);
         ri.addMoreInfo(cons);
 
-        for (Message m : this.incomingMessages.values()) {
+        for (Message m : incomingList) {
             incoming.addMoreInfo(new RoutingInfo(m));
         }
 
-        for (Message m : this.deliveredMessages.values()) {
+        for (Message m : getDeliveredMessages()) {
             delivered.addMoreInfo(new RoutingInfo(m + " path:" + m.getHops()));
         }
 
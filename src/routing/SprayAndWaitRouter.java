@@ -85,6 +85,11 @@ public class SprayAndWaitRouter extends ActiveRouter {
 		return true;
 	}
 	
+	@Override
+	protected boolean canSkipIdleUpdates() {
+		return true;
+	}
+
 	@Override
 	public void update() {
 		super.update();
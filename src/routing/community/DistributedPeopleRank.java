@@ -11,6 +11,10 @@ import routing.MessageRouter;
 import routing.DecisionEngineRouter;
 
 /**
+ * Distributed BubbleRap style routing where the PeopleRank values of the
+ * hosts are maintained incrementally (see {@link IncrementalPeopleRank}):
+ * when a contact ends, only the peer's entry of the rank table is updated.
+ * Contacts are recorded as in {@link PeopleRank2}.
  *
  * @author Nathanael
  */
@@ -26,7 +30,23 @@ public class DistributedPeopleRank implements RoutingDecisionEngine, CommunityDe
     protected CommunityDetection community; // added
     protected Centrality centrality;
 
+    /** PeopleRank value and rank table of this host */
+    protected IncrementalPeopleRank ranks;
+    protected double dumpingFactor;
+    protected double treshold;
+
     public DistributedPeopleRank(Settings s) {
+        if (s.contains(PeopleRank2.DUMPING_FACTOR_SETTING)) {
+            this.dumpingFactor = s.getDouble(PeopleRank2.DUMPING_FACTOR_SETTING);
+        } else {
+            this.dumpingFactor = 0.85;
+        }
+        if (s.contains(PeopleRank2.TRESHOLD_SETTING)) {
+            this.treshold = s.getDouble(PeopleRank2.TRESHOLD_SETTING);
+        } else {
+            this.treshold = 700;
+        }
+
         if (s.contains(COMMUNITY_ALG_SETTING)) // added
         {
             this.community = (CommunityDetection) s.createIntializedObject(s.getSetting(COMMUNITY_ALG_SETTING));
@@ -44,8 +64,11 @@ public class DistributedPeopleRank implements RoutingDecisionEngine, CommunityDe
     public DistributedPeopleRank(DistributedPeopleRank proto) {
         this.community = proto.community.replicate();
         this.centrality = proto.centrality.replicate();
+        this.dumpingFactor = proto.dumpingFactor;
+        this.treshold = proto.treshold;
         startTimestamps = new HashMap<DTNHost, Double>();
         connHistory = new HashMap<DTNHost, List<Duration>>();
+        ranks = new IncrementalPeopleRank(dumpingFactor);
     }
 
     @Override
@@ -54,11 +77,22 @@ public class DistributedPeopleRank implements RoutingDecisionEngine, CommunityDe
 
     @Override
     public void connectionDown(DTNHost thisHost, DTNHost peer) {
+        PeopleRank2.recordContact(peer, startTimestamps, connHistory, ranks,
+                treshold);
+
+        // only the peer's entry of the rank table changes
+        DistributedPeopleRank de = this.getOtherDecisionEngine(peer);
+        ranks.updatePeer(peer.getAddress(), de.ranks.getRank(),
+                de.ranks.getNrofFriends());
     }
 
     @Override
     public void doExchangeForNewConnection(Connection con, DTNHost peer) {
-        throw new UnsupportedOperationException("Not supported yet."); // Generated from nbfs://nbhost/SystemFileSystem/Templates/Classes/Code/GeneratedMethodBody
+        DTNHost myHost = con.getOtherNode(peer);
+        DistributedPeopleRank de = this.getOtherDecisionEngine(peer);
+
+        this.startTimestamps.put(peer, SimClock.getTime());
+        de.startTimestamps.put(myHost, SimClock.getTime());
     }
 
     @Override
@@ -120,6 +154,15 @@ public class DistributedPeopleRank implements RoutingDecisionEngine, CommunityDe
         return this.centrality.getGlobalCentrality(connHistory);
     }
 
+    /**
+     * Returns the PeopleRank value of this host
+     *
+     * @return The rank
+     */
+    public double getRank() {
+        return this.ranks.getRank();
+    }
+
     @Override
     public boolean shouldDeleteSentMessage(Message m, DTNHost otherHost) {
         throw new UnsupportedOperationException("Not supported yet."); // Generated from nbfs://nbhost/SystemFileSystem/Templates/Classes/Code/GeneratedMethodBody
@@ -132,12 +175,11 @@ public class DistributedPeopleRank implements RoutingDecisionEngine, CommunityDe
 
     @Override
     public void update(DTNHost thisHost) {
-        throw new UnsupportedOperationException("Not supported yet."); // Generated from nbfs://nbhost/SystemFileSystem/Templates/Classes/Code/GeneratedMethodBody
     }
 
     @Override
     public RoutingDecisionEngine replicate() {
-        throw new UnsupportedOperationException("Not supported yet."); // Generated from nbfs://nbhost/SystemFileSystem/Templates/Classes/Code/GeneratedMethodBody
+        return new DistributedPeopleRank(this);
     }
 
     @Override
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.community;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Incrementally maintained PeopleRank value of a host (Mtibaa et al. 2010):
+ * </p>
+ * <pre>
+ * PeR(i) = (1 - d) + d * &Sigma; PeR(j) / |F(j)|, j &isin; F(i)
+ * </pre>
+ *
+ * <p>
+ * The rank and the number of friends that were last learned from each other
+ * host are kept in a rank table indexed by the host address, and the friends
+ * of this host as a bit set. The sum over the friends is updated only for the
+ * entry that changes when a contact ends, so updating the rank costs O(1)
+ * regardless of the number of friends and doesn't allocate any objects (except
+ * when the table grows).</p>
+ */
+public class IncrementalPeopleRank {
+
+    /** Initial size of the rank table */
+    private static final int INITIAL_SIZE = 16;
+
+    private double dampingFactor;
+
+    /** friends of this host, one bit per host address */
+    private long[] friendBits;
+    private int nrofFriends;
+
+    /** last learned ranks of other hosts (by address) */
+    private double[] knownRanks;
+    /** last learned friend counts of other hosts (-1 = not known) */
+    private int[] knownFriendCounts;
+
+    /** &Sigma; PeR(j) / |F(j)| over the friends j of this host */
+    private double friendSum;
+
+    /**
+     * Creates a new PeopleRank value for a host that has no friends yet.
+     *
+     * @param dampingFactor The damping factor (d)
+     */
+    public IncrementalPeopleRank(double dampingFactor) {
+        this.dampingFactor = dampingFactor;
+        this.friendBits = new long[(INITIAL_SIZE + 63) / 64];
+        this.knownRanks = new double[INITIAL_SIZE];
+        this.knownFriendCounts = new int[INITIAL_SIZE];
+        Arrays.fill(this.knownFriendCounts, -1);
+        this.nrofFriends = 0;
+        this.friendSum = 0;
+    }
+
+    /**
+     * Returns the PeopleRank value of this host
+     *
+     * @return The rank
+     */
+    public double getRank() {
+        return (1 - dampingFactor) + dampingFactor * friendSum;
+    }
+
+    /**
+     * Returns the number of friends of this host
+     *
+     * @return The number of friends
+     */
+    public int getNrofFriends() {
+        return this.nrofFriends;
+    }
+
+    /**
+     * Returns true if the host is a friend of this host
+     *
+     * @param address Address of the host
+     * @return true if the host is a friend
+     */
+    public boolean isFriend(int address) {
+        int word = address >>> 6;
+        return word < friendBits.length
+                && (friendBits[word] & (1L << address)) != 0;
+    }
+
+    /**
+     * Adds a host to the friends of this host
+     *
+     * @param address Address of the host
+     * @return true if the host was not a friend before
+     */
+    public boolean addFriend(int address) {
+        if (isFriend(address)) {
+            return false;
+        }
+        ensureSize(address);
+        friendBits[address >>> 6] |= 1L << address;
+        nrofFriends++;
+        friendSum += contribution(address);
+        return true;
+    }
+
+    /**
+     * Updates the rank and the number of friends learned from another host.
+     * If the host is a friend of this host, its contribution to the rank of
+     * this host is updated too.
+     *
+     * @param address Address of the host
+     * @param rank The host's PeopleRank value
+     * @param friendCount The host's number of friends
+     */
+    public void updatePeer(int address, double rank, int friendCount) {
+        ensureSize(address);
+        boolean friend = isFriend(address);
+        if (friend) {
+            friendSum -= contribution(address);
+        }
+        knownRanks[address] = rank;
+        knownFriendCounts[address] = friendCount;
+        if (friend) {
+            friendSum += contribution(address);
+        }
+    }
+
+    /**
+     * Returns true if the rank of a host has been learned
+     *
+     * @param address Address of the host
+     * @return true if the rank is known
+     */
+    public boolean isKnown(int address) {
+        return address < knownFriendCounts.length
+                && knownFriendCounts[address] >= 0;
+    }
+
+    /**
+     * Returns the last learned rank of a host
+     *
+     * @param address Address of the host
+     * @return The rank or 0 if it is not known
+     */
+    public double getKnownRank(int address) {
+        return isKnown(address) ? knownRanks[address] : 0.0;
+    }
+
+    /**
+     * Returns the number of entries in the rank table. All the known
+     * addresses are smaller than this.
+     *
+     * @return The size of the rank table
+     */
+    public int getTableSize() {
+        return knownRanks.length;
+    }
+
+    /**
+     * Returns the contribution of a host to the rank of its friends
+     *
+     * @param address Address of the host
+     * @return PeR(j) / |F(j)| or 0 if not (yet) known
+     */
+    private double contribution(int address) {
+        int count = knownFriendCounts[address];
+        return count > 0 ? knownRanks[address] / count : 0.0;
+    }
+
+    /**
+     * Grows the rank table and the friend set so that they can hold an
+     * address
+     *
+     * @param address The address
+     */
+    private void ensureSize(int address) {
+        if (address < knownRanks.length) {
+            return;
+        }
+        int oldSize = knownRanks.length;
+        int newSize = Math.max(address + 1, oldSize * 2);
+        knownRanks = Arrays.copyOf(knownRanks, newSize);
+        knownFriendCounts = Arrays.copyOf(knownFriendCounts, newSize);
+        Arrays.fill(knownFriendCounts, oldSize, newSize, -1);
+        friendBits = Arrays.copyOf(friendBits, (newSize + 63) / 64);
+    }
+}
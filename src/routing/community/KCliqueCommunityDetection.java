@@ -10,6 +10,7 @@ import java.util.*;
 //import routing.communitydetection.DiBuBB.Duration;
 
 import core.*;
+import routing.util.HostBitSet;
 
 /**
  * <p>Performs the K-Clique Community Detection algorithm described in 
@@ -21,8 +22,11 @@ import core.*;
  * host's familiar set and local community and the node's familiar set is added 
  * to an approximation of all the familiar sets of the host's local community.  
  * </p>
- * <p>Note: In ONE, each KCliqueCommunityDetection stores a reference to another 
- * node's familiar set instead of creating and managing a duplicate of it. 
+ * <p>Note: In ONE, each KCliqueCommunityDetection stores an immutable 
+ * snapshot of another node's familiar set instead of a reference to the live 
+ * set. The snapshots are shared (not copied) between the nodes and a new one 
+ * is taken only when a familiar set changes. All the sets are bit sets indexed 
+ * by host address, so the intersections are computed with popcount.
  * </p>
  * <p>When two peers meet, they exchange familiar sets, local community sets, 
  * and their respective approximations of the familiar sets of their local 
@@ -58,9 +62,10 @@ public class KCliqueCommunityDetection implements CommunityDetection
 	public static final String K_SETTING = "K";
 	public static final String FAMILIAR_SETTING = "familiarThreshold";
 	
-	protected Set<DTNHost> familiarSet;
-	protected Set<DTNHost> localCommunity;
-	protected Map<DTNHost, Set<DTNHost>> familiarsOfMyCommunity;
+	protected HostBitSet familiarSet;
+	protected HostBitSet localCommunity;
+	/** snapshots of the familiar sets of the community members by address */
+	protected HostBitSet[] familiarsOfMyCommunity;
 	
 	protected double k;
 	protected double familiarThreshold;
@@ -75,9 +80,9 @@ public class KCliqueCommunityDetection implements CommunityDetection
 	{
 		this.k = proto.k;
 		this.familiarThreshold = proto.familiarThreshold;
-		familiarSet = new HashSet<DTNHost>();
-		localCommunity = new HashSet<DTNHost>();
-		this.familiarsOfMyCommunity = new HashMap<DTNHost, Set<DTNHost>>();
+		familiarSet = new HostBitSet();
+		localCommunity = new HostBitSet();
+		this.familiarsOfMyCommunity = new HostBitSet[0];
 	}
 	
 	public void newConnection(DTNHost myHost, DTNHost peer, 
@@ -97,34 +102,28 @@ public class KCliqueCommunityDetection implements CommunityDetection
 		 *  (2) merge my and my peer's local approximations of our respective
 		 *      community's familiar sets
 		 * 
-		 * In both these cases, for ONE, each CommunityDetection object stores a 
-		 * reference to the familiar set of its community members. As those members
-		 * update their familiar set, others storing a reference to that set
-		 * immediately witness the reflected changes. Therefore, we don't have to 
-		 * anything to update an "approximation" of the familiar sets. They're not
-		 * approximations here anymore. In this way, what we have in the k-Clique
-		 * community detection class is an upper bound on the performance of the
-		 * protocol.
+		 * The approximations are immutable snapshots of the familiar sets. Of two
+		 * snapshots of the same host's familiar set, the one with the higher 
+		 * version is the more recent one.
 		 */
+		if(this.localCommunity.contains(peer))
+			this.setFamiliarsOf(peer, scd.familiarSet.snapshot());
+		if(scd.localCommunity.contains(myHost))
+			scd.setFamiliarsOf(myHost, this.familiarSet.snapshot());
+		mergeFamiliars(scd);
 		
 		// Add peer to my local community if needed
 		if(!this.localCommunity.contains(peer))
 		{
-			/*
-			 * 
-			 */
-			
 			// compute the intersection size
-			int count=0;
-			for(DTNHost h : scd.familiarSet)
-				if(this.localCommunity.contains(h))
-					count++;
+			HostBitSet peerFamiliars = scd.familiarSet.snapshot();
+			int count = peerFamiliars.intersectionSize(this.localCommunity);
 			
 			// if peer familiar has K nodes in common with this host's local community
 			if(count >= this.k - 1)
 			{
 				this.localCommunity.add(peer);
-				this.familiarsOfMyCommunity.put(peer, scd.familiarSet);
+				this.setFamiliarsOf(peer, peerFamiliars);
 				
 				// search the peer's local community for other nodes with K in common
 				// (like a transitivity property)
@@ -133,17 +132,14 @@ public class KCliqueCommunityDetection implements CommunityDetection
 					if(h == myHost || h == peer) continue;
 					
 					// compute intersection size
-					count = 0;
-					for(DTNHost i : scd.familiarsOfMyCommunity.get(h))
-						if(this.localCommunity.contains(i))
-							count++;
+					HostBitSet f = scd.getFamiliarsOf(h);
+					count = f == null ? 0 : f.intersectionSize(this.localCommunity);
 					
 					// add nodes if there are K in common with this local community
 					if(count >= this.k - 1)
 					{
 						this.localCommunity.add(h);
-						this.familiarsOfMyCommunity.put(h, 
-								scd.familiarsOfMyCommunity.get(h));
+						this.setFamiliarsOf(h, f);
 					}
 				}
 			}
@@ -152,27 +148,22 @@ public class KCliqueCommunityDetection implements CommunityDetection
 		// Repeat process from peer's perspective
 		if(!scd.localCommunity.contains(myHost))
 		{
-			int count = 0;
-			for(DTNHost h : this.familiarSet)
-				if(scd.localCommunity.contains(h))
-					count++;
+			HostBitSet myFamiliars = this.familiarSet.snapshot();
+			int count = myFamiliars.intersectionSize(scd.localCommunity);
 			if(count >= scd.k - 1)
 			{
 				scd.localCommunity.add(myHost);
-				scd.familiarsOfMyCommunity.put(myHost, this.familiarSet);
+				scd.setFamiliarsOf(myHost, myFamiliars);
 				
 				for(DTNHost h : this.localCommunity)
 				{
 					if(h == myHost || h == peer) continue;
-					count = 0;
-					for(DTNHost i : this.familiarsOfMyCommunity.get(h))
-						if(scd.localCommunity.contains(i))
-							count++;
+					HostBitSet f = this.getFamiliarsOf(h);
+					count = f == null ? 0 : f.intersectionSize(scd.localCommunity);
 					if(count >= scd.k - 1)
 					{
 						scd.localCommunity.add(h);
-						scd.familiarsOfMyCommunity.put(h, 
-								this.familiarsOfMyCommunity.get(h));
+						scd.setFamiliarsOf(h, f);
 					}
 				}
 			}
@@ -199,7 +190,53 @@ public class KCliqueCommunityDetection implements CommunityDetection
 			KCliqueCommunityDetection scd = (KCliqueCommunityDetection)peerCD;
 			this.familiarSet.add(peer);
 			this.localCommunity.add(peer);
-			this.familiarsOfMyCommunity.put(peer, scd.familiarSet);
+			this.setFamiliarsOf(peer, scd.familiarSet.snapshot());
+		}
+	}
+	
+	/**
+	 * Returns the (approximation of the) familiar set of a community member
+	 * @param h The community member
+	 * @return Snapshot of the familiar set or null if not known
+	 */
+	protected HostBitSet getFamiliarsOf(DTNHost h)
+	{
+		int address = h.getAddress();
+		return address < familiarsOfMyCommunity.length ? 
+				familiarsOfMyCommunity[address] : null;
+	}
+	
+	/**
+	 * Sets the (approximation of the) familiar set of a community member
+	 * @param h The community member
+	 * @param familiars Snapshot of the member's familiar set
+	 */
+	protected void setFamiliarsOf(DTNHost h, HostBitSet familiars)
+	{
+		int address = h.getAddress();
+		if(address >= familiarsOfMyCommunity.length)
+			familiarsOfMyCommunity = Arrays.copyOf(familiarsOfMyCommunity, 
+					Math.max(address + 1, familiarsOfMyCommunity.length * 2));
+		familiarsOfMyCommunity[address] = familiars;
+	}
+	
+	/**
+	 * Merges this and the peer's approximations of the familiar sets of the
+	 * hosts both know: both keep the more recent snapshot.
+	 * @param scd The peer's community detection
+	 */
+	protected void mergeFamiliars(KCliqueCommunityDetection scd)
+	{
+		HostBitSet[] mine = this.familiarsOfMyCommunity;
+		HostBitSet[] theirs = scd.familiarsOfMyCommunity;
+		for(int i = 0, n = Math.min(mine.length, theirs.length); i < n; i++)
+		{
+			HostBitSet a = mine[i], b = theirs[i];
+			if(a == null || b == null || a == b) continue;
+			if(a.getVersion() > b.getVersion())
+				theirs[i] = a;
+			else
+				mine[i] = b;
 		}
 	}
 
@@ -215,7 +252,7 @@ public class KCliqueCommunityDetection implements CommunityDetection
 
 	public Set<DTNHost> getLocalCommunity()
 	{
-		return this.localCommunity;
+		return this.localCommunity.snapshot();
 	}
 	
 }
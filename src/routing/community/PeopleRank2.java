@@ -54,13 +54,12 @@
      public static final String TRESHOLD_SETTING = "threshold";
  
      /**
-      * Map to store the PeopleRank2 values for each host along with the total number
-      * of friends
+      * Rank table with the PeopleRank2 values and the total number of friends
+      * learned from each host, and the friends of this host
       */
-     protected Map<DTNHost, TupleDe<Double, Integer>> per;
+     protected IncrementalPeopleRank ranks;
      protected Map<DTNHost, List<Duration>> connHistory; // Store connection history for each host
      protected Map<DTNHost, Double> startTimestamps; // Store the start timestamps for each connection
-     protected Set<DTNHost> thisHostSet; // Set to store friends of this host
  
      // Community detection and damping factor
      protected double dumpingFactor; // Damping factor used in the PeopleRank2 algorithm
@@ -83,8 +82,7 @@
              this.treshold = 700;
          }
          connHistory = new HashMap<>();
-         per = new HashMap<>();
-         thisHostSet = new HashSet<>();
+         ranks = new IncrementalPeopleRank(dumpingFactor);
      }
  
      /**
@@ -99,8 +97,7 @@
          startTimestamps = new HashMap<DTNHost, Double>();
          // Initialize a new connection history map
          this.connHistory = new HashMap<>();
-         this.thisHostSet = new HashSet<>();
-         this.per = new HashMap<>();
+         this.ranks = new IncrementalPeopleRank(dumpingFactor);
      }
  
      @Override
@@ -121,61 +118,51 @@
  
      @Override
      public void connectionDown(DTNHost thisHost, DTNHost peer) {
-         // Get the start time of the previous connection and the current time
-         double time = getPreviousConnectionStartTime(thisHost, peer);
-         double etime = SimClock.getTime();
+         // Record the contact and make the peer a friend if it was long enough
+         recordContact(peer, startTimestamps, connHistory, ranks, treshold);
  
          /**
-          * Check The Total ConnHistory to Find or create the Total Of connection history
-          * list
-          * 
+          * Update the peer's PeopleRank2 value and total number of friends in the
+          * rank table every time connection Down. Only the peer's contribution to
+          * the rank of this host changes, so the other entries aren't touched.
           */
-         List<Duration> history;
-         // Check if there is existing connection history for the peer
-         if (!connHistory.containsKey(peer)) {
-             // If not, create a new list for connection history
+         PeopleRank2 de = this.getOtherDecisionEngine(peer);
+         ranks.updatePeer(peer.getAddress(), de.ranks.getRank(),
+                 de.ranks.getNrofFriends());
+     }
+ 
+     /**
+      * Records a contact with a peer that ended at the current time. The
+      * peer's connection history list is created if it doesn't exist yet.
+      * If the contact lasted at least the threshold, it is added to the
+      * history and the peer becomes a friend. A contact without a start
+      * timestamp (whose start was never seen) is not recorded.
+      *
+      * @param peer           The peer of the contact
+      * @param startTimestamps Start times of the ongoing contacts by peer; the
+      *                       peer's start time is removed
+      * @param connHistory    Connection histories by peer
+      * @param ranks          Rank table where the friend is added
+      * @param treshold       Minimum duration of a contact that makes a friend
+      * @return The connection history with the peer
+      */
+     static List<Duration> recordContact(DTNHost peer,
+             Map<DTNHost, Double> startTimestamps,
+             Map<DTNHost, List<Duration>> connHistory,
+             IncrementalPeopleRank ranks, double treshold) {
+         List<Duration> history = connHistory.get(peer);
+         if (history == null) {
              history = new LinkedList<Duration>();
-             // Put the new list into the connection history map for the peer
              connHistory.put(peer, history);
-         } else {
-             // If there is existing history, retrieve it
-             history = connHistory.get(peer);
-         }
- 
-         /**
-          * Check if the connection duration is greater than or equal to the familiar
-          * threshold
-          * If yes, add this connection to the list
-          */
-         if (etime - time >= treshold) {
-             history.add(new Duration(time, etime));
-             // Add peer to the friend list of thisHost
-             thisHostSet.add(peer);
          }
  
-         /**
-          * Update connHistory, Total FriendRank, and totalFriend and save it in per
-          * every time connection Down
-          */
-         for (Map.Entry<DTNHost, List<Duration>> entry : connHistory.entrySet()) {
-             // Get the host for each entry
-             DTNHost host = entry.getKey();
- 
-             // Calculate the friend rank for the host
-             double friendRank = calculatePer(host);
- 
-             // Get the total number of friends for the host (total size of the connection
-             // history)
-             Set<DTNHost> Fj = new HashSet<>(connHistory.keySet());
-             Fj.add(peer); // Add the peer to the set of hosts
-             int totalFriends = Fj.size();
- 
-             // Create a new tuple with the friend rank and total number of friends
-             TupleDe<Double, Integer> tuple = new TupleDe<>(friendRank, totalFriends);
- 
-             // Update the tuple in the per map for the host
-             per.put(host, tuple);
+         Double start = startTimestamps.remove(peer);
+         double etime = SimClock.getTime();
+         if (start != null && etime - start >= treshold) {
+             history.add(new Duration(start, etime));
+             ranks.addFriend(peer.getAddress());
          }
+         return history;
      }
  
      /**
@@ -189,11 +176,11 @@
       * @return The start time of the previous connection, or 0 if no record exists.
       */
      public double getPreviousConnectionStartTime(DTNHost thisHost, DTNHost peer) {
-         // Check if there is a previous connection start time recorded for this host and
-         // peer
-         if (startTimestamps.containsKey(thisHost)) {
+         // Check if there is a previous connection start time recorded for the peer
+         Double start = startTimestamps.get(peer);
+         if (start != null) {
              // If a record exists, return the start time of the previous connection
-             return startTimestamps.get(peer);
+             return start;
          } else {
              // If no record exists, return 0
              return 0;
@@ -246,90 +233,18 @@
          if (m.getTo() == otherHost) {
              return true; // Message should be sent directly to the destination
          }
-         // Calculate PeopleRank2 for this host and other host
-         double perThisHost = calculatePer(thisHost);
-         double perOtherHost = calculatePer(otherHost);
- 
-         // Initialize F(i) as the set of friends of i
-         Set<DTNHost> Fi = new HashSet<>(connHistory.keySet());
-         Fi.add(thisHost);
- 
-         // Check if this host is in contact with the other host or already friend
-         if (connHistory.containsKey(otherHost) || thisHostSet.contains(otherHost)) {
-             // while 1 do
-             while (true) {
-                 // while i is in contact with j do
-                 for (Map.Entry<DTNHost, List<Duration>> entry : connHistory.entrySet()) {
-                     if (entry.getKey().equals(otherHost)) {
-                         Iterator<DTNHost> iterator = Fi.iterator();
-                         while (iterator.hasNext()) {
-                             DTNHost check = iterator.next();
-                             if (otherHost.equals(check)) { // if j ∈ F(i) then
-                                 // System.out.println("Check Fi : " + check + "other host : " + otherHost);
-                                 return true;
-                             } else if (!check.equals(otherHost)) { // if j !∈ F(i) then
-                                 // System.out.println("false");
-                                 return false;
-                             }
-                         }
-                     }
-                     // while ∃ m ∈ buffer(i) do
-                     Buffer messageBuffer = new Buffer(); // Instantiate Buffer with settings
-                     int bufferSize = messageBuffer.getBufferSize(thisHost);
-                     while (bufferSize > 0) {
-                         if (perOtherHost >= perThisHost || otherHost.equals(m.getTo())) {
-                             return true; // Condition met, Forward
-                         }
-                     }
-                 }
- 
-                 // If the destination host is not in contact with the current host, check the
-                 // end while
-             }
-         }
-         return false; // Otherwise, do not send the message to other host
-     }
- 
-     /**
-      * Calculates the PeopleRank2 for a given host based on the formula:
-      * PeR(Ni) = (1 - d) + d * Σ PeR(Nj) / |F(Nj)|
-      * 
-      * Where:
-      * - PeR(Ni) is the PeopleRank2 for the current host.
-      * - d is the damping factor obtained from the setting. If not specified, it
-      * defaults to 0.75.
-      * - PeR(Nj) is the ranking of other connected nodes (friends).
-      * - |F(Nj)| is the total number of friends of other nodes.
-      * 
-      * @param host The host for which to calculate the PeopleRank2.
-      * @return The PeopleRank2 for the specified host.
-      */
-     private double calculatePer(DTNHost host) {
-         // Get damping factor from settings
-         double dampingFactor = this.dumpingFactor;
- 
-         double sum = 0.0; // Initialize sum
+         // PeopleRank2 of this host and of the other host
+         double perThisHost = ranks.getRank();
+         double perOtherHost = this.getOtherDecisionEngine(otherHost).ranks.getRank();
  
-         // Calculate total number of friends for other nodes
-         int totalFriends = 0;
-         for (TupleDe<Double, Integer> tuple : per.values()) {
-             totalFriends += tuple.getSecond(); // Accumulate total friends
-         }
- 
-         // Iterate over the connection history
-         for (TupleDe<Double, Integer> tuple : per.values()) {
-             if (!tuple.getFirst().equals(host)) { // Exclude the host itself
-                 // Calculate PeR(Nj) by summing up the rankings of its friends
-                 double friendRanking = tuple.getFirst(); // Ranking of the friend
-                 int friendsOfOtherHost = tuple.getSecond(); // Total friends of the friend
-                 if (friendsOfOtherHost > 0) {
-                     sum += friendRanking / totalFriends; // Accumulate sum
-                 }
-             }
+         // Forward only to hosts this host has been in contact with before
+         if (!connHistory.containsKey(otherHost)) {
+             return false;
          }
  
-         // Calculate and return the PeopleRank2 value according to the formula
-         return (1 - dampingFactor) + dampingFactor * sum;
+         // while ∃ m ∈ buffer(i): forward if PeR(j) >= PeR(i) (the router only
+         // asks about messages in the buffer of this host)
+         return perOtherHost >= perThisHost;
      }
  
      private PeopleRank2 getOtherDecisionEngine(DTNHost h) {
@@ -346,30 +261,30 @@
      public Map<DTNHost, Double> getAllRankings() {
          Map<DTNHost, Double> rankings = new HashMap<>();
  
-         // Iterate over the per map to extract rankings
-         for (Map.Entry<DTNHost, TupleDe<Double, Integer>> entry : per.entrySet()) {
-             DTNHost currentHost = entry.getKey();
-             TupleDe<Double, Integer> tuple = entry.getValue();
- 
-             // Add the host and its ranking to the map
-             rankings.put(currentHost, tuple.getFirst());
+         // Iterate over the contacted hosts to extract the known rankings
+         for (DTNHost currentHost : connHistory.keySet()) {
+             if (ranks.isKnown(currentHost.getAddress())) {
+                 // Add the host and its ranking to the map
+                 rankings.put(currentHost, ranks.getKnownRank(currentHost.getAddress()));
+             }
          }
  
          return rankings;
      }
  
+     /**
+      * Returns the PeopleRank2 value of this host
+      * 
+      * @return The PeopleRank2 value
+      */
+     public double getRank() {
+         return ranks.getRank();
+     }
+ 
      public double getRanking(DTNHost host) {
-         // Check if the host exists in the per map
-         if (per.containsKey(host)) {
-             // Retrieve the tuple containing the PeopleRank2 value for the host
-             TupleDe<Double, Integer> tuple = per.get(host);
-             // Return the PeopleRank2 value from the tuple
-             System.out.println(tuple.getFirst());
-             return tuple.getFirst();
-         } else {
-             // If the host is not found in the per map, return a default value (e.g., 0)
-             return 0.0; // or any other default value as per your requirement
-         }
+         // Return the last learned PeopleRank2 value of the host from the rank
+         // table, or a default value (0) if the host is not found in the table
+         return ranks.getKnownRank(host.getAddress());
      }
  
  }
\ No newline at end of file
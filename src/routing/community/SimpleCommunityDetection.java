@@ -10,6 +10,7 @@ import java.util.*;
 
 //import routing.communitydetection.DiBuBB.Duration;
 import core.*;
+import routing.util.HostBitSet;
 
 /**
  * <p>
@@ -25,6 +26,11 @@ import core.*;
  * they each tend to meet the same nodes often, suggesting they both are and
  * should be part of the same local community.
  * </p>
+ * <p>
+ * The familiar sets and local communities are bit sets indexed by host
+ * address, so the sizes of their intersections and unions are computed with
+ * popcount instead of probing the hosts one by one.
+ * </p>
  *
  * <pre>
  * \@inproceedings{1366929,
@@ -64,8 +70,8 @@ public class SimpleCommunityDetection implements CommunityDetection {
      */
     public static final String FAMILIAR_SETTING = "familiarThreshold";
 
-    protected Set<DTNHost> familiarSet;
-    protected Set<DTNHost> localCommunity;
+    protected HostBitSet familiarSet;
+    protected HostBitSet localCommunity;
 
     protected double lambda;
     protected double gamma;
@@ -87,8 +93,8 @@ public class SimpleCommunityDetection implements CommunityDetection {
         this.lambda = proto.lambda;
         this.gamma = proto.gamma;
         this.familiarThreshold = proto.familiarThreshold;
-        familiarSet = new HashSet<DTNHost>();
-        localCommunity = new HashSet<DTNHost>();
+        familiarSet = new HostBitSet();
+        localCommunity = new HostBitSet();
     }
 
     public void newConnection(DTNHost myHost, DTNHost peer,
@@ -106,16 +112,10 @@ public class SimpleCommunityDetection implements CommunityDetection {
 			 * peer's familiarSet and this host's localCommunity. We divide that by
 			 * the size of the peer's familiar set
              */
-            
-            System.out.println(peer +" has size com : " +localCommunity.size());
-            
+
             // compute set intersection
-            int count = 0, peerFsize = scd.familiarSet.size();
-            for (DTNHost h : scd.familiarSet) {
-                if (this.localCommunity.contains(h)) {
-                    count++;
-                }
-            }
+            int count = scd.familiarSet.intersectionSize(this.localCommunity);
+            int peerFsize = scd.familiarSet.size();
 
             // add peer to local community if enough nodes in common
             if (addPeerToMyLocal = ((double) count) / peerFsize > this.lambda) {
@@ -128,12 +128,8 @@ public class SimpleCommunityDetection implements CommunityDetection {
          */
         if (!scd.localCommunity.contains(myHost)) {
             // compute set intersection
-            int count = 0, myFsize = this.familiarSet.size();
-            for (DTNHost h : this.familiarSet) {
-                if (scd.localCommunity.contains(h)) {
-                    count++;
-                }
-            }
+            int count = this.familiarSet.intersectionSize(scd.localCommunity);
+            int myFsize = this.familiarSet.size();
 
             // add this host to local community of peer if enough nodes in common
             if (addMeToPeerLocal = ((double) count) / myFsize > scd.lambda) {
@@ -143,26 +139,19 @@ public class SimpleCommunityDetection implements CommunityDetection {
 
         // Test for conditions when the local communities should be merged
         if (addPeerToMyLocal || addMeToPeerLocal) {
-            // Compute set union
-            Set<DTNHost> commUnion = new HashSet<DTNHost>(this.localCommunity.size()
-                    + scd.localCommunity.size() + 2);
-            commUnion.addAll(this.localCommunity);
-            commUnion.addAll(scd.localCommunity);
-
             // compute intersection of the two local communities
             // (the result is the same from both node's perspective)
-            int count = 0;
-            for (DTNHost h : this.localCommunity) {
-                if (scd.localCommunity.contains(h)) {
-                    count++;
-                }
-            }
+            int count = this.localCommunity.intersectionSize(scd.localCommunity);
+
+            // Compute set union size
+            int unionSize = this.localCommunity.size() + scd.localCommunity.size()
+                    - count;
 
             // merge communities if enough nodes are common
-            if (addPeerToMyLocal && count > this.gamma * commUnion.size()) {
+            if (addPeerToMyLocal && count > this.gamma * unionSize) {
                 this.localCommunity.addAll(scd.localCommunity);
             }
-            if (addMeToPeerLocal && count > scd.gamma * commUnion.size()) {
+            if (addMeToPeerLocal && count > scd.gamma * unionSize) {
                 scd.localCommunity.addAll(this.localCommunity);
             }
         }
@@ -202,10 +191,10 @@ public class SimpleCommunityDetection implements CommunityDetection {
     }
 
     public Set<DTNHost> getLocalCommunity() {
-        return this.localCommunity;
+        return this.localCommunity.snapshot();
     }
 
     public Set<DTNHost> getFamiliarSet() {
-        return this.familiarSet;
+        return this.familiarSet.snapshot();
     }
 }
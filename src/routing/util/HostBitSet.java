@@ -0,0 +1,315 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import core.DTNHost;
+import core.DTNSim;
+import core.SimError;
+
+/**
+ * Set of hosts stored as a bit set indexed by the host addresses. Membership
+ * tests are a single bit test and the sizes of intersections and unions with
+ * other host bit sets are computed word by word with popcount, without
+ * iterating over the hosts.
+ * <P>Immutable snapshots of a set can be shared with other objects (see
+ * {@link #snapshot()}). A snapshot is copied only when the set has been
+ * modified after the previous snapshot was taken.</P>
+ * <P>The sets store only the addresses. Iterating over a set resolves the
+ * addresses to hosts using the host list given to
+ * {@link #setHosts(List)} (the world does this when it is created).</P>
+ */
+public class HostBitSet extends AbstractSet<DTNHost> {
+    /** all hosts indexed by their address (for iterating) */
+    private static List<DTNHost> allHosts;
+
+    private long[] bits;
+    private int size;
+    /** number of modifications (snapshots have the version of the origin) */
+    private int version;
+    private boolean immutable;
+    /** latest snapshot of this set (or null) */
+    private HostBitSet snapshot;
+
+    static {
+        DTNSim.registerForReset(HostBitSet.class.getCanonicalName());
+        reset();
+    }
+
+    /**
+     * Constructor. Creates an empty set.
+     */
+    public HostBitSet() {
+        this.bits = new long[1];
+        this.size = 0;
+        this.version = 0;
+        this.immutable = false;
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param other The set to copy
+     */
+    private HostBitSet(HostBitSet other) {
+        this.bits = other.bits.clone();
+        this.size = other.size;
+        this.version = other.version;
+        this.immutable = false;
+    }
+
+    @Override
+    public boolean add(DTNHost host) {
+        checkMutable();
+        int address = host.getAddress();
+        ensureCapacity(address);
+        long bit = 1L << address;
+        if ((this.bits[address >>> 6] & bit) != 0) {
+            return false;
+        }
+        this.bits[address >>> 6] |= bit;
+        this.size++;
+        this.version++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        checkMutable();
+        if (!contains(o)) {
+            return false;
+        }
+        int address = ((DTNHost) o).getAddress();
+        this.bits[address >>> 6] &= ~(1L << address);
+        this.size--;
+        this.version++;
+        return true;
+    }
+
+    /**
+     * Adds all the hosts of another set to this set
+     *
+     * @param other The other set
+     * @return true if this set changed
+     */
+    public boolean addAll(HostBitSet other) {
+        checkMutable();
+        ensureCapacity((other.bits.length << 6) - 1);
+        int oldSize = this.size;
+        for (int i = 0; i < other.bits.length; i++) {
+            long added = other.bits[i] & ~this.bits[i];
+            this.bits[i] |= added;
+            this.size += Long.bitCount(added);
+        }
+        if (this.size != oldSize) {
+            this.version++;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends DTNHost> c) {
+        if (c instanceof HostBitSet) {
+            return addAll((HostBitSet) c);
+        }
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof DTNHost)) {
+            return false;
+        }
+        return contains(((DTNHost) o).getAddress());
+    }
+
+    /**
+     * Returns true if the set contains the host with the given address
+     *
+     * @param address Address of the host
+     * @return true if the set contains the host
+     */
+    public boolean contains(int address) {
+        int word = address >>> 6;
+        return word < this.bits.length
+                && (this.bits[word] & (1L << address)) != 0;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        if (c instanceof HostBitSet) {
+            HostBitSet other = (HostBitSet) c;
+            return intersectionSize(other) == other.size;
+        }
+        return super.containsAll(c);
+    }
+
+    /**
+     * Returns the number of hosts that are in both this and the other set
+     *
+     * @param other The other set
+     * @return Size of the intersection
+     */
+    public int intersectionSize(HostBitSet other) {
+        int n = Math.min(this.bits.length, other.bits.length);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            count += Long.bitCount(this.bits[i] & other.bits[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of hosts that are in this or the other set
+     *
+     * @param other The other set
+     * @return Size of the union
+     */
+    public int unionSize(HostBitSet other) {
+        return this.size + other.size - intersectionSize(other);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns an immutable snapshot of the current contents of this set.
+     * The same snapshot is returned until this set is modified.
+     *
+     * @return The snapshot
+     */
+    public HostBitSet snapshot() {
+        if (this.immutable) {
+            return this;
+        }
+        if (this.snapshot == null || this.snapshot.version != this.version) {
+            this.snapshot = new HostBitSet(this);
+            this.snapshot.immutable = true;
+        }
+        return this.snapshot;
+    }
+
+    /**
+     * Returns the version of the set. The version grows every time the set
+     * is modified and a snapshot has the version of the set it was taken of.
+     *
+     * @return The version
+     */
+    public int getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public Iterator<DTNHost> iterator() {
+        return new Iterator<DTNHost>() {
+            private int next = nextAddress(0);
+
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            public DTNHost next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                DTNHost h = getHost(next);
+                next = nextAddress(next + 1);
+                return h;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Returns the smallest address in the set that is at least the given one
+     *
+     * @param from The address to start from
+     * @return The address or -1 if there's none
+     */
+    private int nextAddress(int from) {
+        int word = from >>> 6;
+        if (word >= this.bits.length) {
+            return -1;
+        }
+        long w = this.bits[word] & (-1L << from);
+        while (true) {
+            if (w != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(w);
+            }
+            if (++word == this.bits.length) {
+                return -1;
+            }
+            w = this.bits[word];
+        }
+    }
+
+    /**
+     * Returns the host with the given address
+     *
+     * @param address The address
+     * @return The host
+     * @throws SimError if the host list does not contain such host
+     */
+    private static DTNHost getHost(int address) {
+        if (allHosts == null || address >= allHosts.size()) {
+            throw new SimError("No host with address " + address +
+                    " in the host list of HostBitSet");
+        }
+        DTNHost h = allHosts.get(address);
+        assert h.getAddress() == address : "Host list not in address order";
+        return h;
+    }
+
+    /**
+     * Sets the hosts that the addresses in the sets refer to
+     *
+     * @param hosts All hosts, indexed by their address
+     */
+    public static void setHosts(List<DTNHost> hosts) {
+        allHosts = hosts;
+    }
+
+    /**
+     * Resets the host list (for the next simulation run)
+     */
+    public static void reset() {
+        allHosts = null;
+    }
+
+    /**
+     * Throws an exception if this set is an immutable snapshot
+     */
+    private void checkMutable() {
+        if (this.immutable) {
+            throw new UnsupportedOperationException("Immutable snapshot");
+        }
+    }
+
+    /**
+     * Grows the set so that it can hold the given address
+     *
+     * @param address The address
+     */
+    private void ensureCapacity(int address) {
+        int word = address >>> 6;
+        if (word < this.bits.length) {
+            return;
+        }
+        this.bits = Arrays.copyOf(this.bits,
+                Math.max(this.bits.length * 2, word + 1));
+    }
+}
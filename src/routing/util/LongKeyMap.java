@@ -0,0 +1,197 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash map with primitive long keys. Uses open addressing with linear
+ * probing, so putting, getting and removing values doesn't allocate any
+ * objects (except when the table grows).
+ *
+ * @param <V> Type of the values
+ */
+public class LongKeyMap<V> {
+    /** initial capacity of the table (must be a power of two) */
+    private static final int INITIAL_CAPACITY = 8;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Constructor. Creates an empty map.
+     */
+    public LongKeyMap() {
+        this.keys = new long[INITIAL_CAPACITY];
+        this.values = new Object[INITIAL_CAPACITY];
+        this.mask = INITIAL_CAPACITY - 1;
+        this.size = 0;
+    }
+
+    /**
+     * Returns the value of a key
+     *
+     * @param key The key
+     * @return The value or null if the map doesn't contain the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = indexOf(key);
+        return i < 0 ? null : (V) this.values[i];
+    }
+
+    /**
+     * Puts a value to the map
+     *
+     * @param key The key of the value
+     * @param value The value (must not be null)
+     * @return The previous value of the key or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null value for key " + key);
+        }
+
+        int i = slot(key);
+        while (this.values[i] != null) {
+            if (this.keys[i] == key) {
+                V old = (V) this.values[i];
+                this.values[i] = value;
+                return old;
+            }
+            i = (i + 1) & this.mask;
+        }
+
+        this.keys[i] = key;
+        this.values[i] = value;
+        this.size++;
+        if (this.size * 2 > this.keys.length) {
+            resize(this.keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Removes a key and its value from the map
+     *
+     * @param key The key to remove
+     * @return The removed value or null if the map didn't contain the key
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+
+        V old = (V) this.values[i];
+        this.values[i] = null;
+        this.size--;
+
+        /* move back the following entries of the probe sequence */
+        int j = (i + 1) & this.mask;
+        while (this.values[j] != null) {
+            int home = slot(this.keys[j]);
+            /* can the entry at j be moved to the free slot i? */
+            if (((j - home) & this.mask) >= ((j - i) & this.mask)) {
+                this.keys[i] = this.keys[j];
+                this.values[i] = this.values[j];
+                this.values[j] = null;
+                i = j;
+            }
+            j = (j + 1) & this.mask;
+        }
+        return old;
+    }
+
+    /**
+     * Returns true if the map contains the key
+     *
+     * @param key The key
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns the number of values in the map
+     *
+     * @return the number of values in the map
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns a new list containing all the values of the map
+     *
+     * @return the values (in no particular order)
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> list = new ArrayList<V>(this.size);
+        for (Object v : this.values) {
+            if (v != null) {
+                list.add((V) v);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns the index of a key in the table
+     *
+     * @param key The key
+     * @return The index or -1 if the key is not in the table
+     */
+    private int indexOf(long key) {
+        int i = slot(key);
+        while (this.values[i] != null) {
+            if (this.keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the preferred slot of a key
+     *
+     * @param key The key
+     * @return The slot index
+     */
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & this.mask;
+    }
+
+    /**
+     * Resizes the table and rehashes all entries
+     *
+     * @param capacity The new capacity (a power of two)
+     */
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity) {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.util.Arrays;
+
+/**
+ * Compact set of (non-negative) integer message IDs, e.g., the IDs of the
+ * messages a router has delivered. The IDs are split to chunks of 65536
+ * consecutive values by their high bits. A chunk with only few IDs stores
+ * them as a sorted array of the low bits and a chunk with many IDs as a
+ * bitmap, so the set takes at most a few bytes per ID regardless of how the
+ * IDs are spread.
+ * <P>A set created with eviction enabled also keeps the IDs in the order
+ * they were added together with the time of adding, so that the IDs added
+ * before a given time can be removed (see {@link #evictOlderThan(double)}).
+ * This takes 12 more bytes per ID.</P>
+ */
+public class MessageIdSet {
+    /** number of low bits in a chunk */
+    private static final int CHUNK_BITS = 16;
+    /** max number of IDs in the array form of a chunk */
+    private static final int ARRAY_MAX = 4096;
+
+    /** chunks indexed by the high bits of the IDs (null = empty chunk) */
+    private Chunk[] chunks;
+    private int size;
+
+    /** the IDs in the order they were added (ring buffer starting from
+     * head), or null if eviction is not enabled */
+    private int[] addedIds;
+    /** the times the IDs in addedIds were added */
+    private double[] addedTimes;
+    private int head;
+
+    /**
+     * Constructor. Creates an empty set without eviction.
+     */
+    public MessageIdSet() {
+        this(false);
+    }
+
+    /**
+     * Constructor. Creates an empty set.
+     *
+     * @param evictable If true, the set keeps track of when the IDs were
+     * added so that they can be evicted by the time
+     */
+    public MessageIdSet(boolean evictable) {
+        this.chunks = new Chunk[1];
+        this.size = 0;
+        if (evictable) {
+            this.addedIds = new int[16];
+            this.addedTimes = new double[16];
+            this.head = 0;
+        }
+    }
+
+    /**
+     * Adds an ID to the set
+     *
+     * @param id The ID to add
+     * @param time Time of adding (for eviction). Must not be less than the
+     * time of the previous add. Adding an ID that is already in the set
+     * does not change its time.
+     * @return true if the ID was not in the set already
+     */
+    public boolean add(int id, double time) {
+        checkId(id);
+        int high = id >>> CHUNK_BITS;
+        if (high >= this.chunks.length) {
+            this.chunks = Arrays.copyOf(this.chunks,
+                    Math.max(high + 1, this.chunks.length * 2));
+        }
+
+        Chunk c = this.chunks[high];
+        if (c == null) {
+            c = new Chunk();
+            this.chunks[high] = c;
+        }
+
+        if (!c.add((char) id)) {
+            return false;
+        }
+        this.size++;
+
+        if (this.addedIds != null) {
+            if (this.size > this.addedIds.length) {
+                growAdded();
+            }
+            int tail = (this.head + this.size - 1) % this.addedIds.length;
+            this.addedIds[tail] = id;
+            this.addedTimes[tail] = time;
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the set contains the ID
+     *
+     * @param id The ID to look for
+     * @return true if the set contains the ID
+     */
+    public boolean contains(int id) {
+        checkId(id);
+        int high = id >>> CHUNK_BITS;
+        if (high >= this.chunks.length || this.chunks[high] == null) {
+            return false;
+        }
+        return this.chunks[high].contains((char) id);
+    }
+
+    /**
+     * Removes all the IDs that were added before the given time
+     *
+     * @param time The time limit
+     * @return Number of IDs removed
+     * @throws IllegalStateException if the set was not created with
+     * eviction enabled
+     */
+    public int evictOlderThan(double time) {
+        if (this.addedIds == null) {
+            throw new IllegalStateException("Eviction is not enabled");
+        }
+
+        int removed = 0;
+        while (this.size > 0 && this.addedTimes[this.head] < time) {
+            int id = this.addedIds[this.head];
+            int high = id >>> CHUNK_BITS;
+            Chunk c = this.chunks[high];
+            c.remove((char) id);
+            if (c.size == 0) {
+                this.chunks[high] = null;
+            }
+            this.head = (this.head + 1) % this.addedIds.length;
+            this.size--;
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the number of IDs in the set
+     *
+     * @return the number of IDs in the set
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes all IDs from the set
+     */
+    public void clear() {
+        this.chunks = new Chunk[1];
+        this.size = 0;
+        this.head = 0;
+    }
+
+    /**
+     * Doubles the capacity of the added IDs ring buffer
+     */
+    private void growAdded() {
+        int n = this.addedIds.length;
+        int[] ids = new int[n * 2];
+        double[] times = new double[n * 2];
+        for (int i = 0; i < n; i++) {
+            ids[i] = this.addedIds[(this.head + i) % n];
+            times[i] = this.addedTimes[(this.head + i) % n];
+        }
+        this.addedIds = ids;
+        this.addedTimes = times;
+        this.head = 0;
+    }
+
+    /**
+     * Checks that an ID can be stored in the set
+     *
+     * @param id The ID to check
+     */
+    private void checkId(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative ID " + id);
+        }
+    }
+
+    /**
+     * IDs that share the same high bits. The low bits are stored either
+     * in a sorted array or in a bitmap.
+     */
+    private static class Chunk {
+        private char[] values = new char[4];
+        private long[] bitmap;
+        private int size;
+
+        private boolean contains(char low) {
+            if (this.bitmap != null) {
+                return (this.bitmap[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(this.values, 0, this.size, low) >= 0;
+        }
+
+        private boolean add(char low) {
+            if (this.bitmap != null) {
+                long bit = 1L << low;
+                if ((this.bitmap[low >>> 6] & bit) != 0) {
+                    return false;
+                }
+                this.bitmap[low >>> 6] |= bit;
+                this.size++;
+                return true;
+            }
+
+            int index = Arrays.binarySearch(this.values, 0, this.size, low);
+            if (index >= 0) {
+                return false;
+            }
+            if (this.size == ARRAY_MAX) {
+                toBitmap();
+                return add(low);
+            }
+
+            index = -(index + 1);
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values,
+                        Math.min(this.size * 2, ARRAY_MAX));
+            }
+            System.arraycopy(this.values, index, this.values, index + 1,
+                    this.size - index);
+            this.values[index] = low;
+            this.size++;
+            return true;
+        }
+
+        private void remove(char low) {
+            if (this.bitmap != null) {
+                this.bitmap[low >>> 6] &= ~(1L << low);
+                this.size--;
+                return;
+            }
+            int index = Arrays.binarySearch(this.values, 0, this.size, low);
+            System.arraycopy(this.values, index + 1, this.values, index,
+                    this.size - index - 1);
+            this.size--;
+        }
+
+        /**
+         * Converts the array form of the chunk to a bitmap
+         */
+        private void toBitmap() {
+            this.bitmap = new long[(1 << CHUNK_BITS) / 64];
+            for (int i = 0; i < this.size; i++) {
+                char low = this.values[i];
+                this.bitmap[low >>> 6] |= 1L << low;
+            }
+            this.values = null;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import core.DTNHost;
+import core.Message;
+
+/**
+ * Global index of which hosts hold which messages. For every message that
+ * at least one host holds, the index has a bit set of the holders and a
+ * slot number, and for every host a bit set of the slots of the messages it
+ * holds. When the last holder of a message removes it, the message's entry
+ * is dropped and its slot is reused, so the index only grows with the
+ * number of messages that are held at the same time. The routers must tell
+ * the index when they add and remove messages.
+ */
+public class MessageLocationIndex {
+    /** the indexed messages by their ID */
+    private HashMap<String, Entry> entries;
+    /** the indexed messages by their slot (null for a free slot) */
+    private Entry[] slots;
+    /** slots that have been used and freed */
+    private int[] freeSlots;
+    private int nrofFreeSlots;
+    /** number of slots used so far */
+    private int nrofSlots;
+    /** sequence number of the next new entry */
+    private long nextSeqNo;
+    /** slots of the messages each host holds, indexed by address */
+    private long[][] heldSlots;
+
+    /**
+     * Constructor. Creates an empty index.
+     */
+    public MessageLocationIndex() {
+        this.entries = new HashMap<String, Entry>();
+        this.slots = new Entry[64];
+        this.freeSlots = new int[64];
+        this.nrofFreeSlots = 0;
+        this.nrofSlots = 0;
+        this.nextSeqNo = 0;
+        this.heldSlots = new long[0][];
+    }
+
+    /**
+     * Records that a host holds a message
+     *
+     * @param host The host
+     * @param m The message
+     */
+    public void add(DTNHost host, Message m) {
+        Entry e = this.entries.get(m.getId());
+        if (e == null) {
+            e = new Entry(m.getId(), allocateSlot(), this.nextSeqNo++);
+            this.entries.put(e.id, e);
+            this.slots[e.slot] = e;
+        }
+        if (e.holders.add(host)) {
+            long[] held = getHeldSlots(host, e.slot);
+            held[e.slot >>> 6] |= 1L << e.slot;
+        }
+    }
+
+    /**
+     * Records that a host no longer holds a message
+     *
+     * @param host The host
+     * @param m The message
+     */
+    public void remove(DTNHost host, Message m) {
+        Entry e = this.entries.get(m.getId());
+        if (e == null || !e.holders.remove(host)) {
+            return;
+        }
+
+        long[] held = this.heldSlots[host.getAddress()];
+        held[e.slot >>> 6] &= ~(1L << e.slot);
+
+        if (e.holders.isEmpty()) { // nobody holds the message anymore
+            this.entries.remove(e.id);
+            this.slots[e.slot] = null;
+            freeSlot(e.slot);
+        }
+    }
+
+    /**
+     * Returns the hosts that hold a copy of a message
+     *
+     * @param id ID of the message
+     * @return An immutable snapshot of the holders (empty if none)
+     */
+    public HostBitSet getHolders(String id) {
+        Entry e = this.entries.get(id);
+        if (e == null) {
+            return new HostBitSet().snapshot();
+        }
+        return e.holders.snapshot();
+    }
+
+    /**
+     * Returns the IDs of the messages that a host holds but another host
+     * doesn't, in the order the messages were first added to the index
+     *
+     * @param from The host whose messages to return
+     * @param notAt The host whose messages are excluded
+     * @return The message IDs
+     */
+    public String[] getMissing(DTNHost from, DTNHost notAt) {
+        long[] have = getHeldSlots(from, -1);
+        long[] other = getHeldSlots(notAt, -1);
+
+        List<Entry> missing = new ArrayList<Entry>();
+        for (int i = 0; i < have.length; i++) {
+            long diff = have[i] & ~word(other, i);
+            while (diff != 0) {
+                int slot = (i << 6) + Long.numberOfTrailingZeros(diff);
+                missing.add(this.slots[slot]);
+                diff &= diff - 1;
+            }
+        }
+
+        if (missing.size() > 1) {
+            Collections.sort(missing, new Comparator<Entry>() {
+                public int compare(Entry e1, Entry e2) {
+                    return e1.seqNo < e2.seqNo ? -1 :
+                        (e1.seqNo == e2.seqNo ? 0 : 1);
+                }
+            });
+        }
+
+        String[] ids = new String[missing.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = missing.get(i).id;
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the number of messages held by at least one host
+     *
+     * @return the number of indexed messages
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Returns the number of slots that have been needed, i.e., the largest
+     * number of messages that have been indexed at the same time
+     *
+     * @return the number of slots
+     */
+    public int getNrofSlots() {
+        return this.nrofSlots;
+    }
+
+    /**
+     * Returns a free slot (reusing freed slots first)
+     *
+     * @return The slot
+     */
+    private int allocateSlot() {
+        if (this.nrofFreeSlots > 0) {
+            return this.freeSlots[--this.nrofFreeSlots];
+        }
+        if (this.nrofSlots == this.slots.length) {
+            this.slots = Arrays.copyOf(this.slots, this.slots.length * 2);
+        }
+        return this.nrofSlots++;
+    }
+
+    /**
+     * Marks a slot free for reuse
+     *
+     * @param slot The slot
+     */
+    private void freeSlot(int slot) {
+        if (this.nrofFreeSlots == this.freeSlots.length) {
+            this.freeSlots = Arrays.copyOf(this.freeSlots,
+                    this.freeSlots.length * 2);
+        }
+        this.freeSlots[this.nrofFreeSlots++] = slot;
+    }
+
+    /**
+     * Returns a word of a bit set, or 0 if the set is shorter
+     *
+     * @param bits The bit set
+     * @param i Index of the word
+     * @return The word
+     */
+    private static long word(long[] bits, int i) {
+        return i < bits.length ? bits[i] : 0;
+    }
+
+    /**
+     * Returns the bit set of the slots of the messages a host holds
+     *
+     * @param host The host
+     * @param slot A slot the set must be able to hold (or -1)
+     * @return The bit set
+     */
+    private long[] getHeldSlots(DTNHost host, int slot) {
+        int address = host.getAddress();
+        if (address >= this.heldSlots.length) {
+            this.heldSlots = Arrays.copyOf(this.heldSlots,
+                    Math.max(address + 1, this.heldSlots.length * 2));
+        }
+        long[] held = this.heldSlots[address];
+        int words = slot < 0 ? 1 : (slot >>> 6) + 1;
+        if (held == null) {
+            held = new long[words];
+            this.heldSlots[address] = held;
+        } else if (words > held.length) {
+            held = Arrays.copyOf(held, Math.max(words, held.length * 2));
+            this.heldSlots[address] = held;
+        }
+        return held;
+    }
+
+    /**
+     * An indexed message
+     */
+    private static class Entry {
+        private String id;
+        private int slot;
+        /** order of the entry's creation */
+        private long seqNo;
+        private HostBitSet holders;
+
+        private Entry(String id, int slot, long seqNo) {
+            this.id = id;
+            this.slot = slot;
+            this.seqNo = seqNo;
+            this.holders = new HostBitSet();
+        }
+    }
+}
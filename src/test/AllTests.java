@@ -49,6 +49,22 @@ public class AllTests {
 		suite.addTestSuite(ScheduledUpdatesQueueTest.class);
 		suite.addTestSuite(MessageTest.class);
 		suite.addTestSuite(ModuleCommunicationBusTest.class);
+		suite.addTestSuite(MessageIdSetTest.class);
+		suite.addTestSuite(LongKeyMapTest.class);
+		suite.addTestSuite(IncrementalPeopleRankTest.class);
+		suite.addTestSuite(HostBitSetTest.class);
+		suite.addTestSuite(EventQueueHeapTest.class);
+		suite.addTestSuite(TransferDoneQueueTest.class);
+		suite.addTestSuite(ContactPlanTest.class);
+		suite.addTestSuite(ReportAggregatorTest.class);
+		suite.addTestSuite(EIDIndexTest.class);
+		suite.addTestSuite(SimScenarioTest.class);
+		suite.addTestSuite(MessageLocationIndexTest.class);
+		suite.addTestSuite(PeopleRank2Test.class);
+		suite.addTestSuite(DistributedPeopleRankTest.class);
+		suite.addTestSuite(SnapshotRingTest.class);
+		suite.addTestSuite(MessageEventGeneratorTest.class);
+		suite.addTestSuite(InterferenceStateTest.class);
 		//$JUnit-END$
 		return suite;
 	}
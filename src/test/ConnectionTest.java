@@ -81,6 +81,17 @@ public class ConnectionTest extends TestCase {
 		assertTrue(h[2].recvFrom == h[0]);
 		assertTrue(h[2].recvMessage.getId().equals(m[1].getId()));
 	}
+	
+	public void testTransferredMessageIsReplica() {
+		Message onFly = c[0].getMessage();
+		assertNotSame(m[0], onFly);
+		assertEquals(m[0].getId(), onFly.getId());
+		
+		/* only the replica has the receiving host on its path */
+		assertEquals(0, m[0].getHopCount());
+		assertEquals(1, onFly.getHopCount());
+		assertEquals(h[1], onFly.getHops().get(1));
+	}
 
 	public void testAbortTransfer() {
 		assertTrue(h[1].abortedId == null);
@@ -0,0 +1,61 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import input.ContactPlanReader;
+import input.ContactPlanWriter;
+import input.ExternalEvent;
+import input.ExternalEventsQueue;
+
+import java.io.File;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for writing and reading contact plans
+ */
+public class ContactPlanTest extends TestCase {
+	private File planFile;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		planFile = File.createTempFile("cpTest", 
+				ContactPlanReader.CONTACT_PLAN_EXT);
+		planFile.deleteOnExit();
+		
+		ContactPlanWriter w = new ContactPlanWriter(planFile.getPath());
+		w.writeLink(1.0, 0, 1, "btInterface", true, 250000);
+		w.writeLink(2.5, 2, 0, "wlanInterface", true, 1000000);
+		w.writeLink(3.0, 1, 0, "btInterface", false, 0);
+		w.writeLink(4.0, 0, 2, "wlanInterface", false, 0);
+		assertEquals(4, w.getNrofRecords());
+		w.close();
+	}
+	
+	public void testReadAll() {
+		ContactPlanReader r = new ContactPlanReader(planFile);
+		List<ExternalEvent> events = r.readEvents(10);
+		
+		assertEquals(4, events.size());
+		assertEquals("CONN up @1.0 0<->1", events.get(0).toString());
+		assertEquals("CONN up @2.5 2<->0", events.get(1).toString());
+		assertEquals("CONN down @3.0 1<->0", events.get(2).toString());
+		assertEquals("CONN down @4.0 0<->2", events.get(3).toString());
+		assertEquals(0, r.readEvents(10).size());
+	}
+	
+	public void testQueue() {
+		ExternalEventsQueue eeq = new ExternalEventsQueue(planFile.getPath(), 
+				1);
+		double[] times = {1.0, 2.5, 3.0, 4.0};
+		
+		for (double time : times) {
+			assertEquals(time, eeq.nextEventsTime());
+			assertEquals(time, eeq.nextEvent().getTime());
+		}
+		assertEquals(Double.MAX_VALUE, eeq.nextEventsTime());
+	}
+}
@@ -0,0 +1,88 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import routing.DecisionEngineRouter;
+import routing.MessageRouter;
+import routing.community.DistributedPeopleRank;
+import routing.community.PeopleRank2;
+import routing.community.SimpleCommunityDetection;
+import core.DTNHost;
+
+/**
+ * Tests for the rank maintenance of the DistributedPeopleRank decision
+ * engine
+ */
+public class DistributedPeopleRankTest extends AbstractRouterTest {
+	private static final double D = 0.85;
+	private static final int THRESHOLD = 100;
+	private static final double DELTA = 0.00001;
+	
+	@Override
+	public void setUp() throws Exception {
+		String ns = DecisionEngineRouter.PUBSUB_NS + ".";
+		ts.putSetting(MessageRouter.B_SIZE_S, ""+BUFFER_SIZE);
+		ts.putSetting(ns + DecisionEngineRouter.ENGINE_SETTING,
+				"community.DistributedPeopleRank");
+		ts.putSetting(ns + PeopleRank2.DUMPING_FACTOR_SETTING, "" + D);
+		ts.putSetting(ns + PeopleRank2.TRESHOLD_SETTING, "" + THRESHOLD);
+		ts.putSetting(ns + SimpleCommunityDetection.LAMBDA_SETTING, "0.2");
+		ts.putSetting(ns + SimpleCommunityDetection.GAMMA_SETTING, "0.7");
+		ts.putSetting(ns + SimpleCommunityDetection.FAMILIAR_SETTING, "10");
+		setRouterProto(new DecisionEngineRouter(ts));
+		super.setUp();
+		clock.setTime(1000);
+	}
+	
+	private DistributedPeopleRank engine(DTNHost h) {
+		return (DistributedPeopleRank)((DecisionEngineRouter)h.getRouter()).
+			getDecisionEngine();
+	}
+	
+	private void contact(DTNHost a, DTNHost b, double duration) {
+		a.connect(b);
+		clock.advance(duration);
+		disconnect(b);
+	}
+	
+	public void testShortContactsDontMakeFriends() {
+		contact(h1, h2, THRESHOLD - 1);
+		contact(h1, h2, THRESHOLD - 1);
+		
+		assertEquals(1 - D, engine(h1).getRank(), DELTA);
+		assertEquals(1 - D, engine(h2).getRank(), DELTA);
+	}
+	
+	public void testRanksMatchPeopleRank2() throws Exception {
+		for (int i = 0; i < 2; i++) {
+			contact(h2, h3, THRESHOLD);
+			contact(h2, h4, THRESHOLD);
+			contact(h1, h2, THRESHOLD);
+		}
+		double[] ranks = {engine(h1).getRank(), engine(h2).getRank(),
+				engine(h3).getRank()};
+		assertTrue(ranks[1] > ranks[0]);
+		
+		/* the same contacts give the same ranks with PeopleRank2 */
+		ts.putSetting(DecisionEngineRouter.PUBSUB_NS + "." + 
+				DecisionEngineRouter.ENGINE_SETTING, "community.PeopleRank2");
+		setRouterProto(new DecisionEngineRouter(ts));
+		super.setUp();
+		clock.setTime(1000);
+		for (int i = 0; i < 2; i++) {
+			contact(h2, h3, THRESHOLD);
+			contact(h2, h4, THRESHOLD);
+			contact(h1, h2, THRESHOLD);
+		}
+		assertEquals(ranks[0], pr2(h1).getRank(), DELTA);
+		assertEquals(ranks[1], pr2(h2).getRank(), DELTA);
+		assertEquals(ranks[2], pr2(h3).getRank(), DELTA);
+	}
+	
+	private PeopleRank2 pr2(DTNHost h) {
+		return (PeopleRank2)((DecisionEngineRouter)h.getRouter()).
+			getDecisionEngine();
+	}
+}
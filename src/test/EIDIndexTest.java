@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.DTN2Manager.EIDHost;
+import core.EIDIndex;
+import core.SettingsError;
+
+/**
+ * Tests for the EIDIndex
+ */
+public class EIDIndexTest extends TestCase {
+	private static final String[] EIDS = {"dtn://n1.dtn/.*", "dtn://n2.dtn/*",
+		"dtn://n1\\.dtn/app", "dtn://.*", "dtn://n10.dtn/.*", "x|dtn://n2.*"};
+	private EIDIndex index;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		index = new EIDIndex();
+		for (int i = 0; i < EIDS.length; i++) {
+			index.add(new EIDHost(EIDS[i], i, null));
+		}
+	}
+
+	public void testLiteralPrefix() {
+		assertEquals("dtn://n1", EIDIndex.getLiteralPrefix("dtn://n1.dtn/.*"));
+		assertEquals("dtn://n2", EIDIndex.getLiteralPrefix("dtn://n2/*"));
+		assertEquals("dtn://ab", EIDIndex.getLiteralPrefix("dtn://abc?"));
+		assertEquals("dtn://abc", EIDIndex.getLiteralPrefix("dtn://abc+"));
+		assertEquals("dtn://host", EIDIndex.getLiteralPrefix("dtn://host"));
+		assertEquals("", EIDIndex.getLiteralPrefix("^dtn://host"));
+		assertEquals("", EIDIndex.getLiteralPrefix("a|b"));
+	}
+
+	public void testMatchesLikeLinearScan() {
+		String[] lookups = {"dtn://n1.dtn/app", "dtn://n1xdtn/app",
+				"dtn://n2.dtn", "dtn://n2.dtn///", "dtn://n10.dtn/a", "x",
+				"dtn:/", "", "dtn://n2.dtn/app"};
+		for (String eid : lookups) {
+			List<Integer> expected = new ArrayList<Integer>();
+			for (int i = 0; i < EIDS.length; i++) {
+				if (eid.matches(EIDS[i])) {
+					expected.add(i);
+				}
+			}
+			List<Integer> found = new ArrayList<Integer>();
+			for (EIDHost e : index.getHosts(eid)) {
+				found.add(e.host_id);
+			}
+			assertEquals(eid, expected, found);
+		}
+	}
+
+	public void testInvalidPattern() {
+		try {
+			index.add(new EIDHost("dtn://[a", 0, null));
+			fail("Invalid pattern was accepted");
+		} catch (SettingsError e) {
+			// expected
+		}
+		assertEquals(EIDS.length, index.size());
+	}
+}
@@ -321,6 +321,29 @@ public class EpidemicRouterTest extends AbstractRouterTest {
 		assertFalse(mc.next());
 	}
 	
+	/**
+	 * Tests receiving messages whose IDs have the same hash code from the
+	 * same host at the same time
+	 */
+	public void testIncomingIdsWithSameHashCode() {
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		Message m1 = new Message(h1, h3, "Aa", 1);
+		Message m2 = new Message(h1, h3, "BB", 1);
+		h1.createNewMessage(m1);
+		h1.createNewMessage(m2);
+
+		assertEquals(MessageRouter.RCV_OK, h2.receiveMessage(m1, h1));
+		assertEquals(MessageRouter.RCV_OK, h2.receiveMessage(m2, h1));
+		h2.messageTransferred("BB", h1);
+		h2.messageAborted("Aa", h1, 1);
+		assertEquals(1, h2.getNrofMessages());
+		assertEquals("BB", h2.getMessageCollection().iterator().next().getId());
+
+		assertEquals(MessageRouter.RCV_OK, h2.receiveMessage(m1, h1));
+		h2.messageTransferred("Aa", h1);
+		assertEquals(2, h2.getNrofMessages());
+	}
+
 	/**
 	 * Tests if the FIFO queue management works
 	 */
@@ -556,6 +579,9 @@ public class EpidemicRouterTest extends AbstractRouterTest {
 		DTNHost dst = h4;
 		DTNHost other = h2;
 		
+		/* messages created again with the same IDs are new messages, so
+		 * the connection to the destination of an earlier run is closed */
+		disconnect(h1);
 		clock.setTime(0.0);
 		newMessage("1", h1, dst);
 		clock.advance(2.5);
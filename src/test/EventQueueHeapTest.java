@@ -0,0 +1,83 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.EventQueue;
+import input.EventQueueHeap;
+import input.ExternalEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the EventQueueHeap
+ */
+public class EventQueueHeapTest extends TestCase {
+	private static double MAX = Double.MAX_VALUE;
+
+	/**
+	 * Event queue that returns events at the given times
+	 */
+	private static class TimesQueue implements EventQueue {
+		private double[] times;
+		private int next;
+
+		public TimesQueue(double... times) {
+			this.times = times;
+			this.next = 0;
+		}
+
+		public ExternalEvent nextEvent() {
+			return new ExternalEvent(times[next++]);
+		}
+
+		public double nextEventsTime() {
+			return next < times.length ? times[next] : MAX;
+		}
+	}
+
+	public void testOrder() {
+		List<EventQueue> queues = new ArrayList<EventQueue>();
+		queues.add(new TimesQueue(5, 9));
+		queues.add(new TimesQueue(1, 2, 7));
+		queues.add(new TimesQueue(3));
+		queues.add(new TimesQueue());
+		EventQueueHeap heap = new EventQueueHeap(queues);
+
+		double[] expected = {1, 2, 3, 5, 7, 9};
+		for (double time : expected) {
+			assertEquals(time, heap.getFirstTime());
+			assertEquals(time, heap.getFirst().nextEvent().getTime());
+			heap.updateFirst();
+		}
+		assertEquals(MAX, heap.getFirstTime());
+	}
+
+	public void testEqualTimesInQueueOrder() {
+		List<EventQueue> queues = new ArrayList<EventQueue>();
+		for (int i = 0; i < 5; i++) {
+			queues.add(new TimesQueue(4, 6));
+		}
+		EventQueueHeap heap = new EventQueueHeap(queues);
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i % 5, heap.getFirstIndex());
+			heap.getFirst().nextEvent();
+			heap.updateFirst();
+		}
+		assertEquals(MAX, heap.getFirstTime());
+	}
+
+	public void testEmpty() {
+		EventQueueHeap heap = new EventQueueHeap(new ArrayList<EventQueue>());
+		assertNull(heap.getFirst());
+		assertEquals(-1, heap.getFirstIndex());
+		assertEquals(MAX, heap.getFirstTime());
+		heap.updateFirst();
+		heap.rebuild();
+	}
+}
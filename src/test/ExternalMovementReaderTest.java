@@ -6,9 +6,13 @@ package test;
 
 import input.ExternalMovementReader;
 
+import input.ExternalMovementBlock;
+
 import java.io.File;
 import java.io.PrintWriter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import junit.framework.TestCase;
 import core.Coord;
@@ -61,6 +65,28 @@ public class ExternalMovementReaderTest extends TestCase {
 		list = r.readNextMovements();
 		assertEquals(0, list.size());
 	}
+	
+	public void testReadToBlock() {
+		Map<String, Integer> idIndex = new HashMap<String, Integer>();
+		idIndex.put("3", 0);
+		idIndex.put("1", 1);
+		ExternalMovementBlock block = new ExternalMovementBlock(1);
+		int[] expectedIds = {1, ExternalMovementBlock.UNKNOWN_ID, 0};
+		
+		for (int i=0; i<times.length; i++) {
+			r.readNextMovements(idIndex, block);
+			assertEquals(times[i], block.getTime());
+			assertEquals(ids.length, block.size());
+			for (int j=0; j<ids.length; j++) {
+				assertEquals(expectedIds[j], block.getId(j));
+				assertEquals(coords[i][j].getX(), block.getX(j));
+				assertEquals(coords[i][j].getY(), block.getY(j));
+			}
+		}
+		
+		r.readNextMovements(idIndex, block);
+		assertEquals(0, block.size());
+	}
 
 	private void checkTuples(List<Tuple<String, Coord>> list, String[] ids,
 			Coord[] coords) {
@@ -49,9 +49,13 @@ public class ExternalMovementTest extends TestCase {
 	private SimClock clock;
 	
 	protected void setUpUsing(String[] input) throws Exception {
+		setUpUsing(input, new TestSettings());
+	}
+	
+	protected void setUpUsing(String[] input, TestSettings ts) 
+			throws Exception {
 		super.setUp();
 		ExternalMovement.reset();
-		TestSettings ts = new TestSettings();
 		ts.putSetting(MovementModel.MOVEMENT_MODEL_NS + "." + 
 						MovementModel.WORLD_SIZE, "1000,1000");
 		File outFile = File.createTempFile("eMovementTest", ".tmp");
@@ -114,6 +118,73 @@ public class ExternalMovementTest extends TestCase {
 
 	}
 	
+	public void testMovementWithPrefetching() throws Exception {
+		TestSettings ts = new TestSettings();
+		ts.putSetting(ExternalMovement.EXTERNAL_MOVEMENT_NS + "." +
+				ExternalMovement.PREFETCH_S, "1");
+		setUpUsing(INPUT, ts);
+
+		for (int i=0; i<INPUT_COORDS.length; i++) {
+			assertEquals(INPUT_COORDS[0][i], h1.getLocation());
+			assertEquals(INPUT_COORDS[1][i], h2.getLocation());
+			clock.advance(CLOCK_STEP);
+			moveAllHosts(CLOCK_STEP);
+		}
+	}
+	
+	public void testLongTrace() throws Exception {
+		Coord[] locations = runLongTrace("0");
+		Coord[] prefetchedLocations = runLongTrace("3");
+		
+		for (int i=0; i<locations.length; i++) {
+			assertEquals("step " + i, locations[i], prefetchedLocations[i]);
+		}
+	}
+	
+	/**
+	 * Runs a trace where h1 has many short paths and h2 one long path, both
+	 * preloaded far ahead of the simulation. Checks that h2 follows the 
+	 * trace and that h1 ends up in the last location of the trace.
+	 * @param prefetch Value of the prefetch setting
+	 * @return Locations of h1 after every step
+	 */
+	private Coord[] runLongTrace(String prefetch) throws Exception {
+		final int nrofSteps = 60;
+		Coord[][] coords = new Coord[2][nrofSteps + 1];
+		String[] input = new String[2 * (nrofSteps + 1) + 1];
+		input[0] = "0 600 0 1000 0 1000";
+		
+		double x1 = 0;
+		for (int i=0; i<=nrofSteps; i++) {
+			if (i % 5 != 0) { // h1 stops every fifth step
+				x1 += 10;
+			}
+			coords[0][i] = new Coord(x1, 0);
+			coords[1][i] = new Coord(0, 100 + 5 * i);
+			input[2 * i + 1] = (i * 10) + " 1 " + x1 + " 0";
+			input[2 * i + 2] = (i * 10) + " 2 0 " + (100 + 5 * i);
+		}
+		
+		TestSettings ts = new TestSettings();
+		ts.putSetting(ExternalMovement.EXTERNAL_MOVEMENT_NS + "." +
+				ExternalMovement.NROF_PRELOAD_S, "30");
+		ts.putSetting(ExternalMovement.EXTERNAL_MOVEMENT_NS + "." +
+				ExternalMovement.PREFETCH_S, prefetch);
+		setUpUsing(input, ts);
+		
+		Coord[] locations = new Coord[nrofSteps + 1];
+		for (int i=0; i<=nrofSteps; i++) {
+			assertEquals("prefetch " + prefetch + ", step " + i,
+					coords[1][i], h2.getLocation());
+			locations[i] = h1.getLocation().clone();
+			clock.advance(CLOCK_STEP);
+			moveAllHosts(CLOCK_STEP);
+		}
+		assertEquals(coords[0][nrofSteps], h1.getLocation());
+		
+		return locations;
+	}
+	
 	public void moveAllHosts(double time) {
 		h1.move(time);
 		h2.move(time);
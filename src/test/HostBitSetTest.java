@@ -0,0 +1,127 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import routing.util.HostBitSet;
+import core.DTNHost;
+
+/**
+ * Tests for the HostBitSet class
+ */
+public class HostBitSetTest extends TestCase {
+	private static final int NROF_HOSTS = 150;
+	private DTNHost[] hosts;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		DTNHost.reset();
+		this.hosts = new DTNHost[NROF_HOSTS];
+		for (int i = 0; i < NROF_HOSTS; i++) {
+			hosts[i] = utils.createHost();
+		}
+		HostBitSet.setHosts(Arrays.asList(hosts));
+	}
+	
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		HostBitSet.reset();
+	}
+	
+	public void testAddContainsIterate() {
+		HostBitSet set = new HostBitSet();
+		assertTrue(set.add(hosts[5]));
+		assertFalse(set.add(hosts[5]));
+		assertTrue(set.add(hosts[140]));
+		assertTrue(set.add(hosts[64]));
+		
+		assertEquals(3, set.size());
+		assertTrue(set.contains(hosts[140]));
+		assertFalse(set.contains(hosts[6]));
+		assertFalse(set.contains("not a host"));
+		
+		Set<DTNHost> expected = new HashSet<DTNHost>();
+		expected.add(hosts[5]);
+		expected.add(hosts[64]);
+		expected.add(hosts[140]);
+		assertEquals(expected, set);
+		assertEquals(expected, new HashSet<DTNHost>(set));
+	}
+	
+	public void testRemove() {
+		HostBitSet set = new HostBitSet();
+		set.add(hosts[1]);
+		set.add(hosts[70]);
+		assertTrue(set.remove(hosts[70]));
+		assertFalse(set.remove(hosts[70]));
+		assertFalse(set.remove(hosts[2]));
+		assertEquals(1, set.size());
+		assertFalse(set.contains(hosts[70]));
+		assertEquals(hosts[1], set.iterator().next());
+	}
+	
+	public void testIntersectionAndUnion() {
+		HostBitSet a = new HostBitSet();
+		HostBitSet b = new HostBitSet();
+		for (int i = 0; i < NROF_HOSTS; i++) {
+			if (i % 2 == 0) {
+				a.add(hosts[i]);
+			}
+			if (i % 3 == 0) {
+				b.add(hosts[i]);
+			}
+		}
+		
+		assertEquals(25, a.intersectionSize(b)); // multiples of 6
+		assertEquals(25, b.intersectionSize(a));
+		assertEquals(75 + 50 - 25, a.unionSize(b));
+		assertFalse(a.containsAll(b));
+		
+		assertTrue(a.addAll(b));
+		assertEquals(100, a.size());
+		assertTrue(a.containsAll(b));
+		assertFalse(a.addAll(b));
+		assertTrue(a.contains(hosts[3]));
+	}
+	
+	public void testIterationNeedsHostList() {
+		HostBitSet set = new HostBitSet();
+		set.add(hosts[3]);
+		HostBitSet.reset();
+		try {
+			set.iterator().next();
+			fail("Addresses were resolved without a host list");
+		} catch (core.SimError e) {
+			// expected
+		}
+	}
+	
+	public void testSnapshot() {
+		HostBitSet set = new HostBitSet();
+		set.add(hosts[1]);
+		HostBitSet s1 = set.snapshot();
+		assertSame(s1, set.snapshot());
+		
+		set.add(hosts[2]);
+		HostBitSet s2 = set.snapshot();
+		assertNotSame(s1, s2);
+		assertEquals(1, s1.size());
+		assertFalse(s1.contains(hosts[2]));
+		assertTrue(s2.contains(hosts[2]));
+		assertTrue(s2.getVersion() > s1.getVersion());
+		
+		try {
+			s2.add(hosts[3]);
+			fail("Snapshot should be immutable");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import routing.community.IncrementalPeopleRank;
+
+/**
+ * Tests for the IncrementalPeopleRank class
+ */
+public class IncrementalPeopleRankTest extends TestCase {
+	private static final double D = 0.85;
+	private static final double DELTA = 0.00001;
+	private IncrementalPeopleRank pr;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.pr = new IncrementalPeopleRank(D);
+	}
+	
+	public void testNoFriends() {
+		assertEquals(1 - D, pr.getRank(), DELTA);
+		assertEquals(0, pr.getNrofFriends());
+		pr.updatePeer(3, 2.0, 4); // not a friend -> no effect
+		assertEquals(1 - D, pr.getRank(), DELTA);
+		assertTrue(pr.isKnown(3));
+		assertFalse(pr.isKnown(2));
+		assertEquals(2.0, pr.getKnownRank(3), DELTA);
+	}
+	
+	public void testFriends() {
+		pr.updatePeer(3, 2.0, 4);
+		assertTrue(pr.addFriend(3));
+		assertFalse(pr.addFriend(3));
+		assertEquals(1, pr.getNrofFriends());
+		assertEquals(1 - D + D * 0.5, pr.getRank(), DELTA);
+		
+		pr.addFriend(100); // not known yet -> no contribution
+		assertTrue(pr.isFriend(100));
+		assertFalse(pr.isFriend(99));
+		assertEquals(1 - D + D * 0.5, pr.getRank(), DELTA);
+		
+		pr.updatePeer(100, 1.0, 2);
+		assertEquals(1 - D + D * 1.0, pr.getRank(), DELTA);
+		pr.updatePeer(3, 4.0, 4); // replaces the old contribution
+		assertEquals(1 - D + D * 1.5, pr.getRank(), DELTA);
+	}
+	
+	public void testMatchesFullComputation() {
+		Random rng = new Random(42);
+		Set<Integer> friends = new HashSet<Integer>();
+		Map<Integer, double[]> known = new HashMap<Integer, double[]>();
+		
+		for (int i = 0; i < 5000; i++) {
+			int addr = rng.nextInt(300);
+			if (rng.nextBoolean()) {
+				pr.addFriend(addr);
+				friends.add(addr);
+			}
+			double rank = rng.nextDouble() * 3;
+			int count = rng.nextInt(10);
+			pr.updatePeer(addr, rank, count);
+			known.put(addr, new double[] {rank, count});
+		}
+		
+		double sum = 0;
+		for (int f : friends) {
+			double[] k = known.get(f);
+			if (k[1] > 0) {
+				sum += k[0] / k[1];
+			}
+		}
+		assertEquals(friends.size(), pr.getNrofFriends());
+		assertEquals(1 - D + D * sum, pr.getRank(), DELTA);
+	}
+}
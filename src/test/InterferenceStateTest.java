@@ -0,0 +1,230 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import interfaces.ConnectivityGrid;
+import interfaces.InterferenceLimitedInterface;
+import interfaces.InterferenceState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import routing.PassiveRouter;
+import core.Connection;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.ModuleCommunicationBus;
+import core.NetworkInterface;
+import core.Settings;
+import core.SimClock;
+import core.World;
+
+/**
+ * Tests for the two-phase interference model of
+ * InterferenceLimitedInterface (computed by InterferenceState)
+ */
+public class InterferenceStateTest extends TestCase {
+	private static final String LEGACY_NS = "legacyInterface";
+	private static final String TWO_PHASE_NS = "twoPhaseInterface";
+	private static final String PARALLEL_NS = "parallelInterface";
+	/** enough hosts for the parallel computation to kick in */
+	private static final int NROF_PARALLEL = 600;
+	private TestSettings ts;
+	private SimClock clock;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		ts = new TestSettings();
+		for (String ns : new String[] {LEGACY_NS, TWO_PHASE_NS, PARALLEL_NS}) {
+			ts.putSetting(ns + "." + NetworkInterface.TRANSMIT_RANGE_S, "1.5");
+			ts.putSetting(ns + "." + NetworkInterface.TRANSMIT_SPEED_S, "1000");
+		}
+		SimClock.reset();
+		clock = SimClock.getInstance();
+		DTNHost.reset();
+		NetworkInterface.reset();
+		ConnectivityGrid.reset();
+		InterferenceState.reset();
+	}
+	
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		InterferenceState.reset(); // stops the threads
+	}
+	
+	/**
+	 * Creates hosts to a line, one meter apart, so that every host is in
+	 * range of its neighbors only
+	 * @param ns Namespace of the interface settings
+	 * @param twoPhase Is the two-phase interference model used
+	 * @param nrof Number of hosts
+	 * @return The hosts
+	 */
+	private List<DTNHost> createHosts(String ns, boolean twoPhase, int nrof) {
+		ts.putSetting(World.SETTINGS_NS + "." + 
+				InterferenceLimitedInterface.TWO_PHASE_INTERFERENCE_S, 
+				"" + twoPhase);
+		NetworkInterface proto = 
+			new InterferenceLimitedInterface(new Settings(ns));
+		List<NetworkInterface> li = new ArrayList<NetworkInterface>();
+		li.add(proto);
+		
+		List<DTNHost> hosts = new ArrayList<DTNHost>();
+		for (int i = 0; i < nrof; i++) {
+			ModuleCommunicationBus comBus = new ModuleCommunicationBus();
+			hosts.add(new DTNHost(new ArrayList<MessageListener>(), null, ns,
+					li, comBus,
+					new StationaryMovement(new Coord(10 + i, 10)),
+					new PassiveRouter(ts)));
+		}
+		return hosts;
+	}
+	
+	/**
+	 * Updates the interfaces of the hosts at the given time
+	 */
+	private void tick(List<DTNHost> hosts, double time) {
+		clock.setTime(time);
+		for (DTNHost h : hosts) {
+			h.getInterfaces().get(0).update();
+		}
+	}
+	
+	/**
+	 * Starts transfers to the right neighbor from every host whose index
+	 * isn't divisible by three and also to the left neighbor from the hosts
+	 * whose index is divisible by four and left neighbor's index by three
+	 */
+	private void startTransfers(List<DTNHost> hosts) {
+		for (int i = 0; i < hosts.size(); i++) {
+			if (i % 3 != 0 && i + 1 < hosts.size()) {
+				startTransfer(hosts.get(i), hosts.get(i + 1));
+			}
+			if (i % 4 == 0 && i > 0 && (i - 1) % 3 == 0) {
+				startTransfer(hosts.get(i), hosts.get(i - 1));
+			}
+		}
+	}
+	
+	private void startTransfer(DTNHost from, DTNHost to) {
+		for (Connection con : from.getConnections()) {
+			if (con.getOtherNode(from) == to) {
+				con.startTransfer(from, new Message(from, to, 
+						"M" + from.getAddress(), 1000000));
+				return;
+			}
+		}
+		fail("No connection from " + from + " to " + to);
+	}
+	
+	private int[] getSpeeds(List<DTNHost> hosts) {
+		int[] speeds = new int[hosts.size()];
+		for (int i = 0; i < speeds.length; i++) {
+			speeds[i] = hosts.get(i).getInterfaces().get(0).getTransmitSpeed();
+		}
+		return speeds;
+	}
+	
+	private void assertSpeeds(int[] expected, int[] speeds) {
+		assertEquals(expected.length, speeds.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals("Speed of host " + i, expected[i], speeds[i]);
+		}
+	}
+	
+	public void testSpeedsMatchLegacyModel() {
+		List<DTNHost> legacy = createHosts(LEGACY_NS, false, 30);
+		List<DTNHost> twoPhase = createHosts(TWO_PHASE_NS, true, 30);
+		
+		tick(legacy, 1);
+		tick(twoPhase, 1);
+		assertEquals(2, legacy.get(5).getConnections().size());
+		assertEquals(2, twoPhase.get(5).getConnections().size());
+		startTransfers(legacy);
+		startTransfers(twoPhase);
+		
+		/* the legacy model reads the neighbors' states of the last update
+		 * so it needs two updates to settle on a static topology */
+		for (int t = 2; t <= 4; t++) {
+			tick(legacy, t);
+			tick(twoPhase, t);
+		}
+		
+		int[] speeds = getSpeeds(twoPhase);
+		assertSpeeds(getSpeeds(legacy), speeds);
+		/* the speeds really differ */
+		assertTrue(speeds[0] != speeds[2]);
+		assertTrue(speeds[2] != speeds[6]);
+		assertTrue(speeds[6] != speeds[0]);
+	}
+	
+	public void testUpdateOrderDoesNotMatter() {
+		List<DTNHost> hosts = createHosts(TWO_PHASE_NS, true, 30);
+		tick(hosts, 1);
+		startTransfers(hosts);
+		tick(hosts, 2);
+		int[] speeds = getSpeeds(hosts);
+		
+		List<DTNHost> reversed = new ArrayList<DTNHost>(hosts);
+		Collections.reverse(reversed);
+		tick(reversed, 3);
+		assertSpeeds(speeds, getSpeeds(hosts));
+	}
+	
+	public void testSerialAndParallelStatesAreEqual() {
+		List<DTNHost> serial = createHosts(TWO_PHASE_NS, true, NROF_PARALLEL);
+		
+		InterferenceState.reset();
+		ts.putSetting(World.SETTINGS_NS + "." + 
+				InterferenceState.INTERFERENCE_THREADS_S, "4");
+		List<DTNHost> parallel = createHosts(PARALLEL_NS, true, 
+				NROF_PARALLEL);
+		
+		tick(serial, 1);
+		tick(parallel, 1);
+		startTransfers(serial);
+		startTransfers(parallel);
+		tick(serial, 2);
+		tick(parallel, 2);
+		
+		assertSpeeds(getSpeeds(serial), getSpeeds(parallel));
+	}
+	
+	/**
+	 * The state is computed before the connections of the tick change, so
+	 * the changes affect the speeds one tick later
+	 */
+	public void testOneTickLag() {
+		List<DTNHost> hosts = createHosts(TWO_PHASE_NS, true, 10);
+		tick(hosts, 1);
+		startTransfers(hosts);
+		
+		/* transfers started after the state was computed count next tick */
+		int[] idle = getSpeeds(hosts);
+		tick(hosts, 1); // same time: state is not recomputed
+		assertSpeeds(idle, getSpeeds(hosts));
+		tick(hosts, 2);
+		int[] speeds = getSpeeds(hosts);
+		assertTrue(speeds[4] < idle[4]);
+		
+		/* host 5 (sending to 6 and receiving from 4) moves out of range */
+		hosts.get(5).getComBus().updateProperty(NetworkInterface.RANGE_ID, 
+				0.5);
+		tick(hosts, 3);
+		assertEquals(0, hosts.get(5).getConnections().size());
+		assertSpeeds(speeds, getSpeeds(hosts));
+		
+		tick(hosts, 4);
+		int[] changed = getSpeeds(hosts);
+		assertTrue(changed[4] > speeds[4]);
+		assertTrue(changed[6] > speeds[6]);
+		assertEquals(speeds[1], changed[1]); // far away hosts don't change
+		assertEquals(speeds[8], changed[8]);
+	}
+}
@@ -0,0 +1,62 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import routing.util.LongKeyMap;
+
+/**
+ * Tests for the LongKeyMap class
+ */
+public class LongKeyMapTest extends TestCase {
+	private LongKeyMap<String> map;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.map = new LongKeyMap<String>();
+	}
+	
+	public void testPutGetRemove() {
+		assertNull(map.put(1L, "a"));
+		assertNull(map.put(1L << 32, "b"));
+		assertEquals("a", map.put(1L, "c"));
+		
+		assertEquals("c", map.get(1L));
+		assertEquals("b", map.get(1L << 32));
+		assertNull(map.get(2L));
+		assertEquals(2, map.size());
+		
+		assertEquals("c", map.remove(1L));
+		assertNull(map.remove(1L));
+		assertFalse(map.containsKey(1L));
+		assertTrue(map.containsKey(1L << 32));
+		assertEquals(1, map.size());
+	}
+	
+	public void testAgainstHashMap() {
+		Map<Long, String> expected = new HashMap<Long, String>();
+		Random rng = new Random(1);
+		
+		for (int i = 0; i < 20000; i++) {
+			long key = rng.nextInt(500) | ((long)rng.nextInt(4) << 32);
+			if (rng.nextBoolean()) {
+				assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+			}
+			else {
+				assertEquals(expected.remove(key), map.remove(key));
+			}
+			assertEquals(expected.size(), map.size());
+		}
+		
+		for (Map.Entry<Long, String> e : expected.entrySet()) {
+			assertEquals(e.getValue(), map.get(e.getKey()));
+		}
+		assertEquals(expected.size(), map.values().size());
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.EventQueue;
+import input.EventQueueHandler;
+import input.ExternalEvent;
+import input.ExternalEventsQueue;
+import input.MessageEventGenerator;
+import input.MessageWorkload;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.Settings;
+import core.SimScenario;
+
+/**
+ * Tests for the MessageEventGenerator class and exporting its events
+ */
+public class MessageEventGeneratorTest extends TestCase {
+	private static final String NS = EventQueueHandler.SETTINGS_NAMESPACE + "1";
+	private static final double END_TIME = 20000;
+	private TestSettings ts;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		ts = new TestSettings();
+		ts.putSetting(SimScenario.SCENARIO_NS + "." + SimScenario.END_TIME_S,
+				"" + END_TIME);
+		ts.putSetting(NS + "." + EventQueueHandler.CLASS_SETTING,
+				"MessageEventGenerator");
+		ts.putSetting(NS + "." + MessageEventGenerator.MESSAGE_SIZE_S,
+				"100,200");
+		ts.putSetting(NS + "." + MessageEventGenerator.MESSAGE_INTERVAL_S,
+				"5,15");
+		ts.putSetting(NS + "." + MessageEventGenerator.HOST_RANGE_S, "0,20");
+		ts.putSetting(NS + "." + MessageEventGenerator.MESSAGE_ID_PREFIX_S,
+				"M");
+	}
+	
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		/* the settings are global; don't leave event queues for others */
+		ts.putSetting(EventQueueHandler.SETTINGS_NAMESPACE + "." + 
+				EventQueueHandler.NROF_SETTING, "0");
+	}
+	
+	/**
+	 * Returns the events of a queue up to a time (or all the events if the
+	 * time is Double.MAX_VALUE) and checks that the queue's next event time
+	 * matches the events
+	 */
+	private List<String> drain(EventQueue eq, double endTime) {
+		List<String> events = new ArrayList<String>();
+		while (eq.nextEventsTime() <= endTime && 
+				eq.nextEventsTime() != Double.MAX_VALUE) {
+			double time = eq.nextEventsTime();
+			assertEquals(time, eq.nextEventsTime());
+			ExternalEvent ee = eq.nextEvent();
+			assertEquals(time, ee.getTime());
+			events.add(ee.toString());
+		}
+		return events;
+	}
+	
+	private List<String> generate(String blockSize) {
+		if (blockSize != null) {
+			ts.putSetting(NS + "." + MessageEventGenerator.BLOCK_SIZE_S, 
+					blockSize);
+		}
+		return drain(new MessageEventGenerator(new Settings(NS)), END_TIME);
+	}
+	
+	public void testBlockSizeDoesNotChangeEvents() {
+		List<String> events = generate(null);
+		assertTrue(events.size() > 3 * MessageEventGenerator.DEF_BLOCK_SIZE);
+		assertEquals(events, generate("1"));
+		assertEquals(events, generate("7"));
+	}
+	
+	public void testEndOfEvents() {
+		ts.putSetting(NS + "." + MessageEventGenerator.MESSAGE_TIME_S, 
+				"0,500");
+		ts.putSetting(NS + "." + MessageEventGenerator.BLOCK_SIZE_S, "8");
+		MessageEventGenerator gen = 
+			new MessageEventGenerator(new Settings(NS));
+		
+		List<String> events = drain(gen, Double.MAX_VALUE);
+		assertTrue(events.size() > 8);
+		assertEquals(Double.MAX_VALUE, gen.nextEventsTime());
+		assertEquals(Double.MAX_VALUE, gen.nextEvent().getTime());
+	}
+	
+	public void testOverriddenNextEvent() {
+		List<String> blocks = generate(null);
+		List<String> single = drain(
+				new PerEventGenerator(new Settings(NS)), END_TIME);
+		assertEquals(blocks, single);
+	}
+	
+	public void testExportAndReplay() throws Exception {
+		File file = File.createTempFile("megTest", ".binee");
+		try {
+			ts.putSetting(EventQueueHandler.SETTINGS_NAMESPACE + "." + 
+					EventQueueHandler.NROF_SETTING, "1");
+			ts.putSetting(NS + "." + EventQueueHandler.EXPORT_FILE_SETTING, 
+					file.getAbsolutePath());
+			ts.putSetting(NS + "." + EventQueueHandler.PRELOAD_SETTING, "10");
+			
+			List<EventQueue> queues = new EventQueueHandler().getEventQueues();
+			assertEquals(1, queues.size());
+			assertTrue(queues.get(0) instanceof ExternalEventsQueue);
+			assertTrue(file.length() > 0);
+			
+			List<String> replayed = drain(queues.get(0), Double.MAX_VALUE);
+			assertEquals(generate(null), replayed);
+			
+			/* the file can be replayed again */
+			assertEquals(replayed, drain(new ExternalEventsQueue(
+					file.getAbsolutePath(), 0), Double.MAX_VALUE));
+		} finally {
+			file.delete();
+		}
+	}
+	
+	/**
+	 * Generator that overrides nextEvent() and draws one event at a time
+	 */
+	public static class PerEventGenerator extends MessageEventGenerator {
+		public PerEventGenerator(Settings s) {
+			super(s);
+		}
+		
+		@Override
+		public ExternalEvent nextEvent() {
+			if (this.nextEventsTime == Double.MAX_VALUE) {
+				return new ExternalEvent(Double.MAX_VALUE);
+			}
+			MessageWorkload w = new MessageWorkload(1);
+			drawEvent(w);
+			return w.createEvent(0, this.idPrefix);
+		}
+	}
+}
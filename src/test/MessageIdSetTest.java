@@ -0,0 +1,116 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import junit.framework.TestCase;
+import routing.util.MessageIdSet;
+
+/**
+ * Tests for the MessageIdSet class
+ */
+public class MessageIdSetTest extends TestCase {
+	private MessageIdSet set;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.set = new MessageIdSet();
+	}
+	
+	public void testAddAndContains() {
+		assertFalse(set.contains(5));
+		assertTrue(set.add(5, 0));
+		assertFalse(set.add(5, 1));
+		assertTrue(set.add(3, 1));
+		assertTrue(set.add(200000, 1));
+		
+		assertTrue(set.contains(3));
+		assertTrue(set.contains(5));
+		assertTrue(set.contains(200000));
+		assertFalse(set.contains(4));
+		assertFalse(set.contains(200001));
+		assertFalse(set.contains(Integer.MAX_VALUE));
+		assertEquals(3, set.size());
+	}
+	
+	public void testDenseChunk() {
+		/* more IDs than fit in the array form of a chunk */
+		for (int i = 0; i < 20000; i += 2) {
+			assertTrue(set.add(i, 0));
+		}
+		assertEquals(10000, set.size());
+		for (int i = 0; i < 20000; i++) {
+			assertEquals("ID " + i, i % 2 == 0, set.contains(i));
+		}
+		assertFalse(set.add(100, 0));
+		assertEquals(10000, set.size());
+	}
+	
+	public void testEviction() {
+		set = new MessageIdSet(true);
+		set.add(10, 0);
+		set.add(70000, 20);
+		set.add(11, 50);
+		
+		assertEquals(0, set.evictOlderThan(0));
+		assertEquals(2, set.evictOlderThan(30));
+		assertFalse(set.contains(10));
+		assertFalse(set.contains(70000));
+		assertTrue(set.contains(11));
+		assertEquals(1, set.size());
+		
+		/* adding an ID again does not renew it */
+		assertFalse(set.add(11, 60));
+		assertEquals(1, set.evictOlderThan(55));
+		assertEquals(0, set.size());
+		assertTrue(set.add(11, 70));
+		assertTrue(set.contains(11));
+	}
+	
+	public void testEvictionWithinChunk() {
+		set = new MessageIdSet(true);
+		for (int i = 0; i < 200; i++) {
+			set.add(i, i < 100 ? 0 : 10);
+		}
+		
+		/* the older half of the same chunk is evicted */
+		assertEquals(100, set.evictOlderThan(5));
+		assertEquals(100, set.size());
+		for (int i = 0; i < 200; i++) {
+			assertEquals("ID " + i, i >= 100, set.contains(i));
+		}
+	}
+	
+	public void testEvictionOfManyIds() {
+		set = new MessageIdSet(true);
+		int nrof = 100000; // spans two chunks, both in bitmap form
+		for (int i = 0; i < nrof; i++) {
+			assertTrue(set.add(i, i / 1000));
+		}
+		assertEquals(nrof, set.size());
+		
+		/* the second chunk (from 65536 on) has both old and new IDs */
+		assertEquals(70000, set.evictOlderThan(70));
+		assertEquals(nrof - 70000, set.size());
+		assertFalse(set.contains(0));
+		assertFalse(set.contains(65535));
+		assertFalse(set.contains(69999));
+		assertTrue(set.contains(70000));
+		assertTrue(set.contains(nrof - 1));
+		
+		assertEquals(nrof - 70000, set.evictOlderThan(nrof));
+		assertEquals(0, set.size());
+		assertFalse(set.contains(nrof - 1));
+	}
+	
+	public void testEvictionNotEnabled() {
+		set.add(1, 0);
+		try {
+			set.evictOlderThan(10);
+			fail("Eviction should not be enabled");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
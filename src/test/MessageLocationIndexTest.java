@@ -0,0 +1,121 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import routing.util.HostBitSet;
+import routing.util.MessageLocationIndex;
+import core.DTNHost;
+import core.Message;
+
+/**
+ * Tests for the MessageLocationIndex class
+ */
+public class MessageLocationIndexTest extends TestCase {
+	private static final int NROF_HOSTS = 10;
+	private DTNHost[] hosts;
+	private MessageLocationIndex index;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		DTNHost.reset();
+		this.hosts = new DTNHost[NROF_HOSTS];
+		for (int i = 0; i < NROF_HOSTS; i++) {
+			hosts[i] = utils.createHost();
+		}
+		HostBitSet.setHosts(Arrays.asList(hosts));
+		this.index = new MessageLocationIndex();
+	}
+	
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		HostBitSet.reset();
+	}
+	
+	private Message msg(String id) {
+		return new Message(hosts[0], hosts[1], id, 10);
+	}
+	
+	public void testHolders() {
+		Message m = msg("M1");
+		index.add(hosts[2], m);
+		index.add(hosts[7], m);
+		index.add(hosts[7], m);
+		
+		Set<DTNHost> expected = new HashSet<DTNHost>();
+		expected.add(hosts[2]);
+		expected.add(hosts[7]);
+		assertEquals(expected, index.getHolders("M1"));
+		assertEquals(0, index.getHolders("M2").size());
+		
+		index.remove(hosts[2], m);
+		index.remove(hosts[3], m);
+		assertEquals(1, index.getHolders("M1").size());
+		assertTrue(index.getHolders("M1").contains(hosts[7]));
+	}
+	
+	public void testEntryFreedWithLastHolder() {
+		Message m = msg("M1");
+		index.add(hosts[2], m);
+		index.add(hosts[3], m);
+		assertEquals(1, index.size());
+		
+		index.remove(hosts[2], m);
+		assertEquals(1, index.size());
+		index.remove(hosts[3], m);
+		assertEquals(0, index.size());
+		assertEquals(0, index.getHolders("M1").size());
+		assertEquals(0, index.getMissing(hosts[3], hosts[4]).length);
+		
+		/* the same ID can be indexed again */
+		index.add(hosts[4], msg("M1"));
+		assertEquals(1, index.size());
+		assertTrue(index.getHolders("M1").contains(hosts[4]));
+	}
+	
+	public void testSlotsBoundedByLiveMessages() {
+		/* at most 3 messages held at a time, but many messages in total */
+		for (int i = 0; i < 10000; i++) {
+			Message m = msg("M" + i);
+			index.add(hosts[i % NROF_HOSTS], m);
+			if (i >= 2) {
+				Message old = msg("M" + (i - 2));
+				index.remove(hosts[(i - 2) % NROF_HOSTS], old);
+			}
+		}
+		assertEquals(2, index.size());
+		assertTrue(index.getNrofSlots() <= 3);
+		assertTrue(index.getHolders("M9999").contains(hosts[9]));
+		assertTrue(index.getHolders("M9998").contains(hosts[8]));
+		assertEquals(0, index.getHolders("M9997").size());
+	}
+	
+	public void testMissingInFirstAddedOrder() {
+		Message m1 = msg("M1");
+		Message m2 = msg("M2");
+		Message m3 = msg("M3");
+		Message m4 = msg("M4");
+		index.add(hosts[5], m1);
+		index.add(hosts[5], m2);
+		index.add(hosts[5], m3);
+		index.add(hosts[6], m2);
+		
+		assertEquals(Arrays.asList("M1", "M3"),
+				Arrays.asList(index.getMissing(hosts[5], hosts[6])));
+		assertEquals(0, index.getMissing(hosts[6], hosts[5]).length);
+		assertEquals(0, index.getMissing(hosts[9], hosts[5]).length);
+		
+		/* M4 reuses the slot of M1, but is still after M3 */
+		index.remove(hosts[5], m1);
+		index.add(hosts[5], m4);
+		assertEquals(Arrays.asList("M3", "M4"),
+				Arrays.asList(index.getMissing(hosts[5], hosts[6])));
+	}
+}
@@ -49,6 +49,19 @@ public class MessageTest extends TestCase {
 
 	}
 
+	@Test
+	public void testGetExpiryTime() {
+		assertEquals(10 + 9 * 60.0, msg.getExpiryTime());
+		
+		sc.setTime(msg.getExpiryTime());
+		assertEquals(1, msg.getTtl());
+		sc.advance(0.1);
+		assertEquals(0, msg.getTtl());
+		
+		Message m2 = new Message(from, to, "M2", 100);
+		assertEquals(Double.MAX_VALUE, m2.getExpiryTime());
+	}
+
 	@Test
 	public void testAddProperty() {
 		String value1 = "value1";
@@ -59,6 +72,21 @@ public class MessageTest extends TestCase {
 		assertEquals(value1, msg.getProperty("foo"));
 		assertEquals(value2, msg.getProperty("bar"));
 	}
+	
+	@Test
+	public void testIdNumber() {
+		Message m2 = new Message(from, to, "M2", 100);
+		Message m3 = new Message(from, to, "M3", 100);
+		assertEquals(msg.getIdNumber() + 1, m2.getIdNumber());
+		assertEquals(m2.getIdNumber() + 1, m3.getIdNumber());
+		
+		/* replicates share the number and don't use up new numbers */
+		Message rep = m2.replicate();
+		assertEquals(m2.getIdNumber(), rep.getIdNumber());
+		assertEquals(m2.getIdNumber(), rep.replicate().getIdNumber());
+		Message m4 = new Message(from, to, "M4", 100);
+		assertEquals(m3.getIdNumber() + 1, m4.getIdNumber());
+	}
 
 
 }
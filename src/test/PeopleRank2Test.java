@@ -0,0 +1,87 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import routing.DecisionEngineRouter;
+import routing.MessageRouter;
+import routing.community.PeopleRank2;
+import core.DTNHost;
+import core.Message;
+
+/**
+ * Tests for the PeopleRank2 decision engine
+ */
+public class PeopleRank2Test extends AbstractRouterTest {
+	private static final double D = 0.85;
+	private static final int THRESHOLD = 100;
+	private static final double DELTA = 0.00001;
+	
+	@Override
+	public void setUp() throws Exception {
+		String ns = DecisionEngineRouter.PUBSUB_NS + ".";
+		ts.putSetting(MessageRouter.B_SIZE_S, ""+BUFFER_SIZE);
+		ts.putSetting(ns + DecisionEngineRouter.ENGINE_SETTING,
+				"community.PeopleRank2");
+		ts.putSetting(ns + PeopleRank2.DUMPING_FACTOR_SETTING, "" + D);
+		ts.putSetting(ns + PeopleRank2.TRESHOLD_SETTING, "" + THRESHOLD);
+		setRouterProto(new DecisionEngineRouter(ts));
+		super.setUp();
+		clock.setTime(1000);
+	}
+	
+	private PeopleRank2 engine(DTNHost h) {
+		return (PeopleRank2)((DecisionEngineRouter)h.getRouter()).
+			getDecisionEngine();
+	}
+	
+	private void contact(DTNHost a, DTNHost b, double duration) {
+		a.connect(b);
+		clock.advance(duration);
+		disconnect(b);
+	}
+	
+	public void testShortContactsDontMakeFriends() {
+		contact(h1, h2, THRESHOLD / 2);
+		contact(h1, h2, THRESHOLD / 2);
+		
+		assertEquals(1 - D, engine(h1).getRank(), DELTA);
+		assertEquals(1 - D, engine(h2).getRank(), DELTA);
+		/* the ranks are still learned */
+		assertEquals(1 - D, engine(h1).getRanking(h2), DELTA);
+		assertEquals(0.0, engine(h1).getRanking(h3), DELTA);
+	}
+	
+	public void testLongContactsMakeFriends() {
+		contact(h1, h2, THRESHOLD);
+		contact(h1, h2, THRESHOLD);
+		
+		/* both know the other has one friend with rank > 1 - d */
+		double r1 = engine(h1).getRank();
+		double r2 = engine(h2).getRank();
+		assertTrue(r1 > 1 - D);
+		assertTrue(r2 > 1 - D);
+		assertEquals(r2, engine(h1).getRanking(h2), DELTA);
+		assertTrue(engine(h1).getAllRankings().containsKey(h2));
+		assertFalse(engine(h1).getAllRankings().containsKey(h3));
+	}
+	
+	public void testForwardingByRank() {
+		/* h2 gets more friends and thus a higher rank than h1 */
+		for (int i = 0; i < 2; i++) {
+			contact(h2, h3, THRESHOLD);
+			contact(h2, h4, THRESHOLD);
+			contact(h1, h2, THRESHOLD);
+		}
+		assertTrue(engine(h2).getRank() > engine(h1).getRank());
+		
+		Message m = new Message(h1, h6, msgId1, 1);
+		assertTrue(engine(h1).shouldSendMessageToHost(m, h2, h1));
+		assertFalse(engine(h2).shouldSendMessageToHost(m, h1, h2));
+		/* never met */
+		assertFalse(engine(h1).shouldSendMessageToHost(m, h5, h1));
+		/* the destination */
+		assertTrue(engine(h1).shouldSendMessageToHost(m, h6, h1));
+	}
+}
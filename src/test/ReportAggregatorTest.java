@@ -0,0 +1,93 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import report.ReportAggregator;
+
+/**
+ * Tests for the ReportAggregator
+ */
+public class ReportAggregatorTest extends TestCase {
+	private List<File> files;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		java.util.Locale.setDefault(java.util.Locale.US);
+		files = new ArrayList<File>();
+		addReport("a_1_", "Message stats for scenario a_1", "delivered: 1", 
+				"delivery_prob: 0.5", "overhead_ratio: NaN");
+		addReport("a_2_", "Message stats for scenario a_2", "delivered: 3",
+				"delivery_prob: 0.7", "overhead_ratio: 2.0");
+		addReport("b_1_", "Message stats for scenario b_1", "delivered: 5",
+				"not a value line", "delivery_prob: 1.0");
+	}
+	
+	private void addReport(String prefix, String... lines) throws Exception {
+		File f = File.createTempFile(prefix, "_MessageStatsReport.txt");
+		f.deleteOnExit();
+		PrintWriter pw = new PrintWriter(f);
+		for (String line : lines) {
+			pw.println(line);
+		}
+		pw.close();
+		files.add(f);
+	}
+	
+	private String[] aggregate(String groupRe) {
+		ReportAggregator ra = new ReportAggregator(groupRe, 
+				new double[] {0, 50, 100}, 2);
+		ra.addReports(files, 2);
+		StringWriter sw = new StringWriter();
+		ra.write(new PrintWriter(sw));
+		return sw.toString().split("\\r?\\n");
+	}
+	
+	public void testGroupedStats() {
+		String[] rows = aggregate("([^_]*)_");
+		
+		assertEquals("group1,key,n,mean,stddev,ci95_low,ci95_high,min,max," +
+				"p0,p50,p100", rows[0]);
+		assertEquals(6, rows.length);
+		// mean 2, stddev sqrt(2), ci 12.706 * sqrt(2) / sqrt(2)
+		assertEquals("a,delivered,2,2.00,1.41,-10.71,14.71,1.00,3.00," +
+				"1.00,2.00,3.00", rows[1]);
+		assertEquals("a,delivery_prob,2,0.60,0.14,-0.67,1.87,0.50,0.70," +
+				"0.50,0.60,0.70", rows[2]);
+		// NaN values are skipped
+		assertEquals("a,overhead_ratio,1,2.00,NaN,NaN,NaN,2.00,2.00," +
+				"2.00,2.00,2.00", rows[3]);
+		assertTrue(rows[4].startsWith("b,delivered,1,5.00,"));
+		assertTrue(rows[5].startsWith("b,delivery_prob,1,1.00,"));
+	}
+	
+	public void testMultipleDimensions() {
+		String[] rows = aggregate("([^_]*)_(\\d+)_");
+		assertTrue(rows[0].startsWith("group1,group2,key,n,"));
+		assertTrue(rows[1].startsWith("a,1,delivered,1,1.00,"));
+		assertTrue(rows[3].startsWith("a,2,delivered,1,3.00,"));
+	}
+	
+	public void testPercentile() {
+		double[] values = {1, 2, 3, 4};
+		assertEquals(1.0, ReportAggregator.percentile(values, 0));
+		assertEquals(2.5, ReportAggregator.percentile(values, 50));
+		assertEquals(1.3, ReportAggregator.percentile(values, 10), 1e-9);
+		assertEquals(4.0, ReportAggregator.percentile(values, 100));
+		assertEquals(7.0, ReportAggregator.percentile(new double[] {7}, 50));
+	}
+	
+	public void testTValue() {
+		assertEquals(12.706, ReportAggregator.tValue(1));
+		assertEquals(2.042, ReportAggregator.tValue(30));
+		assertEquals(1.960, ReportAggregator.tValue(1000));
+	}
+}
@@ -215,5 +215,34 @@ public class SettingsTest extends TestCase {
 		Settings.setRunIndex(-1);
 		assertEquals("[val1 ; val2;val3; val4 ]", s.getSetting(RS_S));
 	}
+	
+	public void testRunCycleLength() throws Exception {
+		assertEquals(4, Settings.getRunCycleLength());
+		Settings.addSettings(writeTempFile("lcmSetting = [1;2;3]"));
+		assertEquals(12, Settings.getRunCycleLength());
+	}
+	
+	public void testRunSettingsString() {
+		String run1 = Settings.getRunSettingsString();
+		assertTrue(run1.contains(RS_S + " = val1\n"));
+		assertTrue(run1.contains(IRS_S + " = [val1 ; val2\n"));
+		
+		Settings.setRunIndex(1);
+		String run2 = Settings.getRunSettingsString();
+		assertTrue(run2.contains(RS_S + " = val2\n"));
+		assertFalse(run1.equals(run2));
+		
+		Settings.setRunIndex(4); // wraps around to the first run
+		assertEquals(run1, Settings.getRunSettingsString());
+	}
+	
+	private String writeTempFile(String line) throws Exception {
+		File tempFile = File.createTempFile("settingsTest", ".tmp");
+		tempFile.deleteOnExit();
+		PrintWriter out = new PrintWriter(tempFile);
+		out.println(line);
+		out.close();
+		return tempFile.getAbsolutePath();
+	}
 
 }
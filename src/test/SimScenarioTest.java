@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import interfaces.ConnectivityGrid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import movement.MovementModel;
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimScenario;
+
+/**
+ * Tests for the SimScenario's host creation
+ */
+public class SimScenarioTest extends TestCase {
+	private TestSettings ts;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		ts = new TestSettings();
+		ts.putSetting("Scenario.nrofHostGroups", "2");
+		ts.putSetting("Group.nrofHosts", "50");
+		ts.putSetting("Group.nrofInterfaces", "1");
+		ts.putSetting("Group.interface1", "testInterface");
+		ts.putSetting("Group.movementModel", "RandomWaypoint");
+		ts.putSetting("Group.router", "EpidemicRouter");
+		ts.putSetting("Group.bufferSize", "1M");
+		ts.putSetting("Group.speed", "0.5, 1.5");
+		ts.putSetting("Group.waitTime", "0, 120");
+		ts.putSetting("Group1.groupID", "a");
+		ts.putSetting("Group2.groupID", "b");
+		ts.putSetting("testInterface.type", "SimpleBroadcastInterface");
+		ts.putSetting("testInterface.transmitSpeed", "250k");
+		ts.putSetting("testInterface.transmitRange", "10");
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		resetScenario();
+	}
+
+	public void testLazyRoutersDontChangeHosts() {
+		List<String> eager = createHosts("false");
+		assertEquals(100, eager.size());
+		for (DTNHost h : SimScenario.getInstance().getHosts()) {
+			assertTrue(h.hasRouter());
+		}
+
+		List<String> lazy = createHosts("true");
+		assertEquals(eager, lazy);
+		List<DTNHost> hosts = SimScenario.getInstance().getHosts();
+		for (DTNHost h : hosts) {
+			assertFalse(h.hasRouter());
+		}
+		assertNotNull(hosts.get(0).getRouter());
+		assertTrue(hosts.get(0).hasRouter());
+		assertFalse(hosts.get(1).hasRouter());
+	}
+
+	/**
+	 * Creates the hosts of the test scenario and returns a description of
+	 * every host (name, address, interface addresses and location)
+	 */
+	private List<String> createHosts(String lazyRouters) {
+		resetScenario();
+		ts.putSetting("Scenario." + SimScenario.LAZY_ROUTERS_S, lazyRouters);
+		List<String> hosts = new ArrayList<String>();
+		for (DTNHost h : SimScenario.getInstance().getHosts()) {
+			StringBuilder sb = new StringBuilder(h.toString() + " " +
+					h.getAddress());
+			for (NetworkInterface ni : h.getInterfaces()) {
+				sb.append(" " + ni.getAddress());
+			}
+			sb.append(" " + h.getLocation());
+			hosts.add(sb.toString());
+		}
+		return hosts;
+	}
+
+	private void resetScenario() {
+		SimScenario.reset();
+		DTNHost.reset();
+		NetworkInterface.reset();
+		ConnectivityGrid.reset();
+		MovementModel.reset();
+	}
+}
@@ -0,0 +1,135 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import core.Coord;
+import core.DTNHost;
+import gui.playfield.PositionSnapshot;
+import gui.playfield.SnapshotRing;
+
+/**
+ * Tests for the SnapshotRing class
+ */
+public class SnapshotRingTest extends TestCase {
+	private static final int NROF_HOSTS = 20;
+	private List<DTNHost> hosts;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		DTNHost.reset();
+		this.hosts = new ArrayList<DTNHost>();
+		for (int i = 0; i < NROF_HOSTS; i++) {
+			hosts.add(utils.createHost());
+		}
+	}
+	
+	/**
+	 * Moves all the hosts to (value, value) and fills a snapshot
+	 */
+	private void fill(PositionSnapshot s, double value) {
+		for (DTNHost h : hosts) {
+			h.setLocation(new Coord(value, value));
+		}
+		s.fill(hosts, value);
+	}
+	
+	/**
+	 * Returns the value the snapshot was filled with or fails if the
+	 * snapshot is not consistent
+	 */
+	private double check(PositionSnapshot s) {
+		double value = s.getSimTime();
+		for (int i = 0; i < s.getNrofHosts(); i++) {
+			assertEquals(value, s.getX(i));
+			assertEquals(value, s.getY(i));
+		}
+		return value;
+	}
+	
+	public void testLatest() {
+		SnapshotRing ring = new SnapshotRing(SnapshotRing.MIN_SIZE);
+		assertNull(ring.acquireLatest());
+		
+		for (int i = 1; i <= 5; i++) {
+			fill(ring.claim(), i);
+			ring.publish();
+		}
+		PositionSnapshot s = ring.acquireLatest();
+		assertEquals(5.0, check(s));
+		assertEquals(ring.getPublishedSeq(), ring.getReadingSeq());
+	}
+	
+	public void testHeldSnapshotIsNotRefilled() {
+		SnapshotRing ring = new SnapshotRing(SnapshotRing.MIN_SIZE);
+		Random rng = new Random(42);
+		PositionSnapshot held = null;
+		PositionSnapshot filling = null;
+		double heldValue = 0;
+		double lastValue = 0;
+		
+		for (int i = 1; i <= 10000; i++) {
+			int op = rng.nextInt(3);
+			if (op == 0 && filling == null) {
+				filling = ring.claim();
+				assertNotSame(held, filling);
+				fill(filling, i);
+			} else if (op == 1 && filling != null) {
+				ring.publish();
+				filling = null;
+			} else if (op == 2) {
+				PositionSnapshot s = ring.acquireLatest();
+				if (s != null) {
+					assertNotSame(filling, s);
+					held = s;
+					heldValue = check(s);
+					assertTrue(heldValue >= lastValue);
+					lastValue = heldValue;
+				}
+			}
+			if (held != null) {
+				assertEquals(heldValue, check(held));
+			}
+		}
+	}
+	
+	public void testConcurrentProducer() throws Exception {
+		final SnapshotRing ring = new SnapshotRing(SnapshotRing.MIN_SIZE);
+		final int nrofFills = 100000;
+		Thread producer = new Thread(new Runnable() {
+			public void run() {
+				for (int i = 1; i <= nrofFills; i++) {
+					fill(ring.claim(), i);
+					ring.publish();
+				}
+			}
+		});
+		producer.start();
+		
+		double lastValue = 0;
+		int nrofAcquires = 0;
+		while (producer.isAlive()) {
+			PositionSnapshot s = ring.acquireLatest();
+			if (s == null) {
+				continue;
+			}
+			nrofAcquires++;
+			double value = check(s);
+			assertTrue(value >= lastValue);
+			lastValue = value;
+			Thread.yield(); // let the producer go around the ring
+			assertEquals(value, check(s));
+		}
+		producer.join();
+		
+		assertTrue(nrofAcquires > 0);
+		assertEquals((double)nrofFills, check(ring.acquireLatest()));
+	}
+}
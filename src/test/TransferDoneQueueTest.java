@@ -0,0 +1,53 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import input.TransferDoneQueue;
+import junit.framework.TestCase;
+
+/**
+ * Tests for the TransferDoneQueue
+ */
+public class TransferDoneQueueTest extends TestCase {
+	private static double MAX = Double.MAX_VALUE;
+	private TransferDoneQueue tdq;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		tdq = new TransferDoneQueue();
+	}
+	
+	public void testOrder() {
+		double[] times = {5.5, 1.2, 9.0, 3.3, 0.4, 7.1, 2.0, 6.6, 8.8, 4.4,
+				1.1, 3.0, 0.9, 5.0, 2.2, 7.7, 6.0, 9.9, 0.1, 4.0};
+		for (int i = 0; i < times.length; i++) {
+			tdq.addTransfer(times[i], i);
+		}
+		assertEquals(times.length, tdq.size());
+		
+		double previous = -1;
+		for (int i = 0; i < times.length; i++) {
+			double time = tdq.nextEventsTime();
+			assertTrue(time >= previous);
+			assertEquals(time, tdq.nextEvent().getTime());
+			previous = time;
+		}
+		assertEquals(0, tdq.size());
+		assertEquals(MAX, tdq.nextEventsTime());
+		assertEquals(MAX, tdq.nextEvent().getTime());
+	}
+	
+	public void testEqualTimesInAddOrder() {
+		tdq.addTransfer(2.0, 1);
+		tdq.addTransfer(1.0, 2);
+		tdq.addTransfer(2.0, 3);
+		tdq.addTransfer(2.0, 4);
+		
+		assertEquals("TRANSFER_DONE @1.0 2", tdq.nextEvent().toString());
+		assertEquals("TRANSFER_DONE @2.0 1", tdq.nextEvent().toString());
+		assertEquals("TRANSFER_DONE @2.0 3", tdq.nextEvent().toString());
+		assertEquals("TRANSFER_DONE @2.0 4", tdq.nextEvent().toString());
+	}
+}
@@ -10,7 +10,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import junit.framework.TestCase;
+import core.CBRConnection;
 import core.DTNHost;
+import core.Message;
 import core.ModuleCommunicationBus;
 import core.NetworkInterface;
 import core.SimClock;
@@ -35,6 +37,7 @@ public class WorldTest extends TestCase {
 	protected void setUp() throws Exception {
 		super.setUp();
 		SimClock.reset();
+		DTNHost.reset(); // addresses must match the indexes in the world
 				
 		this.eQueues = new ArrayList<EventQueue>();
 		this.testHosts = new ArrayList<TestDTNHost>();
@@ -49,6 +52,10 @@ public class WorldTest extends TestCase {
 			this.testHosts.add(new TestDTNHost(li, comBus));
 		}
 		
+		createWorld();
+	}
+	
+	private void createWorld() {
 		TestScenario ts = new TestScenario();
 		this.world = new World(ts.getHosts(),ts.getWorldSizeX(), 
 				ts.getWorldSizeY(),ts.getUpdateInterval(), 
@@ -99,6 +106,65 @@ public class WorldTest extends TestCase {
 	}
 	
 
+	public void testExactTransferTimes() {
+		runTransfer(null);
+	}
+	
+	public void testExactTransferTimesWithBatches() {
+		runTransfer("0");
+	}
+	
+	/**
+	 * Starts a transfer between two updates with exact transfer times on
+	 * and checks that only the sender is updated at the transfer's done
+	 * time
+	 * @param batchEpsilon Event batch epsilon or null for no batching
+	 */
+	private void runTransfer(String batchEpsilon) {
+		TestSettings ts = new TestSettings();
+		ts.putSetting(World.SETTINGS_NS + "." + World.EXACT_TRANSFER_TIMES_S,
+				"true");
+		if (batchEpsilon != null) {
+			ts.putSetting(World.SETTINGS_NS + "." + 
+					World.EVENT_BATCH_EPSILON_S, batchEpsilon);
+		}
+		try {
+			createWorld();
+		} finally { // don't leave the settings for other tests
+			ts.putSetting(World.SETTINGS_NS + "." + 
+					World.EXACT_TRANSFER_TIMES_S, "false");
+			ts.putSetting(World.SETTINGS_NS + "." + 
+					World.EVENT_BATCH_EPSILON_S, "-1");
+		}
+		
+		TestDTNHost from = testHosts.get(0);
+		TestDTNHost to = testHosts.get(1);
+		world.update();
+		assertNrofUpdates(1);
+		
+		/* transfer of 25 bytes at 100 Bps is done at 0.35 */
+		CBRConnection con = new CBRConnection(from, 
+				from.getInterfaces().get(0), to, to.getInterfaces().get(0),
+				100);
+		con.startTransfer(from, new Message(from, to, "M", 25));
+		
+		world.update();
+		world.update();
+		assertNrofUpdates(3);
+		
+		world.update();
+		assertEquals(0.4, SimClock.getTime(), TIME_DELTA);
+		assertEquals(5, from.nrofUpdate);
+		assertEquals(0.4, from.lastUpdate, TIME_DELTA);
+		for (TestDTNHost h : testHosts.subList(1, testHosts.size())) {
+			assertEquals(4, h.nrofUpdate);
+		}
+		
+		world.update();
+		assertEquals(6, from.nrofUpdate);
+		assertEquals(5, to.nrofUpdate);
+	}
+	
 	/** Dummy scenario for providing test values for the World */ 
 	private class TestScenario extends core.SimScenario {
 		public TestScenario() {	}